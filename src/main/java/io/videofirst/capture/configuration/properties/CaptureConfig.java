@@ -49,7 +49,7 @@ import org.springframework.stereotype.Component;
 @Component
 @ConfigurationProperties("capture_config")
 @JsonInclude(Include.NON_NULL)
-@JsonPropertyOrder({"ui", "storage", "upload", "system", "environment"})
+@JsonPropertyOrder({"ui", "storage", "recorder", "upload", "system", "environment"})
 public class CaptureConfig {
 
     private UiConfig ui;
@@ -59,6 +59,7 @@ public class CaptureConfig {
 
     @Getter
     private StorageConfig storage;
+    private RecorderConfig recorder;
     private UploadConfig upload;
     private List<String> environment;
 
@@ -0,0 +1,116 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.configuration.properties;
+
+import io.videofirst.capture.enums.Backpressure;
+import io.videofirst.capture.exception.VideoConfigurationException;
+import io.videofirst.capture.model.capture.VideoSettings;
+import lombok.Data;
+
+/**
+ * Recorder configuration i.e. the default video settings and how screen frames are grabbed and
+ * handed to the encoder.
+ *
+ * @author Bob Marks
+ */
+@Data
+public class RecorderConfig {
+
+    public static final int DEFAULT_BUFFER_FRAMES = 30;
+    public static final int DEFAULT_FRAME_RATE = 10;
+    public static final int DEFAULT_MIN_FRAME_RATE = 2;
+    public static final int DEFAULT_KEY_FRAME_INTERVAL = 15 * 60; // frames
+    public static final float DEFAULT_QUALITY = 1.0f;
+    public static final int DEFAULT_DEPTH = 24;
+    public static final int DEFAULT_TILE_SIZE = 32; // pixels
+    public static final int DEFAULT_MAX_SESSIONS = 4;
+
+    private int frameRate = DEFAULT_FRAME_RATE;
+
+    private boolean adaptive; // lower / raise the frame rate depending on how busy the recorder is
+
+    private int minFrameRate = DEFAULT_MIN_FRAME_RATE; // only used if adaptive
+
+    private int keyFrameInterval = DEFAULT_KEY_FRAME_INTERVAL;
+
+    private float quality = DEFAULT_QUALITY;
+
+    private int depth = DEFAULT_DEPTH; // bits per pixel i.e. 16 or 24
+
+    private int bufferFrames = DEFAULT_BUFFER_FRAMES; // frames waiting to be encoded
+
+    private Backpressure backpressure = Backpressure.DEFAULT_BACKPRESSURE;
+
+    private boolean frameDiff = true; // don't encode frames which haven't changed
+
+    private int tileSize = DEFAULT_TILE_SIZE; // size of the tiles which frames are compared in
+
+    private int maxSessions = DEFAULT_MAX_SESSIONS; // sessions which can record at the same time
+
+    /**
+     * Return the video settings of a recording i.e. the `overrides` (if set) with any missing
+     * settings taken from this configuration.
+     */
+    public VideoSettings videoSettings(VideoSettings overrides) {
+        VideoSettings video = overrides != null ? overrides : new VideoSettings();
+        VideoSettings settings = VideoSettings.builder()
+            .frameRate(video.getFrameRate() != null ? video.getFrameRate() : frameRate)
+            .adaptive(video.getAdaptive() != null ? video.getAdaptive() : adaptive)
+            .minFrameRate(video.getMinFrameRate() != null ? video.getMinFrameRate() : minFrameRate)
+            .keyFrameInterval(video.getKeyFrameInterval() != null ? video.getKeyFrameInterval()
+                : keyFrameInterval)
+            .quality(video.getQuality() != null ? video.getQuality() : quality)
+            .depth(video.getDepth() != null ? video.getDepth() : depth)
+            .build();
+        validate(settings);
+        return settings;
+    }
+
+    // Private methods
+
+    private static void validate(VideoSettings settings) {
+        if (settings.getFrameRate() < 1) {
+            throw new VideoConfigurationException(
+                "Invalid frame rate [ " + settings.getFrameRate() + " ] - must be at least 1");
+        }
+        if (settings.getMinFrameRate() < 1
+            || settings.getMinFrameRate() > settings.getFrameRate()) {
+            throw new VideoConfigurationException("Invalid min frame rate [ " + settings
+                .getMinFrameRate() + " ] - must be between 1 and the frame rate");
+        }
+        if (settings.getKeyFrameInterval() < 1) {
+            throw new VideoConfigurationException("Invalid key frame interval [ " + settings
+                .getKeyFrameInterval() + " ] - must be at least 1");
+        }
+        if (settings.getQuality() < 0 || settings.getQuality() > 1) {
+            throw new VideoConfigurationException(
+                "Invalid quality [ " + settings.getQuality() + " ] - must be between 0 and 1");
+        }
+        if (settings.getDepth() != 16 && settings.getDepth() != 24) {
+            throw new VideoConfigurationException(
+                "Invalid depth [ " + settings.getDepth() + " ] - must be 16 or 24");
+        }
+    }
+
+}
@@ -24,8 +24,13 @@
 package io.videofirst.capture.configuration.properties;
 
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import io.videofirst.capture.enums.DurabilityPolicy;
+import io.videofirst.capture.enums.ShardPlacement;
+import io.videofirst.capture.enums.StorageCodec;
 import io.videofirst.capture.serializers.FileAbsolutePathSerializer;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Data;
 
 /**
@@ -36,10 +41,41 @@ import lombok.Data;
 @Data
 public class StorageConfig {
 
+    public static final String PROPERTY_DAO = "capture_config.storage.dao";
+    public static final String DAO_FILESYSTEM = "filesystem";
+    public static final String DAO_H2 = "h2";
+
     @JsonSerialize(using = FileAbsolutePathSerializer.class)
     private File tempFolder;
 
     @JsonSerialize(using = FileAbsolutePathSerializer.class)
     private File videoFolder;
 
+    @JsonSerialize(contentUsing = FileAbsolutePathSerializer.class)
+    private List<File> shardFolders = new ArrayList<>(); // extra video folders (e.g. other volumes)
+
+    private ShardPlacement shardPlacement = ShardPlacement.DEFAULT_SHARD_PLACEMENT;
+
+    private String dao = DAO_FILESYSTEM; // where capture data is stored (videos are always files)
+
+    private StorageCodec codec = StorageCodec.DEFAULT_STORAGE_CODEC;
+
+    private StorageCacheConfig cache = new StorageCacheConfig();
+
+    private StorageRetentionConfig retention = new StorageRetentionConfig();
+
+    private int writeBehindInMillis = 5000; // window in which repeated saves are coalesced
+
+    private DurabilityPolicy durability = DurabilityPolicy.DEFAULT_DURABILITY_POLICY;
+
+    private int groupCommitInMillis = 1000; // only used if durability is `group`
+
+    private int indexSnapshotInSecs = 300; // index snapshot is also written on shutdown
+
+    private boolean search = true; // full-text search index of captures (held in memory)
+
+    private int searchIndexRate = 200; // captures read per second when building the search index
+
+    private int bulkThreads = 4; // threads which delete the files of bulk jobs
+
 }
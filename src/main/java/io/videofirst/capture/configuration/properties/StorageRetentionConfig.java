@@ -0,0 +1,51 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.configuration.properties;
+
+import lombok.Data;
+
+/**
+ * Storage retention configuration i.e. rules which decide when old captures are deleted (a value
+ * of 0 means the rule isn't used).
+ *
+ * @author Bob Marks
+ */
+@Data
+public class StorageRetentionConfig {
+
+    private boolean enable = false;
+
+    private int intervalInMins = 60; // how often the retention rules are applied
+
+    private int maxAgeInDays = 0;
+
+    private long maxSizeInMb = 0; // total size of all captures
+
+    private int maxCapturesPerProject = 0;
+
+    private int keepFailedOnlyAfterDays = 0; // only captures which failed / errored are kept
+
+    private int threads = 2; // number of threads which delete captures
+
+}
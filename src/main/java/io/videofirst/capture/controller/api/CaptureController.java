@@ -23,16 +23,40 @@
  */
 package io.videofirst.capture.controller.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.videofirst.capture.enums.ExportFormat;
+import io.videofirst.capture.model.bulk.BulkDeleteParams;
+import io.videofirst.capture.model.bulk.BulkJob;
 import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CapturePage;
+import io.videofirst.capture.model.capture.CaptureQuery;
 import io.videofirst.capture.model.capture.CaptureRecordParams;
+import io.videofirst.capture.model.capture.CaptureStats;
 import io.videofirst.capture.model.capture.CaptureStatus;
 import io.videofirst.capture.model.capture.CaptureStopParams;
 import io.videofirst.capture.model.capture.CaptureSummary;
 import io.videofirst.capture.model.capture.UploadStatus;
+import io.videofirst.capture.service.BulkService;
 import io.videofirst.capture.service.CaptureService;
+import io.videofirst.capture.service.ExportService;
+import io.videofirst.capture.service.SearchService;
+import io.videofirst.capture.service.StatsService;
 import io.videofirst.capture.service.UploadService;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -40,7 +64,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Main controller which is used to capture video / test data, then  upload when finished.
@@ -52,13 +78,104 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class CaptureController {
 
+    // Constants
+
+    public static final String HEADER_NEXT_CURSOR = "X-Next-Cursor";
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+
+    private static final int FLUSH_EVERY = 100; // captures
+    private static final DateTimeFormatter EXPORT_FILENAME_FORMAT = DateTimeFormatter
+        .ofPattern("'captures_'yyyy-MM-dd_HH-mm-ss");
+
+    // Injected fields
+
     private final CaptureService captureService;
     private final UploadService uploadService;
+    private final SearchService searchService;
+    private final StatsService statsService;
+    private final BulkService bulkService;
+    private final ExportService exportService;
+    private final ObjectMapper objectMapper;
 
+    /**
+     * List captures (all query parameters are optional).  If a page `limit` is set and there are
+     * more captures, then the cursor of the next page is returned in the `X-Next-Cursor` header.
+     */
     @GetMapping
-    public List<CaptureSummary> list() {
-        List<CaptureSummary> list = captureService.list();
-        return list;
+    public ResponseEntity<List<CaptureSummary>> list(CaptureQuery captureQuery) {
+        return pageResponse(captureService.list(captureQuery));
+    }
+
+    /**
+     * Stream all captures which match the query as newline delimited JSON (one capture summary per
+     * line).  Summaries are written to the response as they are read, so memory use doesn't grow
+     * with the number of captures.  The `limit` / `cursor` parameters are not used.
+     */
+    @GetMapping(value = "/stream", produces = MEDIA_TYPE_NDJSON)
+    public StreamingResponseBody stream(CaptureQuery captureQuery) {
+        Stream<CaptureSummary> captures = captureService
+            .stream(captureQuery.toBuilder().cursor(null).build());
+        ObjectWriter writer = objectMapper.writerFor(CaptureSummary.class)
+            .without(SerializationFeature.INDENT_OUTPUT)
+            .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return outputStream -> {
+            try (Stream<CaptureSummary> summaries = captures;
+                JsonGenerator generator = objectMapper.getFactory()
+                    .createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null); // newlines are written instead
+                Iterator<CaptureSummary> it = summaries.iterator();
+                for (int count = 1; it.hasNext(); count++) {
+                    writer.writeValue(generator, it.next());
+                    generator.writeRaw('\n');
+                    if (count % FLUSH_EVERY == 0) {
+                        generator.flush();
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Full-text search of the description, test error, test stack trace, meta values and test logs
+     * of captures e.g. `?q=login timeout`.  Captures which contain every word are returned, best
+     * match first.  The filter / `limit` / `cursor` parameters of `/captures` can also be used.
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<CaptureSummary>> search(@RequestParam("q") String q,
+        CaptureQuery captureQuery) {
+        return pageResponse(searchService.search(q, captureQuery));
+    }
+
+    /**
+     * Statistics of all captures, per project / feature and per day (the last `days` days, default
+     * 30) i.e. counts by test status / type and test duration percentiles.
+     */
+    @GetMapping("/stats")
+    public CaptureStats stats(@RequestParam(value = "days", required = false) Integer days) {
+        return statsService.stats(days);
+    }
+
+    /**
+     * Export the data files and videos of all captures which match the filter parameters of
+     * `/captures` as a `zip` (default) or `tar` archive e.g. `?project=Moon Rocket&format=tar`.
+     * The archive is streamed as it's written, so there's no limit to its size.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+        @RequestParam(value = "format", required = false) ExportFormat format,
+        CaptureQuery captureQuery) {
+        ExportFormat exportFormat = format != null ? format : ExportFormat.DEFAULT_EXPORT_FORMAT;
+        String filename = EXPORT_FILENAME_FORMAT.format(LocalDateTime.now()) + "."
+            + exportFormat.getExtension();
+        StreamingResponseBody body = outputStream -> {
+            exportService.export(captureQuery, exportFormat, outputStream);
+            outputStream.flush();
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+            .body(body);
     }
 
     @GetMapping("/{captureId}")
@@ -67,6 +184,24 @@ public class CaptureController {
         return capture;
     }
 
+    /**
+     * Return the video of a capture.  Supports `Range` requests (so players can seek straight away)
+     * and `If-None-Match` (the ETag changes if the video changes).  The video is sent straight
+     * from disk, so it's never loaded into memory.
+     */
+    @GetMapping("/{captureId}/video")
+    public void video(@PathVariable final String captureId, HttpServletRequest request,
+        HttpServletResponse response) throws IOException {
+        Capture capture = captureService.select(captureId);
+        File videoFile = capture.getVideoFile();
+        if (videoFile == null || !videoFile.isFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND,
+                "Cannot find the video of capture - " + captureId);
+            return;
+        }
+        VideoFileResponse.write(videoFile, capture.getFormat(), request, response);
+    }
+
     @PostMapping("/record")
     public CaptureStatus record(
         @RequestBody(required = false) CaptureRecordParams captureRecordParams) {
@@ -105,6 +240,32 @@ public class CaptureController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * Delete captures in bulk - either the `ids` of the request body or (if no IDs are set) every
+     * capture which matches the filter parameters of `/captures`.  The deletion runs in the
+     * background - the returned job can be polled using `/captures/bulk/{jobId}`.
+     */
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<BulkJob> bulkDelete(
+        @RequestBody(required = false) BulkDeleteParams bulkDeleteParams,
+        CaptureQuery captureQuery) {
+        if (bulkDeleteParams == null) {
+            bulkDeleteParams = BulkDeleteParams.builder().build();
+        }
+        BulkJob job = bulkService.delete(bulkDeleteParams, captureQuery);
+        return ResponseEntity.accepted().body(job);
+    }
+
+    @GetMapping("/bulk")
+    public List<BulkJob> bulkStatus() {
+        return bulkService.status();
+    }
+
+    @GetMapping("/bulk/{jobId}")
+    public BulkJob bulkStatus(@PathVariable final String jobId) {
+        return bulkService.status(jobId);
+    }
+
     @PostMapping("/upload/{captureId}")
     public List<UploadStatus> uploadByCaptureId(@PathVariable final String captureId) {
         uploadService.upload(captureId);
@@ -116,4 +277,17 @@ public class CaptureController {
         return uploadService.status();
     }
 
+    // Private methods
+
+    /**
+     * Return the captures of a page, with the cursor of the next page (if any) in a header.
+     */
+    private ResponseEntity<List<CaptureSummary>> pageResponse(CapturePage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(HEADER_NEXT_CURSOR, page.getNextCursor());
+        }
+        return response.body(page.getCaptures());
+    }
+
 }
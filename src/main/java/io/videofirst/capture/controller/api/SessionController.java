@@ -0,0 +1,95 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.controller.api;
+
+import io.videofirst.capture.model.capture.CaptureRecordParams;
+import io.videofirst.capture.model.capture.CaptureStatus;
+import io.videofirst.capture.model.capture.CaptureStopParams;
+import io.videofirst.capture.service.SessionService;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Capture session controller - several captures can be recorded at the same time, each in its own
+ * session (with its own capture area, set using the `display` parameter).  The endpoints are the
+ * same as the record / stop / cancel / status endpoints of `/captures`.
+ *
+ * @author Bob Marks
+ */
+@RestController
+@RequestMapping("/sessions")
+@RequiredArgsConstructor
+public class SessionController {
+
+    // Injected fields
+
+    private final SessionService sessionService;
+
+    /**
+     * Return the status of every session (keyed by session ID).
+     */
+    @GetMapping
+    public Map<String, CaptureStatus> status() {
+        return sessionService.status();
+    }
+
+    @PostMapping("/{sessionId}/captures/record")
+    public CaptureStatus record(@PathVariable final String sessionId,
+        @RequestBody(required = false) CaptureRecordParams captureRecordParams) {
+        if (captureRecordParams == null) {
+            captureRecordParams = CaptureRecordParams.builder().build();
+        }
+        CaptureStatus status = sessionService.record(sessionId, captureRecordParams);
+        return status;
+    }
+
+    @PostMapping("/{sessionId}/captures/stop")
+    public CaptureStatus stop(@PathVariable final String sessionId,
+        @RequestBody(required = false) CaptureStopParams captureStopParams) {
+        if (captureStopParams == null) {
+            captureStopParams = CaptureStopParams.builder().build();
+        }
+        CaptureStatus status = sessionService.stop(sessionId, captureStopParams);
+        return status;
+    }
+
+    @PostMapping("/{sessionId}/captures/cancel")
+    public CaptureStatus cancel(@PathVariable final String sessionId) {
+        CaptureStatus status = sessionService.cancel(sessionId);
+        return status;
+    }
+
+    @GetMapping("/{sessionId}/captures/status")
+    public CaptureStatus status(@PathVariable final String sessionId) {
+        CaptureStatus status = sessionService.status(sessionId);
+        return status;
+    }
+
+}
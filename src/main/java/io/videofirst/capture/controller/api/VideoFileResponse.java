@@ -0,0 +1,163 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.controller.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+
+/**
+ * Writes a video file to an HTTP response, supporting single byte ranges (so players can seek
+ * straight away) and ETag validation.  The file is never read into the heap - if the servlet
+ * container supports sendfile (e.g. Tomcat's NIO connector) the container sends the file itself,
+ * otherwise it's copied using `FileChannel.transferTo`.
+ *
+ * @author Bob Marks
+ */
+class VideoFileResponse {
+
+    // Constants
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final String BYTES = "bytes";
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private VideoFileResponse() {
+    }
+
+    /**
+     * Write the whole video file (200), a byte range of it (206), not modified (304) or range not
+     * satisfiable (416), depending on the request headers.
+     */
+    static void write(File file, String format, HttpServletRequest request,
+        HttpServletResponse response) throws IOException {
+        long length = file.length();
+        long lastModified = file.lastModified();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES);
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // A range is ignored (whole file returned) if the file has changed since `If-Range`
+        long start = 0;
+        long end = length - 1;
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        List<HttpRange> ranges = ifRange == null || ifRange.equals(etag) ?
+            parseRanges(request.getHeader(HttpHeaders.RANGE)) : Collections.emptyList();
+        if (ranges.size() == 1) { // multiple ranges are rare, so the whole file is returned
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                start = length; // not satisfiable
+            }
+            if (start >= length || start > end) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES + " */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setHeader(HttpHeaders.CONTENT_RANGE,
+                BYTES + " " + start + "-" + end + "/" + length);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        }
+
+        long count = end - start + 1;
+        response.setContentType(getContentType(format));
+        response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(count));
+        if (count == 0 || HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1); // exclusive
+            return;
+        }
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+            for (long position = start; position <= end; ) {
+                long transferred = fileChannel.transferTo(position, end + 1 - position, channel);
+                if (transferred <= 0) {
+                    break; // file has been truncated
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    // Private methods
+
+    /**
+     * Returns true if an `If-None-Match` header matches an ETag (weak ETags also match).
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        return ifNoneMatch != null && (ifNoneMatch.trim().equals("*") || Arrays
+            .stream(ifNoneMatch.split(","))
+            .map(String::trim)
+            .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+            .anyMatch(etag::equals));
+    }
+
+    /**
+     * Parse a `Range` header - an invalid header is ignored (as per RFC 7233).
+     */
+    private static List<HttpRange> parseRanges(String range) {
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static String getContentType(String format) {
+        if ("avi".equalsIgnoreCase(format)) {
+            return "video/x-msvideo";
+        } else if ("mp4".equalsIgnoreCase(format)) {
+            return "video/mp4";
+        } else if ("webm".equalsIgnoreCase(format)) {
+            return "video/webm";
+        }
+        return DEFAULT_CONTENT_TYPE;
+    }
+
+}
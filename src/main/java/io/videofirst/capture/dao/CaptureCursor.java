@@ -0,0 +1,173 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao;
+
+import io.videofirst.capture.enums.CaptureSortField;
+import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.SortOrder;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.exception.InvalidParameterException;
+import io.videofirst.capture.model.capture.CaptureQuery;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Comparator;
+
+/**
+ * Static methods for sorting captures and for creating / parsing the opaque cursors which are used
+ * to page through them.
+ *
+ * A cursor encodes the sort field, sort order and the sort value + ID of the last capture of a
+ * page, so the next page starts directly after it (even if captures have been added / removed in
+ * the meantime).
+ *
+ * @author Bob Marks
+ */
+public class CaptureCursor {
+
+    // Constants
+
+    private static final String SEPARATOR = "\n";
+    private static final String VALUE_PREFIX = "="; // distinguishes empty strings from nulls
+
+    // Static methods
+
+    /**
+     * Return comparator for a sort field / order.  Nulls are always last and captures with the same
+     * sort value are then sorted by ID.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Comparator<CaptureSummary> comparator(CaptureSortField field, SortOrder order) {
+        Comparator<Comparable> valueOrder = (v1, v2) -> v1.compareTo(v2);
+        Comparator<String> idOrder = String::compareTo;
+        if (order == SortOrder.desc) {
+            valueOrder = valueOrder.reversed();
+            idOrder = idOrder.reversed();
+        }
+        return Comparator
+            .comparing((CaptureSummary summary) -> sortValue(field, summary),
+                Comparator.nullsLast(valueOrder))
+            .thenComparing(CaptureSummary::getId, Comparator.nullsLast(idOrder));
+    }
+
+    /**
+     * Create a cursor which points directly after the specified capture summary.
+     */
+    public static String encode(CaptureQuery query, CaptureSummary last) {
+        Comparable<?> value = sortValue(query.sort(), last);
+        String cursor = String.join(SEPARATOR, query.sort().name(), query.order().name(),
+            value != null ? VALUE_PREFIX + value : "", last.getId());
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode the cursor of a query into a "probe" capture summary, which only has its ID and sort
+     * field set (returns null if the query doesn't have a cursor).
+     */
+    public static CaptureSummary decode(CaptureQuery query) {
+        if (query.getCursor() == null || query.getCursor().trim().isEmpty()) {
+            return null;
+        }
+        try {
+            String cursor = new String(Base64.getUrlDecoder().decode(query.getCursor().trim()),
+                StandardCharsets.UTF_8);
+            String[] parts = cursor.split(SEPARATOR, -1);
+            if (parts.length != 4 || !query.sort().name().equals(parts[0]) || !query.order()
+                .name().equals(parts[1])) {
+                throw new InvalidParameterException(
+                    "Cursor [ " + query.getCursor() + " ] doesn't match the sort / order");
+            }
+            String value = parts[2].startsWith(VALUE_PREFIX) ? parts[2].substring(1) : null;
+            return probe(query.sort(), value, parts[3]);
+        } catch (InvalidParameterException ipEx) {
+            throw ipEx;
+        } catch (RuntimeException rEx) {
+            throw new InvalidParameterException("Invalid cursor [ " + query.getCursor() + " ]");
+        }
+    }
+
+    /**
+     * Return the value of the sort field of a capture summary.  Enums are sorted by name (the value
+     * stored by the H2 DAO) so every DAO pages in the same order.
+     */
+    public static Comparable<?> sortValue(CaptureSortField field, CaptureSummary summary) {
+        switch (field) {
+            case id:
+                return summary.getId();
+            case project:
+                return summary.getProject();
+            case feature:
+                return summary.getFeature();
+            case scenario:
+                return summary.getScenario();
+            case type:
+                return summary.getType() != null ? summary.getType().name() : null;
+            case finished:
+                return summary.getFinished();
+            case testStatus:
+                return summary.getTestStatus() != null ? summary.getTestStatus().name() : null;
+            default:
+                return summary.getStarted();
+        }
+    }
+
+    // Private static methods
+
+    private static CaptureSummary probe(CaptureSortField field, String value, String id) {
+        CaptureSummary probe = new CaptureSummary();
+        probe.setId(id);
+        if (value == null) {
+            return probe;
+        }
+        switch (field) {
+            case project:
+                probe.setProject(value);
+                break;
+            case feature:
+                probe.setFeature(value);
+                break;
+            case scenario:
+                probe.setScenario(value);
+                break;
+            case type:
+                probe.setType(CaptureType.valueOf(value));
+                break;
+            case finished:
+                probe.setFinished(LocalDateTime.parse(value));
+                break;
+            case testStatus:
+                probe.setTestStatus(TestStatus.valueOf(value));
+                break;
+            case started:
+                probe.setStarted(LocalDateTime.parse(value));
+                break;
+            default:
+                break; // id is already set
+        }
+        return probe;
+    }
+
+}
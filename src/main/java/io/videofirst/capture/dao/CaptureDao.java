@@ -24,8 +24,15 @@
 package io.videofirst.capture.dao;
 
 import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CapturePage;
+import io.videofirst.capture.model.capture.CaptureQuery;
 import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.model.capture.Upload;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Capture DAO.
@@ -39,19 +46,56 @@ public interface CaptureDao {
      */
     void save(Capture capture);
 
+    /**
+     * Save the upload state of an existing capture (without re-saving the rest of the capture).
+     */
+    void saveUpload(String captureId, Upload upload);
+
     /**
      * Find a capture using a capture ID.
      */
     Capture findById(String captureId);
 
+    /**
+     * Read a capture using a capture ID, without adding it to any cache (e.g. for background jobs
+     * which read every capture once).
+     */
+    Capture read(String captureId);
+
     /**
      * Return a list of CaptureSummary classes.
      */
     List<CaptureSummary> list();
 
+    /**
+     * Return a page of CaptureSummary classes which match a query.
+     */
+    CapturePage list(CaptureQuery query);
+
+    /**
+     * Return a lazy stream of all the CaptureSummary classes which match a query (the limit of the
+     * query is ignored).
+     */
+    Stream<CaptureSummary> stream(CaptureQuery query);
+
     /**
      * Delete capture using a capture ID.
      */
     void delete(String captureId);
 
+    /**
+     * Delete captures using their capture IDs.  The files of each capture are deleted using the
+     * executor (so they can be deleted in parallel) and `deleted` is called as each capture is
+     * deleted.  Indexes are only updated once, at the end.  Unknown IDs are ignored.  Returns the
+     * IDs of the captures which were deleted.
+     */
+    List<String> deleteAll(Collection<String> captureIds, Executor executor,
+        Consumer<String> deleted);
+
+    /**
+     * Add a listener which is notified whenever a capture is saved / deleted.  The listener is
+     * first notified of every existing capture (so it can build up its own state).
+     */
+    void addListener(CaptureListener listener);
+
 }
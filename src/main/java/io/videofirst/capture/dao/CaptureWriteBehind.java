@@ -0,0 +1,138 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao;
+
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.model.capture.Upload;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind layer in front of CaptureDao.saveUpload, as upload progress is saved frequently.
+ * Saves of the same capture ID within the configured window are coalesced, so only the most recent
+ * upload state is written.
+ *
+ * All writes happen on a single dedicated thread, so an older upload state can never overwrite a
+ * newer one.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+public class CaptureWriteBehind {
+
+    // Constants
+
+    private static final String THREAD_NAME = "capture-write-behind";
+
+    // Injected fields
+
+    private final CaptureDao captureDao;
+    private final long windowMillis;
+
+    // Private fields
+
+    private final Map<String, Upload> pending = new ConcurrentHashMap<>();
+    private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService writer = Executors
+        .newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    public CaptureWriteBehind(CaptureDao captureDao, CaptureConfig captureConfig) {
+        this.captureDao = captureDao;
+        this.windowMillis = captureConfig.getStorage().getWriteBehindInMillis();
+    }
+
+    /**
+     * Save the upload state of a capture at the end of the current window (a later save of the same
+     * capture within the window replaces this one).
+     */
+    public void saveUpload(String captureId, Upload upload) {
+        pending.put(captureId, upload);
+        if (scheduled.add(captureId)) {
+            writer.schedule(() -> write(captureId), windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Save the upload state of a capture now (replacing any pending save) and wait until it's
+     * written.
+     */
+    public void saveUploadNow(String captureId, Upload upload) {
+        pending.put(captureId, upload);
+        await(writer.submit(() -> write(captureId)));
+    }
+
+    /**
+     * Write all pending saves and stop the writer thread.
+     */
+    @PreDestroy
+    public void close() {
+        if (writer.isShutdown()) {
+            return;
+        }
+        await(writer.submit(() -> pending.keySet().forEach(this::write)));
+        writer.shutdownNow();
+    }
+
+    // Private methods
+
+    /**
+     * Write the pending save of a capture (if any) - only called on the writer thread.
+     */
+    private void write(String captureId) {
+        scheduled.remove(captureId);
+        Upload upload = pending.remove(captureId);
+        if (upload != null) {
+            try {
+                captureDao.saveUpload(captureId, upload);
+            } catch (RuntimeException rEx) {
+                log.warn("Error saving capture [ " + captureId + " ]", rEx);
+            }
+        }
+    }
+
+    private void await(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException iEx) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException eEx) {
+            log.warn("Error writing captures", eEx.getCause());
+        }
+    }
+
+}
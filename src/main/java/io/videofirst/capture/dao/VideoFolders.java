@@ -0,0 +1,122 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao;
+
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.enums.ShardPlacement;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * The video folders (shards) which captures are stored in i.e. the video folder, followed by any
+ * shard folders (e.g. on other volumes).  A capture (video + data) is always stored in a single
+ * video folder and stays there - the shard placement only decides where new captures go.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+public class VideoFolders {
+
+    // Private fields
+
+    private final List<File> roots;
+    private final ShardPlacement placement;
+    private final AtomicInteger nextRoot = new AtomicInteger();
+
+    public VideoFolders(CaptureConfig captureConfig) {
+        StorageConfig storageConfig = captureConfig.getStorage();
+        List<File> roots = new ArrayList<>();
+        roots.add(storageConfig.getVideoFolder());
+        for (File shardFolder : storageConfig.getShardFolders()) {
+            if (!roots.contains(shardFolder)) {
+                roots.add(shardFolder);
+            }
+        }
+        this.roots = Collections.unmodifiableList(roots);
+        this.placement = storageConfig.getShardPlacement() != null ? storageConfig
+            .getShardPlacement() : ShardPlacement.DEFAULT_SHARD_PLACEMENT;
+        if (roots.size() > 1) {
+            log.info("Captures are placed (" + placement + ") across video folders " + roots);
+        }
+    }
+
+    /**
+     * Return all the video folders (the configured video folder is always first).
+     */
+    public List<File> getRoots() {
+        return roots;
+    }
+
+    /**
+     * Return the video folder which a new capture of a project should be stored in.
+     */
+    public File place(String project) {
+        if (roots.size() == 1) {
+            return roots.get(0);
+        }
+        switch (placement) {
+            case roundRobin:
+                return roots.get(Math.floorMod(nextRoot.getAndIncrement(), roots.size()));
+            case projectHash:
+                return roots.get(Math.floorMod(project != null ? project.hashCode() : 0,
+                    roots.size()));
+            default:
+                return roots.stream().max(Comparator.comparingLong(File::getUsableSpace)).get();
+        }
+    }
+
+    /**
+     * Return the video folder which contains a file (relative to the video folders) or null if no
+     * video folder contains it.
+     */
+    public File find(String folder, String filename) {
+        for (File root : roots) {
+            if (new File(new File(root, folder != null ? folder : ""), filename).isFile()) {
+                return root;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the video folder which a file is under (or null if it isn't under any of them).
+     */
+    public File rootOf(File file) {
+        for (File dir = file.getParentFile(); dir != null; dir = dir.getParentFile()) {
+            if (roots.contains(dir)) {
+                return dir;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.filesystem;
+
+import io.videofirst.capture.enums.DurabilityPolicy;
+import io.videofirst.capture.exception.VideoConfigurationException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes files atomically i.e. the bytes are written to a temporary file in the same folder, which
+ * is forced to disk (unless the DurabilityPolicy is `none`) and then moved over the target file.
+ * This means a crash mid-write never leaves a truncated or torn file.
+ *
+ * For the `fsync` policy every write forces its own temporary file.  For the `group` policy writers
+ * queue their temporary file and wait - a single background thread forces every file queued in the
+ * last window in one pass, after which each writer moves its file into place.  The folders of the
+ * moved files are forced in the next pass.  Also used outside the DAO for other files which must
+ * survive a crash (e.g. the recording files of the RecoveryService).
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+public class AtomicFileWriter implements Closeable {
+
+    // Constants
+
+    private static final String TEMP_PREFIX = ".";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String THREAD_NAME = "capture-group-commit";
+    private static final long STALE_TEMP_FILE_MILLIS = 60 * 1000;
+
+    // Injected fields
+
+    private final DurabilityPolicy policy;
+
+    // Private fields
+
+    private final Set<Path> unforcedFolders = ConcurrentHashMap.newKeySet(); // of moved files
+    private final ScheduledExecutorService groupCommitter;
+    private final Object lock = new Object();
+    private Batch batch = new Batch(); // files waiting for the next group commit (guarded by lock)
+    private boolean closed; // guarded by lock
+
+    public AtomicFileWriter(DurabilityPolicy policy, long groupCommitMillis) {
+        this.policy = policy;
+        if (policy == DurabilityPolicy.group) {
+            if (groupCommitMillis <= 0) {
+                throw new VideoConfigurationException("Invalid group commit interval [ "
+                    + groupCommitMillis + " ] - `capture_config.storage.groupCommitInMillis` must "
+                    + "be greater than 0 when `durability` is `group`");
+            }
+            groupCommitter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            groupCommitter.scheduleWithFixedDelay(this::groupCommit, groupCommitMillis,
+                groupCommitMillis, TimeUnit.MILLISECONDS);
+        } else {
+            groupCommitter = null;
+        }
+    }
+
+    /**
+     * Atomically replace the contents of a file.  For the `group` policy this waits until the next
+     * group commit.
+     */
+    public void write(Path file, byte[] bytes) throws IOException {
+        Path temp = file.resolveSibling(TEMP_PREFIX + file.getFileName() + "."
+            + Long.toHexString(ThreadLocalRandom.current().nextLong()) + TEMP_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (policy == DurabilityPolicy.fsync) {
+                    channel.force(true);
+                }
+            }
+            if (policy == DurabilityPolicy.group) {
+                awaitGroupCommit(temp);
+            }
+            move(temp, file);
+        } catch (IOException ioEx) {
+            Files.deleteIfExists(temp);
+            throw ioEx;
+        }
+
+        if (policy == DurabilityPolicy.fsync) {
+            forceFolder(file.getParent()); // makes the move durable
+        } else if (policy == DurabilityPolicy.group) {
+            unforcedFolders.add(file.getParent());
+        }
+    }
+
+    /**
+     * Force every temporary file queued since the last group commit to disk (in one pass) and
+     * release their writers, then force the folders of the files moved since the last pass.
+     */
+    void groupCommit() {
+        Batch committing;
+        synchronized (lock) {
+            committing = batch;
+            batch = new Batch();
+        }
+        committing.force();
+
+        List<Path> folders = new ArrayList<>();
+        for (Iterator<Path> it = unforcedFolders.iterator(); it.hasNext(); ) {
+            folders.add(it.next());
+            it.remove();
+        }
+        folders.forEach(this::forceFolder);
+    }
+
+    /**
+     * Returns true if a file is a temporary file which was left behind e.g. by a crash.
+     */
+    boolean isStaleTempFile(Path file) {
+        String filename = file.getFileName().toString();
+        return filename.startsWith(TEMP_PREFIX) && filename.endsWith(TEMP_SUFFIX)
+            && file.toFile().lastModified() < System.currentTimeMillis() - STALE_TEMP_FILE_MILLIS;
+    }
+
+    @Override
+    public void close() {
+        if (groupCommitter != null) {
+            synchronized (lock) {
+                closed = true; // later writes force their own file
+            }
+            groupCommitter.shutdownNow();
+            groupCommit();
+        }
+    }
+
+    // Private methods
+
+    /**
+     * Queue a temporary file for the next group commit and wait until it has been forced (or force
+     * it straight away if this writer has been closed).
+     */
+    private void awaitGroupCommit(Path temp) throws IOException {
+        Batch joined;
+        synchronized (lock) {
+            joined = closed ? null : batch;
+            if (joined != null) {
+                joined.files.add(temp);
+            }
+        }
+        if (joined == null) {
+            force(temp);
+            return;
+        }
+        try {
+            joined.forced.await();
+        } catch (InterruptedException iEx) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for group commit of [ " + temp
+                + " ]");
+        }
+        if (joined.failed.contains(temp)) {
+            throw new IOException("Unable to force [ " + temp + " ] to disk");
+        }
+    }
+
+    private static void force(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException amnsEx) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Force a folder to disk, so the files moved into it are durable (not supported on all
+     * platforms e.g. Windows, where this does nothing).
+     */
+    private void forceFolder(Path folder) {
+        try (FileChannel channel = FileChannel.open(folder, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ioEx) {
+            log.trace("Unable to force folder [ " + folder + " ] - " + ioEx.getMessage());
+        }
+    }
+
+    // Private classes
+
+    /**
+     * The temporary files of a single group commit.
+     */
+    private static class Batch {
+
+        private final Set<Path> files = new HashSet<>(); // guarded by the writer lock
+        private final Set<Path> failed = ConcurrentHashMap.newKeySet();
+        private final CountDownLatch forced = new CountDownLatch(1);
+
+        /**
+         * Force every file of the batch and release the writers waiting for it.
+         */
+        private void force() {
+            try {
+                for (Path file : files) {
+                    try {
+                        AtomicFileWriter.force(file);
+                    } catch (IOException ioEx) {
+                        log.warn("Unable to force file [ " + file + " ] to disk - "
+                            + ioEx.getMessage());
+                        failed.add(file);
+                    }
+                }
+            } finally {
+                forced.countDown();
+            }
+        }
+
+    }
+
+}
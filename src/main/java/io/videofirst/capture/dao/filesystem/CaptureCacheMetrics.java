@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.filesystem;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the statistics of the FileSystemCaptureDao capture cache via the actuator `/metrics`
+ * endpoint.
+ *
+ * @author Bob Marks
+ */
+@Component
+@ConditionalOnProperty(name = StorageConfig.PROPERTY_DAO,
+    havingValue = StorageConfig.DAO_FILESYSTEM, matchIfMissing = true)
+@RequiredArgsConstructor
+public class CaptureCacheMetrics implements PublicMetrics {
+
+    // Constants
+
+    private static final String PREFIX = "cache.captures.";
+
+    // Injected fields
+
+    private final FileSystemCaptureDao captureDao;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        CacheStats stats = captureDao.getCacheStats();
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>(PREFIX + "size", captureDao.getCacheSize()));
+        metrics.add(new Metric<>(PREFIX + "hit.count", stats.hitCount()));
+        metrics.add(new Metric<>(PREFIX + "miss.count", stats.missCount()));
+        metrics.add(new Metric<>(PREFIX + "hit.ratio", stats.hitRate()));
+        metrics.add(new Metric<>(PREFIX + "eviction.count", stats.evictionCount()));
+        return metrics;
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.filesystem;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Watches a capture folder (recursively) using a `java.nio.file.WatchService` so that captures
+ * which are added / changed / removed outside of the application are picked up.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+class CaptureFolderWatcher implements Runnable, Closeable {
+
+    // Constants
+
+    private static final String THREAD_NAME = "capture-folder-watcher";
+
+    // Injected fields
+
+    private final Path root;
+    private final Predicate<Path> dataFileFilter;
+    private final Callback callback;
+
+    // Private fields
+
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    private WatchService watchService;
+    private volatile boolean running;
+
+    CaptureFolderWatcher(Path root, Predicate<Path> dataFileFilter, Callback callback) {
+        this.root = root;
+        this.dataFileFilter = dataFileFilter;
+        this.callback = callback;
+    }
+
+    /**
+     * Register the folder tree and start watching it in a (daemon) background thread.
+     */
+    synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        watchService = root.getFileSystem().newWatchService();
+        registerAll(root);
+        running = true;
+
+        Thread thread = new Thread(this, THREAD_NAME);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Register a folder and all its sub-folders (hidden folders are ignored).
+     */
+    void registerAll(Path start) {
+        if (watchService == null) {
+            return;
+        }
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs)
+                    throws IOException {
+                    if (!dir.equals(root) && isHidden(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE),
+                        dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException | ClosedWatchServiceException e) {
+            log.warn("Error registering folder [ " + start + " ] with watch service", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Error closing watch service", e);
+            }
+        }
+        keys.clear();
+    }
+
+    // Methods from `Runnable`
+
+    @Override
+    public void run() {
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = keys.get(key);
+            if (dir != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    try {
+                        handleEvent(dir, event);
+                    } catch (RuntimeException e) {
+                        log.warn("Error handling watch event [ " + event.kind() + " ] in [ " + dir
+                            + " ]", e);
+                    }
+                }
+            }
+
+            if (!key.reset()) {
+                keys.remove(key);
+                if (dir != null) {
+                    callback.folderDeleted(dir);
+                }
+            }
+        }
+    }
+
+    // Private methods
+
+    private void handleEvent(Path dir, WatchEvent<?> event) {
+        WatchEvent.Kind<?> kind = event.kind();
+        if (kind == OVERFLOW) {
+            callback.overflow();
+            return;
+        }
+
+        Path path = dir.resolve((Path) event.context());
+        if (kind == ENTRY_CREATE && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            if (!isHidden(path)) {
+                // Files may have been created before the folder was registered so scan it too
+                registerAll(path);
+                callback.folderCreated(path);
+            }
+        } else if (dataFileFilter.test(path)) {
+            if (kind == ENTRY_DELETE) {
+                callback.dataFileDeleted(path.toFile());
+            } else {
+                callback.dataFileChanged(path.toFile());
+            }
+        }
+    }
+
+    private boolean isHidden(Path dir) {
+        Path fileName = dir.getFileName();
+        return fileName != null && fileName.toString().startsWith(".");
+    }
+
+    /**
+     * Callback which is notified of changes to the capture folder.
+     */
+    interface Callback {
+
+        void dataFileChanged(File dataFile);
+
+        void dataFileDeleted(File dataFile);
+
+        void folderCreated(Path folder);
+
+        void folderDeleted(Path folder);
+
+        void overflow();
+
+    }
+
+}
@@ -0,0 +1,438 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.filesystem;
+
+import io.videofirst.capture.dao.CaptureCursor;
+import io.videofirst.capture.dao.CaptureListener;
+import io.videofirst.capture.enums.CaptureSortField;
+import io.videofirst.capture.enums.SortOrder;
+import io.videofirst.capture.model.capture.CapturePage;
+import io.videofirst.capture.model.capture.CaptureQuery;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.Value;
+
+/**
+ * Thread-safe, in-memory index of capture summaries (and the data files they were read from).
+ * This means listing captures doesn't require the video folder to be walked and every JSON file
+ * parsed.
+ *
+ * As well as the main index (capture ID to entry) the following secondary indexes are maintained
+ * so captures can be queried without scanning every entry: -
+ *
+ * 1. All summaries sorted by the default order (most recent first).
+ * 2. Capture IDs by project, feature, scenario, test status and type.
+ *
+ * @author Bob Marks
+ */
+class CaptureIndex {
+
+    // Constants
+
+    /**
+     * Most recent captures first (captures without a started timestamp go at the end).
+     */
+    static final Comparator<CaptureSummary> LATEST_FIRST = CaptureCursor
+        .comparator(CaptureSortField.started, SortOrder.desc);
+
+    /**
+     * If the smallest matching secondary index has fewer entries than this fraction of the whole
+     * index then sort those entries, rather than walking the default order.
+     */
+    private static final int SELECTIVE_FRACTION = 8;
+
+    // Private fields
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final NavigableSet<CaptureSummary> latestFirst = new ConcurrentSkipListSet<>(
+        LATEST_FIRST);
+    private final Map<Key, Map<Object, Set<String>>> keyIndexes = new EnumMap<>(Key.class);
+    private final AtomicLong modCount = new AtomicLong(); // changes whenever the index changes
+    private final List<CaptureListener> listeners = new CopyOnWriteArrayList<>();
+
+    CaptureIndex() {
+        for (Key key : Key.values()) {
+            keyIndexes.put(key, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Add / replace a capture summary in the index.
+     */
+    void put(CaptureSummary summary, File dataFile) {
+        put(summary, dataFile, dataFile.lastModified(), dataFile.length());
+    }
+
+    /**
+     * Add / replace a capture summary in the index, using the last modified / length of the data
+     * file at the time it was read (so a concurrent change is never marked as current).
+     */
+    synchronized void put(CaptureSummary summary, File dataFile, long lastModified, long length) {
+        Entry entry = new Entry(summary, dataFile, lastModified, length);
+        Entry old = entries.put(summary.getId(), entry);
+        if (old != null) {
+            unlink(old.getSummary());
+        }
+        link(summary);
+        modCount.incrementAndGet();
+        if (!listeners.isEmpty()) {
+            long sizeInBytes = entry.getSizeInBytes();
+            listeners.forEach(listener -> listener.captureSaved(summary, sizeInBytes));
+        }
+    }
+
+    /**
+     * Remove a capture summary from the index.
+     */
+    synchronized void remove(String captureId) {
+        Entry old = entries.remove(captureId);
+        if (old != null) {
+            unlink(old.getSummary());
+            modCount.incrementAndGet();
+            listeners.forEach(listener -> listener.captureDeleted(captureId));
+        }
+    }
+
+    /**
+     * Remove many capture summaries from the index (holding the lock once).
+     */
+    synchronized void removeAll(Collection<String> captureIds) {
+        captureIds.forEach(this::remove);
+    }
+
+    /**
+     * Add a listener, which is first notified of every indexed capture.
+     */
+    synchronized void addListener(CaptureListener listener) {
+        entries.values()
+            .forEach(entry -> listener.captureSaved(entry.getSummary(), entry.getSizeInBytes()));
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove entries which live under the specified folder but whose data file no longer exists
+     * e.g. when a capture folder is deleted outside of the application.
+     */
+    void removeMissingUnder(Path folder) {
+        removeMissingUnder(Collections.singleton(folder));
+    }
+
+    /**
+     * Remove entries which live under any of the specified folders but whose data file no longer
+     * exists.
+     */
+    void removeMissingUnder(Set<Path> folders) {
+        removeMissingUnder(folders, Collections.emptySet());
+    }
+
+    /**
+     * Remove entries which live under any of the specified folders but whose data file no longer
+     * exists, apart from the ignored capture IDs (e.g. captures which are being deleted in bulk).
+     */
+    void removeMissingUnder(Set<Path> folders, Set<String> ignoredIds) {
+        for (Entry entry : entries.values()) {
+            if (ignoredIds.contains(entry.getSummary().getId())) {
+                continue;
+            }
+            for (Path parent = entry.getDataFile().toPath().getParent(); parent != null;
+                parent = parent.getParent()) {
+                if (folders.contains(parent)) {
+                    if (!entry.getDataFile().exists()) {
+                        remove(entry.getSummary().getId());
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the capture summary for a capture ID (or null if it isn't indexed).
+     */
+    CaptureSummary get(String captureId) {
+        Entry entry = entries.get(captureId);
+        return entry != null ? entry.getSummary() : null;
+    }
+
+    /**
+     * Return the data file for a capture ID (or null if it isn't indexed).
+     */
+    File getDataFile(String captureId) {
+        Entry entry = entries.get(captureId);
+        return entry != null ? entry.getDataFile() : null;
+    }
+
+    /**
+     * Returns true if the data file is indexed and hasn't changed on disk since it was indexed.
+     */
+    boolean isCurrent(String captureId, File dataFile) {
+        Entry entry = entries.get(captureId);
+        return entry != null && entry.getDataFile().equals(dataFile)
+            && entry.getLastModified() == dataFile.lastModified()
+            && entry.getLength() == dataFile.length();
+    }
+
+    /**
+     * Return all indexed capture summaries, most recent first.
+     */
+    List<CaptureSummary> list() {
+        return latestFirst.stream().collect(Collectors.toList());
+    }
+
+    /**
+     * Return a page of capture summaries which match a query.
+     */
+    CapturePage query(CaptureQuery query) {
+        Integer limit = query.limit();
+        Stream<CaptureSummary> matches = stream(query);
+        if (limit == null) {
+            return new CapturePage(matches.collect(Collectors.toList()), null);
+        }
+
+        // Read 1 more than the limit to find out if there's another page
+        List<CaptureSummary> captures = matches.limit(limit + 1).collect(Collectors.toList());
+        if (captures.size() <= limit) {
+            return new CapturePage(captures, null);
+        }
+        captures = captures.subList(0, limit);
+        return new CapturePage(captures,
+            CaptureCursor.encode(query, captures.get(captures.size() - 1)));
+    }
+
+    /**
+     * Return a lazy stream of all the capture summaries which match a query (in sort order and
+     * starting after the cursor, if set).  The limit of the query is ignored.
+     */
+    Stream<CaptureSummary> stream(CaptureQuery query) {
+        Comparator<CaptureSummary> order = CaptureCursor.comparator(query.sort(), query.order());
+        CaptureSummary after = CaptureCursor.decode(query);
+
+        Collection<String> smallest = smallestKeyIndex(query);
+        Stream<CaptureSummary> candidates;
+        if (query.isLatestFirst() && (smallest == null
+            || smallest.size() > entries.size() / SELECTIVE_FRACTION)) {
+            // Walk the default order (only the started date range is visited)
+            candidates = latestFirstRange(query, after).stream();
+        } else {
+            // Sort the (hopefully small) set of candidates
+            Collection<String> ids = smallest != null ? smallest : entries.keySet();
+            candidates = ids.stream()
+                .map(this::get)
+                .filter(Objects::nonNull)
+                .filter(summary -> after == null || order.compare(summary, after) > 0)
+                .sorted(order);
+        }
+        return candidates.filter(query::matches);
+    }
+
+    /**
+     * Return a snapshot of the indexed capture IDs.
+     */
+    Set<String> ids() {
+        return new HashSet<>(entries.keySet());
+    }
+
+    /**
+     * Return a weakly consistent view of all the index entries.
+     */
+    Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * Return a count which changes every time an entry is added / replaced / removed.
+     */
+    long getModCount() {
+        return modCount.get();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    synchronized void clear() {
+        for (String captureId : entries.keySet()) {
+            listeners.forEach(listener -> listener.captureDeleted(captureId));
+        }
+        entries.clear();
+        latestFirst.clear();
+        keyIndexes.values().forEach(Map::clear);
+        modCount.incrementAndGet();
+    }
+
+    // Private methods
+
+    private void link(CaptureSummary summary) {
+        latestFirst.add(summary);
+        for (Key key : Key.values()) {
+            Object value = key.getValue(summary);
+            if (value != null) {
+                keyIndexes.get(key)
+                    .computeIfAbsent(value, v -> ConcurrentHashMap.newKeySet())
+                    .add(summary.getId());
+            }
+        }
+    }
+
+    private void unlink(CaptureSummary summary) {
+        latestFirst.remove(summary);
+        for (Key key : Key.values()) {
+            Object value = key.getValue(summary);
+            if (value != null) {
+                Set<String> ids = keyIndexes.get(key).get(value);
+                if (ids != null) {
+                    ids.remove(summary.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the smallest set of IDs from the secondary indexes which match the filters of a query
+     * (or null if the query doesn't filter on any indexed key).
+     */
+    private Collection<String> smallestKeyIndex(CaptureQuery query) {
+        Collection<String> smallest = null;
+        for (Key key : Key.values()) {
+            Object value = key.getQueryValue(query);
+            if (value != null) {
+                Set<String> ids = keyIndexes.get(key).get(value);
+                if (ids == null) {
+                    return Collections.emptySet();
+                }
+                if (smallest == null || ids.size() < smallest.size()) {
+                    smallest = ids;
+                }
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Return the part of the default order which is inside the started date range of a query and
+     * after the cursor (if set).
+     */
+    private NavigableSet<CaptureSummary> latestFirstRange(CaptureQuery query,
+        CaptureSummary after) {
+        CaptureSummary lower = after; // exclusive
+        if (query.getStartedTo() != null) {
+            // Probe sorts directly before any capture started at (or before) `startedTo`
+            CaptureSummary probe = new CaptureSummary();
+            probe.setStarted(query.getStartedTo().plusNanos(1));
+            if (lower == null || LATEST_FIRST.compare(probe, lower) > 0) {
+                lower = probe;
+            }
+        }
+
+        CaptureSummary upper = null; // exclusive
+        if (query.getStartedFrom() != null) {
+            // Probe sorts directly after any capture started at `startedFrom`
+            upper = new CaptureSummary();
+            upper.setStarted(query.getStartedFrom());
+        }
+
+        if (lower != null && upper != null) {
+            if (LATEST_FIRST.compare(lower, upper) >= 0) {
+                return Collections.emptyNavigableSet();
+            }
+            return latestFirst.subSet(lower, false, upper, false);
+        } else if (lower != null) {
+            return latestFirst.tailSet(lower, false);
+        } else if (upper != null) {
+            return latestFirst.headSet(upper, false);
+        }
+        return latestFirst;
+    }
+
+    /**
+     * Keys which have a secondary index.
+     */
+    private enum Key {
+
+        project(CaptureSummary::getProject, CaptureQuery::getProject),
+        feature(CaptureSummary::getFeature, CaptureQuery::getFeature),
+        scenario(CaptureSummary::getScenario, CaptureQuery::getScenario),
+        testStatus(CaptureSummary::getTestStatus, CaptureQuery::getTestStatus),
+        type(CaptureSummary::getType, CaptureQuery::getType);
+
+        private final Function<CaptureSummary, Object> summaryValue;
+        private final Function<CaptureQuery, Object> queryValue;
+
+        Key(Function<CaptureSummary, Object> summaryValue,
+            Function<CaptureQuery, Object> queryValue) {
+            this.summaryValue = summaryValue;
+            this.queryValue = queryValue;
+        }
+
+        Object getValue(CaptureSummary summary) {
+            return summaryValue.apply(summary);
+        }
+
+        Object getQueryValue(CaptureQuery query) {
+            return queryValue.apply(query);
+        }
+
+    }
+
+    /**
+     * Immutable index entry.
+     */
+    @Value
+    static class Entry {
+
+        private final CaptureSummary summary;
+        private final File dataFile;
+        private final long lastModified;
+        private final long length;
+
+        /**
+         * Return the size of the data file (when indexed) plus the video file, which lives in the
+         * same folder.
+         */
+        long getSizeInBytes() {
+            return length + new File(dataFile.getParentFile(),
+                summary.getId() + "." + summary.getFormat()).length();
+        }
+
+    }
+
+}
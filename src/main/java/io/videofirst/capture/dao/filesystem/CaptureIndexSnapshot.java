@@ -0,0 +1,204 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.filesystem;
+
+import io.videofirst.capture.dao.filesystem.CaptureIndex.Entry;
+import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compact binary snapshot of the capture index, so at startup the index can be reloaded rather
+ * than rebuilt by parsing every data file.  The snapshot file contains: -
+ *
+ * 1. A header and format version.
+ * 2. A last-modified watermark i.e. the time the snapshot was taken.  Only folders which have been
+ *    modified since the watermark need to be reconciled at startup.
+ * 3. The index entries (capture summary + data file path, last modified and length).
+ * 4. A CRC32 checksum of everything before it.
+ *
+ * If the snapshot is missing, corrupt or from a different version then it's ignored (and the
+ * index is rebuilt by the DAO).
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+class CaptureIndexSnapshot {
+
+    // Constants
+
+    static final String INDEX_FOLDER = ".vf-capture";
+    static final String SNAPSHOT_FILE = "capture-index.snapshot";
+
+    private static final String HEADER = "vf-capture-index";
+    private static final int VERSION = 1;
+
+    // Injected fields
+
+    private final File videoFolder;
+    private final File snapshotFile;
+
+    CaptureIndexSnapshot(File videoFolder) {
+        this.videoFolder = videoFolder;
+        this.snapshotFile = new File(new File(videoFolder, INDEX_FOLDER), SNAPSHOT_FILE);
+    }
+
+    /**
+     * Load the snapshot into an empty index.  Returns the watermark of the snapshot or -1 if it
+     * can't be loaded (in which case the index is left empty).
+     */
+    long load(CaptureIndex captureIndex) {
+        if (!snapshotFile.exists()) {
+            log.info("Capture index snapshot [ " + snapshotFile + " ] doesn't exist");
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+            new BufferedInputStream(new FileInputStream(snapshotFile)), crc))) {
+            if (!HEADER.equals(in.readUTF()) || in.readInt() != VERSION) {
+                log.info("Capture index snapshot [ " + snapshotFile + " ] has a different version");
+                return -1;
+            }
+            long watermark = in.readLong();
+            while (in.readBoolean()) {
+                File dataFile = new File(videoFolder, in.readUTF());
+                long lastModified = in.readLong();
+                long length = in.readLong();
+                captureIndex.put(readSummary(in), dataFile, lastModified, length);
+            }
+            long checksum = crc.getValue();
+            if (in.readLong() == checksum) {
+                return watermark;
+            }
+            log.warn("Capture index snapshot [ " + snapshotFile + " ] has an invalid checksum");
+        } catch (IOException | RuntimeException e) {
+            log.warn("Capture index snapshot [ " + snapshotFile + " ] is corrupt - " + e
+                .getMessage());
+        }
+        captureIndex.clear();
+        return -1;
+    }
+
+    /**
+     * Write a snapshot of the index.  The watermark is taken before the entries are read, so a
+     * change which is made while the snapshot is being written is always after the watermark.  A
+     * temporary file is written first and then moved, so a crash never leaves a half written
+     * snapshot.
+     */
+    synchronized void write(CaptureIndex captureIndex) throws IOException {
+        long watermark = System.currentTimeMillis();
+        File tempFile = new File(snapshotFile.getParentFile(), SNAPSHOT_FILE + ".tmp");
+        snapshotFile.getParentFile().mkdirs();
+        CRC32 crc = new CRC32();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            new CheckedOutputStream(new FileOutputStream(tempFile), crc)))) {
+            out.writeUTF(HEADER);
+            out.writeInt(VERSION);
+            out.writeLong(watermark);
+            for (Entry entry : captureIndex.entries()) {
+                out.writeBoolean(true);
+                out.writeUTF(relativePath(entry.getDataFile()));
+                out.writeLong(entry.getLastModified());
+                out.writeLong(entry.getLength());
+                writeSummary(out, entry.getSummary());
+            }
+            out.writeBoolean(false);
+            out.flush(); // so the checksum includes every byte
+            out.writeLong(crc.getValue());
+        }
+        Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Private methods
+
+    private void writeSummary(DataOutputStream out, CaptureSummary summary) throws IOException {
+        writeString(out, summary.getId());
+        writeString(out, summary.getType() != null ? summary.getType().name() : null);
+        out.writeBoolean(summary.getSid() != null);
+        if (summary.getSid() != null) {
+            out.writeLong(summary.getSid());
+        }
+        writeString(out, summary.getProject());
+        writeString(out, summary.getFeature());
+        writeString(out, summary.getScenario());
+        writeString(out, summary.getStarted() != null ? summary.getStarted().toString() : null);
+        writeString(out, summary.getFinished() != null ? summary.getFinished().toString() : null);
+        writeString(out, summary.getFormat());
+        writeString(out,
+            summary.getTestStatus() != null ? summary.getTestStatus().name() : null);
+    }
+
+    private CaptureSummary readSummary(DataInputStream in) throws IOException {
+        CaptureSummary summary = new CaptureSummary();
+        summary.setId(readString(in));
+        String type = readString(in);
+        summary.setType(type != null ? CaptureType.valueOf(type) : null);
+        summary.setSid(in.readBoolean() ? in.readLong() : null);
+        summary.setProject(readString(in));
+        summary.setFeature(readString(in));
+        summary.setScenario(readString(in));
+        String started = readString(in);
+        summary.setStarted(started != null ? LocalDateTime.parse(started) : null);
+        String finished = readString(in);
+        summary.setFinished(finished != null ? LocalDateTime.parse(finished) : null);
+        summary.setFormat(readString(in));
+        String testStatus = readString(in);
+        summary.setTestStatus(testStatus != null ? TestStatus.valueOf(testStatus) : null);
+        return summary;
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private String relativePath(File dataFile) {
+        return videoFolder.getAbsoluteFile().toPath()
+            .relativize(dataFile.getAbsoluteFile().toPath()).toString()
+            .replace(File.separatorChar, '/');
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.filesystem;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * Reads a CaptureSummary from a capture data file (in any storage codec format) using the Jackson
+ * streaming parser, so the (potentially large) test logs, stack trace, environment etc are never
+ * deserialised.
+ *
+ * Data files are written with the summary fields first, ending with `format` and followed by
+ * `folder`.  Older data files have `folder` before `format` (and `testStatus` near the end), so
+ * parsing stops at the first non-summary field after `format` only if `folder` hasn't been seen
+ * yet.  Otherwise the remaining values are skipped (not deserialised) until `testStatus` is found.
+ *
+ * @author Bob Marks
+ */
+class CaptureSummaryReader {
+
+    // Constants
+
+    private static final String FIELD_FOLDER = "folder";
+
+    /**
+     * Read the capture summary fields from a data file, using the mapper of the file's format.
+     */
+    static CaptureSummary read(File dataFile, ObjectMapper objectMapper) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(dataFile)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Capture data file must be a JSON object");
+            }
+
+            CaptureSummary summary = new CaptureSummary();
+            boolean formatRead = false;
+            boolean folderRead = false;
+            boolean testStatusRead = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken(); // move to value
+                switch (field) {
+                    case "id":
+                        summary.setId(read(parser, objectMapper, String.class));
+                        break;
+                    case "type":
+                        summary.setType(read(parser, objectMapper, CaptureType.class));
+                        break;
+                    case "sid":
+                        summary.setSid(read(parser, objectMapper, Long.class));
+                        break;
+                    case "project":
+                        summary.setProject(read(parser, objectMapper, String.class));
+                        break;
+                    case "feature":
+                        summary.setFeature(read(parser, objectMapper, String.class));
+                        break;
+                    case "scenario":
+                        summary.setScenario(read(parser, objectMapper, String.class));
+                        break;
+                    case "started":
+                        summary.setStarted(read(parser, objectMapper, LocalDateTime.class));
+                        break;
+                    case "finished":
+                        summary.setFinished(read(parser, objectMapper, LocalDateTime.class));
+                        break;
+                    case "format":
+                        summary.setFormat(read(parser, objectMapper, String.class));
+                        formatRead = true;
+                        break;
+                    case "testStatus":
+                        summary.setTestStatus(read(parser, objectMapper, TestStatus.class));
+                        testStatusRead = true;
+                        break;
+                    default:
+                        if ((formatRead && !folderRead) || (formatRead && testStatusRead)) {
+                            return summary; // no more summary fields
+                        }
+                        folderRead |= FIELD_FOLDER.equals(field);
+                        parser.skipChildren();
+                }
+            }
+            return summary;
+        }
+    }
+
+    // Private static methods
+
+    private static <T> T read(JsonParser parser, ObjectMapper objectMapper, Class<T> type)
+        throws IOException {
+        return objectMapper.readValue(parser, type);
+    }
+
+}
@@ -23,117 +23,375 @@
  */
 package io.videofirst.capture.dao.filesystem;
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.ser.DefaultSerializerProvider;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.dao.CaptureCursor;
 import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.dao.CaptureListener;
+import io.videofirst.capture.dao.VideoFolders;
+import io.videofirst.capture.enums.StorageCodec;
 import io.videofirst.capture.exception.VideoOpenException;
 import io.videofirst.capture.exception.VideoSaveException;
 import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CapturePage;
+import io.videofirst.capture.model.capture.CaptureQuery;
 import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.model.capture.Upload;
+import io.videofirst.capture.utils.VfCaptureUtils;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import lombok.Data;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 /**
  * File system implementation of the CaptureDao interface.
  *
+ * Captures can be spread across several video folders (shards - see VideoFolders).  Each shard has
+ * its own index, index snapshot and folder watcher.  Captures are found by asking each shard's
+ * index (which maps each capture ID to its data file), queries are run against every shard in
+ * parallel and their (sorted) results merged.
+ *
  * @author Bob Marks
  */
 @Slf4j
 @Component
+@ConditionalOnProperty(name = StorageConfig.PROPERTY_DAO,
+    havingValue = StorageConfig.DAO_FILESYSTEM, matchIfMissing = true)
 public class FileSystemCaptureDao implements CaptureDao {
 
     // Constants
 
     private static final String EXT_JSON = "json";
+    private static final String EXT_UPLOAD = "upload." + EXT_JSON; // upload state sidecar file
+    private static final int MIN_CACHE_WEIGHT = 1024; // bytes i.e. bounds number of cached captures
+    private static final long WATERMARK_SLACK_MILLIS = 2000; // allows for coarse folder timestamps
+    private static final String SNAPSHOT_THREAD_NAME = "capture-index-snapshot";
+    private static final String QUERY_THREAD_NAME = "capture-shard-query-";
 
     // Injected fields
 
-    private final ObjectMapper objectMapper;
-    private final File videoFolder;
+    private final StorageConfig storageConfig;
+    private final VideoFolders videoFolders;
 
     //  Private fields
 
-    private final Map<String, File> captureIdCache = new HashMap<>(); // cache
+    private final ObjectMapper jsonMapper; // copy, so REST JSON isn't affected
+    private final ObjectMapper writeMapper; // mapper of the configured storage codec
+    private final Map<String, ObjectMapper> readMappers = new HashMap<>(); // by file extension
+
+    private final Map<File, Shard> shards = new LinkedHashMap<>(); // by video folder
+    private final Cache<String, Capture> captureCache;
+    private final Set<String> deleting = ConcurrentHashMap.newKeySet(); // ignored by the watchers
+    private final AtomicFileWriter fileWriter;
+    private final ScheduledExecutorService snapshotWriter;
+    private final ExecutorService shardQueries; // null if there's only 1 shard
+
+    public FileSystemCaptureDao(ObjectMapper objectMapper, CaptureConfig captureConfig) {
+        this(objectMapper, captureConfig, new VideoFolders(captureConfig));
+    }
+
+    @Autowired
+    public FileSystemCaptureDao(ObjectMapper objectMapper, CaptureConfig captureConfig,
+        VideoFolders videoFolders) {
+        this.storageConfig = captureConfig.getStorage();
+        this.videoFolders = videoFolders;
+
+        // Data files in any format can be read, but are written using the configured codec
+        StorageCodec codec = storageConfig.getCodec();
+        jsonMapper = objectMapper.copy()
+            .configure(SerializationFeature.INDENT_OUTPUT, codec == StorageCodec.pretty);
+        readMappers.put(StorageCodec.json.getExtension(), jsonMapper);
+        readMappers.put(StorageCodec.smile.getExtension(),
+            binaryMapper(objectMapper, new SmileFactory()));
+        readMappers.put(StorageCodec.cbor.getExtension(),
+            binaryMapper(objectMapper, new CBORFactory()));
+        writeMapper = readMappers.get(codec.getExtension());
+
+        fileWriter = new AtomicFileWriter(storageConfig.getDurability(),
+            storageConfig.getGroupCommitInMillis());
+
+        // Captures are weighed by the size of their data file
+        captureCache = Caffeine.newBuilder()
+            .maximumWeight(storageConfig.getCache().getMaxSizeInKb() * 1024L)
+            .weigher((String id, Capture capture) -> (int) Math
+                .min(Integer.MAX_VALUE, Math.max(MIN_CACHE_WEIGHT, capture.getDataFile().length())))
+            .recordStats()
+            .build();
+
+        for (File root : videoFolders.getRoots()) {
+            shards.put(root, new Shard(root));
+        }
+        if (shards.size() > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            shardQueries = Executors.newFixedThreadPool(shards.size(), runnable -> {
+                Thread thread = new Thread(runnable,
+                    QUERY_THREAD_NAME + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            shardQueries = null;
+        }
+
+        long snapshotSecs = storageConfig.getIndexSnapshotInSecs();
+        if (snapshotSecs > 0) {
+            snapshotWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, SNAPSHOT_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotWriter.scheduleWithFixedDelay(this::writeSnapshot, snapshotSecs,
+                snapshotSecs, TimeUnit.SECONDS);
+        } else {
+            snapshotWriter = null;
+        }
+    }
+
+    /**
+     * Start watching the video folders for changes made outside of the application.
+     */
+    @PostConstruct
+    public void startWatching() {
+        shards.values().forEach(Shard::startWatching);
+    }
+
+    public void stopWatching() {
+        shards.values().forEach(shard -> shard.folderWatcher.close());
+    }
+
+    @PreDestroy
+    public void close() {
+        stopWatching();
+        if (snapshotWriter != null) {
+            snapshotWriter.shutdownNow();
+        }
+        if (shardQueries != null) {
+            shardQueries.shutdownNow();
+        }
+        writeSnapshot();
+        fileWriter.close(); // forces any outstanding group commit
+    }
+
+    /**
+     * Write a snapshot of the capture index of each shard (if it's changed since its last
+     * snapshot), so the indexes can be reloaded quickly when the application restarts.
+     */
+    public void writeSnapshot() {
+        shards.values().forEach(Shard::writeSnapshot);
+    }
+
+    /**
+     * Re-synchronise the capture indexes with the video folders e.g. if a folder has been changed
+     * in bulk.  Entries which are current are kept, so the indexes are never empty while this runs.
+     */
+    public void reindex() {
+        shards.values().forEach(Shard::reindex);
+    }
 
-    public FileSystemCaptureDao(ObjectMapper objectMapper,
-        @Value("${capture_config.storage.videoFolder}") File videoFolder) {
-        this.objectMapper = objectMapper;
-        this.videoFolder = videoFolder;
+    /**
+     * Return hit / miss / eviction statistics of the capture cache.
+     */
+    public CacheStats getCacheStats() {
+        return captureCache.stats();
+    }
 
-        objectMapper.enable(SerializationFeature.INDENT_OUTPUT); // FIXME (use property)?
+    /**
+     * Return the number of captures in the capture cache.
+     */
+    public long getCacheSize() {
+        return captureCache.estimatedSize();
     }
 
     @Override
     public void save(Capture capture) {
         try {
-            File file = getDataFile(capture);
-            FileOutputStream fileOutputStream = new FileOutputStream(file);
-            objectMapper.writeValue(fileOutputStream, capture);
+            // Upload state is saved in its own sidecar file
+            Shard shard = shardFor(capture);
+            File file = getFile(shard.root, capture, storageConfig.getCodec().getExtension());
+            fileWriter.write(file.toPath(),
+                writeMapper.writeValueAsBytes(capture.toBuilder().upload(null).build()));
+            if (capture.getUpload() != null) {
+                fileWriter.write(getUploadFile(file).toPath(),
+                    jsonMapper.writeValueAsBytes(capture.getUpload()));
+            }
+            File oldFile = shard.index.getDataFile(capture.getId());
+            shard.index.put(new CaptureSummary(capture), file);
+            if (oldFile != null && !oldFile.equals(file)) {
+                oldFile.delete(); // saved in a different format
+            }
         } catch (IOException e) {
             throw new VideoSaveException("Error saving capture - " + e.getMessage(), e);
+        } finally {
+            captureCache.invalidate(capture.getId());
         }
     }
 
     @Override
-    public Capture findById(String captureId) {
+    public void saveUpload(String captureId, Upload upload) {
+        Shard shard = shardOf(captureId);
+        File dataFile = shard != null ? shard.index.getDataFile(captureId) : null;
+        if (dataFile == null || !dataFile.exists()) {
+            throw new VideoSaveException("Cannot find a capture for ID - " + captureId);
+        }
+        try {
+            fileWriter.write(getUploadFile(dataFile).toPath(),
+                jsonMapper.writeValueAsBytes(upload));
+        } catch (IOException e) {
+            throw new VideoSaveException("Error saving capture upload - " + e.getMessage(), e);
+        }
 
-        // Check cache
-        if (captureIdCache.get(captureId) != null) {
-            try {
-                Capture capture = readVideoFromDataFile(captureIdCache.get(captureId),
-                    Capture.class);
-                if (capture != null && capture.getId().equals(captureId)) {
-                    return capture;
-                }
-            } catch (VideoOpenException voEx) {
-                log.warn("Error opening capture", voEx.getMessage());
-            }
+        // Update cached capture (rather than reading it again)
+        captureCache.asMap().computeIfPresent(captureId,
+            (id, capture) -> capture.toBuilder().upload(upload).build());
+    }
 
-            // remove from cache and continue
-            captureIdCache.remove(captureId);
+    @Override
+    public Capture findById(String captureId) {
+        Capture capture = captureCache.get(captureId, this::readCapture);
+        if (capture == null) {
+            Shard shard = shardOf(captureId);
+            if (shard != null) {
+                shard.unindex(captureId); // stale entry so remove it
+            }
+            throw new VideoOpenException("Cannot find a capture for ID - " + captureId);
         }
+        return capture.toBuilder().build(); // callers can change the returned capture
+    }
 
-        FindFile findFile = new FindFile();
-        findVideoFile(captureId, videoFolder, findFile);
-        if (findFile.getFile() == null) {
+    @Override
+    public Capture read(String captureId) {
+        Capture cached = captureCache.getIfPresent(captureId);
+        if (cached != null) {
+            return cached.toBuilder().build();
+        }
+        Capture capture = readCapture(captureId); // not added to the cache
+        if (capture == null) {
             throw new VideoOpenException("Cannot find a capture for ID - " + captureId);
         }
-
-        Capture capture = readVideoFromDataFile(findFile.getFile(), Capture.class);
-        captureIdCache.put(captureId, findFile.getFile());
         return capture;
     }
 
     @Override
     public List<CaptureSummary> list() {
-        // Iterate over file system and read all the files
-        List<CaptureSummary> videos = new ArrayList<CaptureSummary>();
-        findCaptureSummaries(videoFolder, videos);
-        return videos;
+        if (shards.size() == 1) {
+            return firstShard().index.list();
+        }
+        return shards.values().stream()
+            .flatMap(shard -> shard.index.list().stream())
+            .sorted(CaptureIndex.LATEST_FIRST)
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public CapturePage list(CaptureQuery query) {
+        if (shards.size() == 1) {
+            return firstShard().index.query(query);
+        }
+
+        // Query every shard in parallel (the cursor is checked first, so it fails straight away)
+        CaptureCursor.decode(query);
+        List<CompletableFuture<CapturePage>> queries = shards.values().stream()
+            .map(shard -> CompletableFuture.supplyAsync(() -> shard.index.query(query),
+                shardQueries))
+            .collect(Collectors.toList());
+        List<CapturePage> pages = queries.stream().map(FileSystemCaptureDao::join)
+            .collect(Collectors.toList());
+
+        // Each page has (up to) the limit, so the first `limit` of the merged pages are the page
+        Comparator<CaptureSummary> order = CaptureCursor.comparator(query.sort(), query.order());
+        List<CaptureSummary> captures = pages.stream()
+            .flatMap(page -> page.getCaptures().stream())
+            .sorted(order)
+            .collect(Collectors.toList());
+        Integer limit = query.limit();
+        boolean more = pages.stream().anyMatch(page -> page.getNextCursor() != null);
+        if (limit == null || captures.isEmpty() || (captures.size() <= limit && !more)) {
+            return new CapturePage(captures, null);
+        }
+        captures = captures.subList(0, Math.min(limit, captures.size()));
+        return new CapturePage(captures,
+            CaptureCursor.encode(query, captures.get(captures.size() - 1)));
+    }
+
+    @Override
+    public Stream<CaptureSummary> stream(CaptureQuery query) {
+        if (shards.size() == 1) {
+            return firstShard().index.stream(query);
+        }
+        List<Iterator<CaptureSummary>> iterators = shards.values().stream()
+            .map(shard -> shard.index.stream(query).iterator())
+            .collect(Collectors.toList());
+        MergingIterator merged = new MergingIterator(iterators,
+            CaptureCursor.comparator(query.sort(), query.order()));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged,
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
     @Override
     public void delete(String captureId) {
 
         Capture capture = findById(captureId);
-        if (capture != null) {
+        Shard shard = shardOf(captureId);
+        if (capture != null && shard != null) {
             // delete files, first
             File dir = capture.getDataFile().getParentFile();
             capture.getDataFile().delete();
             capture.getVideoFile().delete();
+            getUploadFile(capture.getDataFile()).delete();
+            shard.unindex(captureId);
 
             // now go up parent by parent until the capture dir ...
-            while (!dir.equals(videoFolder)) {
+            while (!dir.equals(shard.root)) {
                 // .. but if you encounter a folder with other child folders / files then return
                 if (dir.list().length != 0) {
                     return;
@@ -145,18 +403,71 @@ public class FileSystemCaptureDao implements CaptureDao {
 
     }
 
+    @Override
+    public List<String> deleteAll(Collection<String> captureIds, Executor executor,
+        Consumer<String> deleted) {
+
+        // delete the files of each capture in parallel (without reading the captures) ...
+        Map<String, File> dataFiles = new LinkedHashMap<>();
+        Map<String, Shard> captureShards = new HashMap<>();
+        for (String captureId : captureIds) {
+            Shard shard = shardOf(captureId);
+            File dataFile = shard != null ? shard.index.getDataFile(captureId) : null;
+            if (dataFile != null) {
+                dataFiles.put(captureId, dataFile);
+                captureShards.put(captureId, shard);
+            }
+        }
+        deleting.addAll(dataFiles.keySet()); // so the folder watchers don't unindex one by one
+        try {
+            List<CompletableFuture<String>> deletions = new ArrayList<>();
+            dataFiles.forEach((captureId, dataFile) -> deletions.add(CompletableFuture.supplyAsync(
+                () -> {
+                    if (!deleteFiles(captureId, dataFile)) {
+                        return null;
+                    }
+                    deleted.accept(captureId);
+                    return captureId;
+                }, executor)));
+            List<String> deletedIds = deletions.stream().map(CompletableFuture::join)
+                .filter(Objects::nonNull).collect(Collectors.toList());
+
+            // ... then update the indexes of each shard once and remove the now empty folders
+            Map<Shard, List<String>> deletedByShard = deletedIds.stream()
+                .collect(Collectors.groupingBy(captureShards::get, LinkedHashMap::new,
+                    Collectors.toList()));
+            captureCache.invalidateAll(deletedIds);
+            deletedByShard.forEach((shard, shardIds) -> {
+                shard.index.removeAll(shardIds);
+                VfCaptureUtils.deleteEmptyFolders(shardIds.stream()
+                    .map(captureId -> dataFiles.get(captureId).getParentFile())
+                    .collect(Collectors.toSet()), shard.root);
+            });
+            return deletedIds;
+        } finally {
+            deleting.removeAll(dataFiles.keySet());
+        }
+    }
+
+    @Override
+    public void addListener(CaptureListener listener) {
+        // includes changes made outside the application
+        shards.values().forEach(shard -> shard.index.addListener(listener));
+    }
+
     // private methods
 
-    private <V> V readVideoFromDataFile(File file, Class<V> videoType) {
+    private <V> V readVideoFromDataFile(File root, File file, Class<V> videoType) {
         try {
             FileInputStream fileInputStream = new FileInputStream(file);
-            V v = objectMapper.readValue(fileInputStream, videoType);
+            V v = getMapper(file).readValue(fileInputStream, videoType);
 
             // Set additional (non-saved) fields which can be useful e.g. uploading / streaming
             if (v instanceof Capture) {
                 Capture capture = (Capture) v;
-                capture.setDataFile(getDataFile(capture));
-                capture.setVideoFile(getVideoFile(capture));
+                capture.setDataFile(file);
+                capture.setVideoFile(getFile(root, capture, capture.getFormat()));
+                readUploadFile(capture);
             }
 
             return v;
@@ -165,40 +476,126 @@ public class FileSystemCaptureDao implements CaptureDao {
         }
     }
 
-    private void findVideoFile(String captureId, File curFolder, FindFile findFile) {
-        for (File file : curFolder.listFiles()) {
-            if (file.isDirectory()) {
-                findVideoFile(captureId, file, findFile);
-            } else if (file.getName().equalsIgnoreCase(captureId + "." + EXT_JSON)) {
-                findFile.setFile(file);
-            }
-            if (findFile.getFile() != null) {
-                return;
-            }
+    /**
+     * Merge the upload state from the upload sidecar file (if it exists) into a capture.  Older
+     * captures store the upload state in the data file, which is used if there's no sidecar file.
+     */
+    private void readUploadFile(Capture capture) {
+        File uploadFile = getUploadFile(capture.getDataFile());
+        if (!uploadFile.exists()) {
+            return;
+        }
+        try {
+            capture.setUpload(jsonMapper.readValue(uploadFile, Upload.class));
+        } catch (IOException e) {
+            log.warn("Unable to read upload file [ " + uploadFile + " ] - " + e.getMessage());
         }
     }
 
-    private void findCaptureSummaries(File curFolder, List<CaptureSummary> videos) {
-        for (File file : curFolder.listFiles()) {
-            if (file.isDirectory()) {
-                findCaptureSummaries(file, videos);
-            } else if (file.getName().endsWith("." + EXT_JSON)) {
-                CaptureSummary captureSummary = readVideoFromDataFile(file, CaptureSummary.class);
-                videos.add(captureSummary);
+    /**
+     * Read a capture from its data file (returns null if it doesn't exist).
+     */
+    private Capture readCapture(String captureId) {
+        Shard shard = shardOf(captureId);
+        File dataFile = shard != null ? shard.index.getDataFile(captureId) : null;
+        if (dataFile == null || !dataFile.exists()) {
+            return null;
+        }
+        return readVideoFromDataFile(shard.root, dataFile, Capture.class);
+    }
+
+    private Shard firstShard() {
+        return shards.values().iterator().next();
+    }
+
+    /**
+     * Return the shard whose index contains a capture (or null if no shard contains it).  The
+     * indexes are held in memory, so the shards are simply asked in turn.
+     */
+    private Shard shardOf(String captureId) {
+        for (Shard shard : shards.values()) {
+            if (shard.index.getDataFile(captureId) != null) {
+                return shard;
             }
         }
+        return null;
     }
 
-    private File getDataFile(Capture capture) {
-        return getFile(capture, EXT_JSON);
+    /**
+     * Return the shard to save a capture to i.e. the shard it's already in, the shard its video was
+     * recorded to or (if neither) the shard chosen by the shard placement.
+     */
+    private Shard shardFor(Capture capture) {
+        if (shards.size() == 1) {
+            return firstShard();
+        }
+        Shard shard = shardOf(capture.getId());
+        if (shard != null) {
+            return shard;
+        }
+        File root = capture.getFormat() != null ? videoFolders
+            .find(capture.getFolder(), capture.getId() + "." + capture.getFormat()) : null;
+        return shards.get(root != null ? root : videoFolders.place(capture.getProject()));
     }
 
-    private File getVideoFile(Capture capture) {
-        return getFile(capture, capture.getFormat());
+    /**
+     * Delete every file of a capture i.e. files in its folder which start with its ID (data file
+     * last).  Returns false if the data file couldn't be deleted.
+     */
+    private boolean deleteFiles(String captureId, File dataFile) {
+        File[] files = dataFile.getParentFile()
+            .listFiles((dir, name) -> name.startsWith(captureId + "."));
+        if (files != null) {
+            Arrays.stream(files).filter(file -> !file.equals(dataFile)).forEach(File::delete);
+        }
+        if (dataFile.exists() && !dataFile.delete()) {
+            log.warn("Unable to delete capture data file [ " + dataFile + " ]");
+            return false;
+        }
+        return true;
     }
 
-    private File getFile(Capture capture, String extension) {
-        File fullFolder = new File(videoFolder, capture.getFolder());
+    private boolean isDataFile(Path path) {
+        String filename = path.getFileName().toString();
+        return readMappers.containsKey(getExtension(filename))
+            && !filename.endsWith("." + EXT_UPLOAD);
+    }
+
+    private String getExtension(String filename) {
+        return filename.substring(filename.lastIndexOf('.') + 1);
+    }
+
+    private ObjectMapper getMapper(File dataFile) {
+        return readMappers.get(getExtension(dataFile.getName()));
+    }
+
+    /**
+     * Create a mapper for a binary format from the configured mapper i.e. with the same modules
+     * (serializers, deserializers, mix-ins etc) and features, so every codec reads and writes the
+     * same model.  Only the factory differs.
+     */
+    private static ObjectMapper binaryMapper(ObjectMapper objectMapper, JsonFactory jsonFactory) {
+        ObjectMapper mapper = new ObjectMapper(jsonFactory,
+            ((DefaultSerializerProvider) objectMapper.getSerializerProvider()).copy(),
+            ((DefaultDeserializationContext) objectMapper.getDeserializationContext()).copy());
+        mapper.setSerializerFactory(objectMapper.getSerializerFactory());
+        mapper.setConfig(objectMapper.getSerializationConfig()
+            .without(SerializationFeature.INDENT_OUTPUT));
+        mapper.setConfig(objectMapper.getDeserializationConfig());
+        return mapper;
+    }
+
+    private String getCaptureId(File dataFile) {
+        String name = dataFile.getName();
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+    private File getUploadFile(File dataFile) {
+        return new File(dataFile.getParentFile(), getCaptureId(dataFile) + "." + EXT_UPLOAD);
+    }
+
+    private File getFile(File root, Capture capture, String extension) {
+        File fullFolder = new File(root, capture.getFolder());
         fullFolder.mkdirs();  // make directories if required
 
         // replace capture extension with ".json" extension
@@ -208,12 +605,286 @@ public class FileSystemCaptureDao implements CaptureDao {
     }
 
     /**
-     * Little wrapper class used when we're recursively searching for a file.
+     * Return the result of a future, throwing the exception it failed with (if any).
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException cEx) {
+            if (cEx.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) cEx.getCause();
+            }
+            throw cEx;
+        }
+    }
+
+    // Private classes
+
+    /**
+     * A video folder with its own indexes, index snapshot and folder watcher.  Keeps its indexes in
+     * sync with changes reported by its folder watcher.
+     */
+    private class Shard implements CaptureFolderWatcher.Callback {
+
+        private final File root;
+        private final CaptureIndex index = new CaptureIndex();
+        private final CaptureIndexSnapshot indexSnapshot;
+        private final CaptureFolderWatcher folderWatcher;
+        private volatile long snapshotModCount = -1; // mod count of the index when last snapshot
+
+        Shard(File root) {
+            this.root = root;
+            root.mkdirs(); // required so the folder can be indexed / watched
+            folderWatcher = new CaptureFolderWatcher(root.toPath(),
+                FileSystemCaptureDao.this::isDataFile, this);
+            // Reload the index snapshot (if possible) so only changed folders are read
+            indexSnapshot = new CaptureIndexSnapshot(root);
+            long watermark = indexSnapshot.load(index);
+            if (watermark != -1) {
+                reconcileChangedSince(watermark);
+            } else {
+                reconcile();
+            }
+            log.info("Indexed " + index.size() + " captures in [ " + root + " ]");
+        }
+
+        void startWatching() {
+            try {
+                folderWatcher.start();
+            } catch (IOException e) {
+                log.warn("Unable to watch video folder [ " + root
+                    + " ] - changes made outside the application won't be indexed", e);
+            }
+        }
+
+        void writeSnapshot() {
+            long modCount = index.getModCount();
+            if (modCount == snapshotModCount) {
+                return;
+            }
+            try {
+                indexSnapshot.write(index);
+                snapshotModCount = modCount;
+            } catch (IOException e) {
+                log.warn("Error writing capture index snapshot of [ " + root + " ]", e);
+            }
+        }
+
+        void reindex() {
+            reconcile();
+            folderWatcher.registerAll(root.toPath());
+        }
+
+        void unindex(String captureId) {
+            index.remove(captureId);
+            captureCache.invalidate(captureId);
+        }
+
+        @Override
+        public void dataFileChanged(File dataFile) {
+            if (dataFile.exists()) {
+                indexDataFile(dataFile);
+            }
+        }
+
+        @Override
+        public void dataFileDeleted(File dataFile) {
+            String captureId = getCaptureId(dataFile);
+            if (deleting.contains(captureId)) {
+                return; // unindexed by `deleteAll` once the whole batch is deleted
+            }
+            if (!dataFile.exists() && dataFile.equals(index.getDataFile(captureId))) {
+                unindex(captureId);
+            }
+        }
+
+        @Override
+        public void folderCreated(Path folder) {
+            indexFolder(folder.toFile());
+        }
+
+        @Override
+        public void folderDeleted(Path folder) {
+            index.removeMissingUnder(Collections.singleton(folder), deleting);
+            retainIndexed();
+        }
+
+        @Override
+        public void overflow() {
+            log.debug("Watch events lost - re-synchronising capture index of [ " + root + " ]");
+            reindex();
+        }
+
+        /**
+         * Bring the indexes in line with the video folder i.e. index new / changed data files and
+         * remove captures which no longer exist.
+         */
+        private void reconcile() {
+            indexFolder(root);
+            index.removeMissingUnder(root.toPath());
+            retainIndexed();
+        }
+
+        /**
+         * Bring the indexes (loaded from a snapshot) in line with the video folder, but only read
+         * the folders which have been modified since the watermark of the snapshot.  Adding,
+         * removing or moving a file (which includes every atomic write) updates the last modified
+         * time of its folder.  The folder tree is still walked, but files in unchanged folders
+         * aren't read.
+         */
+        private void reconcileChangedSince(long watermark) {
+            Path rootPath = root.toPath();
+            Set<Path> changed = new HashSet<>();
+            try {
+                Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
+
+                    @Override
+                    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                        if (!dir.equals(rootPath) && dir.getFileName().toString()
+                            .startsWith(".")) {
+                            return FileVisitResult.SKIP_SUBTREE; // hidden
+                        }
+                        if (attrs.lastModifiedTime().toMillis()
+                            >= watermark - WATERMARK_SLACK_MILLIS) {
+                            changed.add(dir);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        if (changed.contains(file.getParent())) {
+                            indexFile(file.toFile());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException ioEx) {
+                        log.warn("Unable to read [ " + file + " ] - " + ioEx.getMessage());
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                });
+            } catch (IOException ioEx) {
+                log.warn("Error reconciling capture index snapshot - " + ioEx.getMessage());
+                reconcile();
+                return;
+            }
+
+            index.removeMissingUnder(changed);
+            retainIndexed();
+            log.debug("Reconciled " + changed.size() + " folders of [ " + root
+                + " ] changed since capture index snapshot");
+        }
+
+        /**
+         * Recursively index all capture data files in a folder (hidden folders are ignored).
+         */
+        private void indexFolder(File curFolder) {
+            File[] files = curFolder.listFiles();
+            if (files == null) {
+                return;
+            }
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    if (!file.getName().startsWith(".")) {
+                        indexFolder(file);
+                    }
+                } else {
+                    indexFile(file);
+                }
+            }
+        }
+
+        private void indexFile(File file) {
+            if (isDataFile(file.toPath())) {
+                indexDataFile(file);
+            } else if (fileWriter.isStaleTempFile(file.toPath())) {
+                file.delete(); // left behind by an interrupted write
+            }
+        }
+
+        /**
+         * Read the capture summary from a data file and index it (unless it's already current).
+         */
+        private void indexDataFile(File file) {
+            String captureId = getCaptureId(file);
+            if (index.isCurrent(captureId, file)) {
+                return;
+            }
+            captureCache.invalidate(captureId); // changed (or new) data file
+            long lastModified = file.lastModified();
+            long length = file.length();
+            try {
+                CaptureSummary captureSummary = CaptureSummaryReader.read(file, getMapper(file));
+                index.put(captureSummary, file, lastModified, length);
+            } catch (IOException ioEx) {
+                log.warn("Unable to index capture data file [ " + file + " ] - "
+                    + ioEx.getMessage());
+            }
+        }
+
+        /**
+         * Remove captures from the cache which are no longer indexed by any shard.
+         */
+        private void retainIndexed() {
+            captureCache.asMap().keySet().removeIf(captureId -> shardOf(captureId) == null);
+        }
+
+    }
+
+    /**
+     * Merges the (sorted) capture summaries of several shards into a single sorted iterator.
+     */
+    private static class MergingIterator implements Iterator<CaptureSummary> {
+
+        private final PriorityQueue<Head> heads;
+
+        MergingIterator(List<Iterator<CaptureSummary>> iterators,
+            Comparator<CaptureSummary> order) {
+            this.heads = new PriorityQueue<>(Math.max(1, iterators.size()),
+                (head1, head2) -> order.compare(head1.next, head2.next));
+            for (Iterator<CaptureSummary> iterator : iterators) {
+                if (iterator.hasNext()) {
+                    heads.add(new Head(iterator.next(), iterator));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public CaptureSummary next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            CaptureSummary next = head.next;
+            if (head.iterator.hasNext()) {
+                head.next = head.iterator.next();
+                heads.add(head);
+            }
+            return next;
+        }
+
+    }
+
+    /**
+     * The next capture summary of a shard's iterator.
      */
-    @Data
-    static class FindFile {
+    private static class Head {
+
+        private CaptureSummary next;
+        private final Iterator<CaptureSummary> iterator;
 
-        private File file;
+        Head(CaptureSummary next, Iterator<CaptureSummary> iterator) {
+            this.next = next;
+            this.iterator = iterator;
+        }
 
     }
 
@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.h2;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.dao.filesystem.FileSystemCaptureDao;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Migration command which imports the captures of an existing video folder into the capture
+ * database.  Run `VfCapture` with the H2 DAO and the `--import-captures` arg e.g.
+ *
+ * java -jar vf-capture.jar --capture_config.storage.dao=h2 --import-captures
+ *
+ * The application exits once the import has finished.  Importing again is safe (captures which
+ * have already been imported are overwritten).
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = StorageConfig.PROPERTY_DAO, havingValue = StorageConfig.DAO_H2)
+@RequiredArgsConstructor
+public class CaptureImportRunner implements ApplicationRunner {
+
+    // Constants
+
+    public static final String ARG_IMPORT_CAPTURES = "import-captures";
+
+    // Injected fields
+
+    private final H2CaptureDao captureDao;
+    private final ObjectMapper objectMapper;
+    private final CaptureConfig captureConfig;
+    private final ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(ARG_IMPORT_CAPTURES)) {
+            return;
+        }
+        log.info("Importing captures from [ " + captureConfig.getStorage().getVideoFolder()
+            + " ]");
+        FileSystemCaptureDao fileSystemCaptureDao = new FileSystemCaptureDao(objectMapper,
+            captureConfig);
+        try {
+            int count = captureDao.importCaptures(fileSystemCaptureDao);
+            log.info("Finished importing " + count + " captures");
+        } finally {
+            fileSystemCaptureDao.close();
+        }
+        System.exit(SpringApplication.exit(applicationContext));
+    }
+
+}
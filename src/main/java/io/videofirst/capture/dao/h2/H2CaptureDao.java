@@ -0,0 +1,619 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.h2;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.dao.CaptureCursor;
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.dao.CaptureListener;
+import io.videofirst.capture.dao.VideoFolders;
+import io.videofirst.capture.enums.CaptureSortField;
+import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.SortOrder;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.exception.CaptureException;
+import io.videofirst.capture.exception.VideoOpenException;
+import io.videofirst.capture.exception.VideoSaveException;
+import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CapturePage;
+import io.videofirst.capture.model.capture.CaptureQuery;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.model.capture.Upload;
+import io.videofirst.capture.utils.VfCaptureUtils;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Embedded H2 database implementation of the CaptureDao interface (enabled by setting
+ * `capture_config.storage.dao` to `h2`).
+ *
+ * Capture summary fields are stored in indexed columns so captures can be filtered, sorted and
+ * paged by the database, and the full capture is stored as JSON.  Video files stay in the video
+ * folder.  The database itself lives in the `.vf-capture` folder of the video folder.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = StorageConfig.PROPERTY_DAO, havingValue = StorageConfig.DAO_H2)
+public class H2CaptureDao implements CaptureDao {
+
+    // Constants
+
+    private static final String DB_FOLDER = ".vf-capture"; // hidden, so never indexed
+    private static final String DB_NAME = "captures";
+    private static final String DB_USER = "sa";
+    private static final int BATCH_SIZE = 500; // captures per query (streaming) / commit (import)
+
+    /**
+     * Schema migrations - each entry upgrades the schema by 1 version (existing entries must never
+     * be changed, add a new entry instead).
+     */
+    private static final String[][] MIGRATIONS = {
+        {
+            "CREATE TABLE capture (id VARCHAR PRIMARY KEY, type VARCHAR, sid BIGINT, "
+                + "project VARCHAR, feature VARCHAR, scenario VARCHAR, started TIMESTAMP, "
+                + "finished TIMESTAMP, format VARCHAR, test_status VARCHAR, folder VARCHAR, "
+                + "capture_json BLOB NOT NULL, upload_json CLOB)",
+            "CREATE INDEX idx_capture_started ON capture (started DESC, id DESC)",
+            "CREATE INDEX idx_capture_project ON capture (project, started)",
+            "CREATE INDEX idx_capture_feature ON capture (feature, started)",
+            "CREATE INDEX idx_capture_scenario ON capture (scenario, started)",
+            "CREATE INDEX idx_capture_test_status ON capture (test_status, started)",
+            "CREATE INDEX idx_capture_type ON capture (type, started)"
+        }
+    };
+
+    private static final String SUMMARY_COLUMNS = "id, type, sid, project, feature, scenario, "
+        + "started, finished, format, test_status";
+
+    private static final String SQL_CREATE_SCHEMA_VERSION =
+        "CREATE TABLE IF NOT EXISTS schema_version (version INT NOT NULL)";
+    private static final String SQL_SELECT_SCHEMA_VERSION =
+        "SELECT COALESCE(MAX(version), 0) FROM schema_version";
+    private static final String SQL_INSERT_SCHEMA_VERSION =
+        "INSERT INTO schema_version (version) VALUES (?)";
+    private static final String SQL_MERGE_CAPTURE = "MERGE INTO capture (" + SUMMARY_COLUMNS
+        + ", folder, capture_json) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_UPDATE_UPLOAD =
+        "UPDATE capture SET upload_json = ? WHERE id = ?";
+    private static final String SQL_SELECT_CAPTURE =
+        "SELECT capture_json, upload_json FROM capture WHERE id = ?";
+    private static final String SQL_SELECT_SUMMARIES =
+        "SELECT " + SUMMARY_COLUMNS + " FROM capture WHERE 1 = 1";
+    private static final String SQL_SELECT_SUMMARIES_AND_SIZES = "SELECT " + SUMMARY_COLUMNS
+        + ", folder, LENGTH(capture_json) AS data_length FROM capture";
+    private static final String SQL_SELECT_VIDEO =
+        "SELECT folder, format FROM capture WHERE id = ?";
+    private static final String SQL_DELETE_CAPTURE = "DELETE FROM capture WHERE id = ?";
+
+    // Injected fields
+
+    private final VideoFolders videoFolders;
+
+    // Private fields
+
+    private final ObjectMapper jsonMapper; // copy, so REST JSON isn't affected
+    private final JdbcConnectionPool connectionPool;
+    private final List<CaptureListener> listeners = new CopyOnWriteArrayList<>();
+    private final Object listenerLock = new Object(); // orders notifications / new listeners
+
+    public H2CaptureDao(ObjectMapper objectMapper, CaptureConfig captureConfig) {
+        this(objectMapper, captureConfig, new VideoFolders(captureConfig));
+    }
+
+    @Autowired
+    public H2CaptureDao(ObjectMapper objectMapper, CaptureConfig captureConfig,
+        VideoFolders videoFolders) {
+        this.videoFolders = videoFolders;
+        this.jsonMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+
+        File dbFolder = new File(captureConfig.getStorage().getVideoFolder(), DB_FOLDER);
+        dbFolder.mkdirs();
+        String url = "jdbc:h2:file:" + new File(dbFolder, DB_NAME).getAbsolutePath()
+            + ";DB_CLOSE_ON_EXIT=FALSE"; // closed by close() instead
+        this.connectionPool = JdbcConnectionPool.create(url, DB_USER, "");
+        migrate();
+        log.info("Using capture database [ " + url + " ]");
+    }
+
+    @PreDestroy
+    public void close() {
+        connectionPool.dispose();
+    }
+
+    /**
+     * Import all the captures of another DAO e.g. the FileSystemCaptureDao of an existing video
+     * folder.  Captures which have already been imported are overwritten.  Returns the number of
+     * captures imported.
+     */
+    public int importCaptures(CaptureDao source) {
+        int count = 0;
+        List<Capture> batch = new ArrayList<>();
+        Iterator<CaptureSummary> it = source.stream(new CaptureQuery()).iterator();
+        while (it.hasNext()) {
+            String captureId = it.next().getId();
+            try {
+                batch.add(source.findById(captureId));
+            } catch (CaptureException cEx) {
+                log.warn("Unable to import capture [ " + captureId + " ] - " + cEx.getMessage());
+            }
+            if (batch.size() == BATCH_SIZE || !it.hasNext()) {
+                saveAll(batch);
+                count += batch.size();
+                batch.clear();
+                log.info("Imported " + count + " captures");
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void save(Capture capture) {
+        saveAll(Collections.singletonList(capture));
+    }
+
+    @Override
+    public void saveUpload(String captureId, Upload upload) {
+        try (Connection connection = connectionPool.getConnection();
+            PreparedStatement statement = connection.prepareStatement(SQL_UPDATE_UPLOAD)) {
+            statement.setString(1, jsonMapper.writeValueAsString(upload));
+            statement.setString(2, captureId);
+            if (statement.executeUpdate() == 0) {
+                throw new VideoSaveException("Cannot find a capture for ID - " + captureId);
+            }
+        } catch (SQLException | IOException e) {
+            throw new VideoSaveException("Error saving capture upload - " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Capture findById(String captureId) {
+        try (Connection connection = connectionPool.getConnection();
+            PreparedStatement statement = connection.prepareStatement(SQL_SELECT_CAPTURE)) {
+            statement.setString(1, captureId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next()) {
+                    throw new VideoOpenException("Cannot find a capture for ID - " + captureId);
+                }
+                Capture capture = jsonMapper.readValue(resultSet.getBytes(1), Capture.class);
+                String uploadJson = resultSet.getString(2);
+                if (uploadJson != null) {
+                    capture.setUpload(jsonMapper.readValue(uploadJson, Upload.class));
+                }
+                capture.setVideoFile(getVideoFile(capture));
+                return capture;
+            }
+        } catch (SQLException | IOException e) {
+            throw new VideoOpenException("Error opening capture - " + captureId, e);
+        }
+    }
+
+    @Override
+    public Capture read(String captureId) {
+        return findById(captureId); // captures aren't cached
+    }
+
+    @Override
+    public List<CaptureSummary> list() {
+        return select(new CaptureQuery(), null, null);
+    }
+
+    @Override
+    public CapturePage list(CaptureQuery query) {
+        Integer limit = query.limit();
+        CaptureSummary after = CaptureCursor.decode(query);
+        if (limit == null) {
+            return new CapturePage(select(query, after, null), null);
+        }
+
+        // Read 1 more than the limit to find out if there's another page
+        List<CaptureSummary> captures = select(query, after, limit + 1);
+        if (captures.size() <= limit) {
+            return new CapturePage(captures, null);
+        }
+        captures = captures.subList(0, limit);
+        return new CapturePage(captures,
+            CaptureCursor.encode(query, captures.get(captures.size() - 1)));
+    }
+
+    @Override
+    public Stream<CaptureSummary> stream(CaptureQuery query) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new BatchIterator(query),
+            Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public void delete(String captureId) {
+        Capture capture = findById(captureId);
+        File dir = capture.getVideoFile().getParentFile();
+        File videoFolder = videoFolders.rootOf(capture.getVideoFile());
+        capture.getVideoFile().delete();
+        try (Connection connection = connectionPool.getConnection();
+            PreparedStatement statement = connection.prepareStatement(SQL_DELETE_CAPTURE)) {
+            statement.setString(1, captureId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new VideoSaveException("Error deleting capture - " + e.getMessage(), e);
+        }
+        synchronized (listenerLock) {
+            listeners.forEach(listener -> listener.captureDeleted(captureId));
+        }
+
+        // now go up parent by parent until the video folder (but stop at non-empty folders)
+        while (videoFolder != null && !dir.equals(videoFolder)) {
+            String[] children = dir.list();
+            if (children == null || children.length != 0) {
+                return;
+            }
+            dir.delete();
+            dir = dir.getParentFile();
+        }
+    }
+
+    @Override
+    public List<String> deleteAll(Collection<String> captureIds, Executor executor,
+        Consumer<String> deleted) {
+
+        // find the video files of the captures ...
+        Map<String, File> videoFiles = new LinkedHashMap<>();
+        try (Connection connection = connectionPool.getConnection();
+            PreparedStatement statement = connection.prepareStatement(SQL_SELECT_VIDEO)) {
+            for (String captureId : captureIds) {
+                statement.setString(1, captureId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) {
+                        videoFiles.put(captureId, getVideoFile(resultSet.getString("folder"),
+                            captureId, resultSet.getString("format")));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new VideoOpenException("Error finding captures - " + e.getMessage(), e);
+        }
+
+        // ... delete them in parallel ...
+        List<CompletableFuture<Void>> deletions = new ArrayList<>();
+        videoFiles.forEach((captureId, videoFile) -> deletions.add(CompletableFuture
+            .runAsync(() -> {
+                videoFile.delete();
+                deleted.accept(captureId);
+            }, executor)));
+        deletions.forEach(CompletableFuture::join);
+
+        // ... and then delete the rows in a single transaction
+        List<String> deletedIds = new ArrayList<>(videoFiles.keySet());
+        try (Connection connection = connectionPool.getConnection();
+            PreparedStatement statement = connection.prepareStatement(SQL_DELETE_CAPTURE)) {
+            connection.setAutoCommit(false);
+            for (String captureId : deletedIds) {
+                statement.setString(1, captureId);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            throw new VideoSaveException("Error deleting captures - " + e.getMessage(), e);
+        }
+        synchronized (listenerLock) {
+            deletedIds.forEach(
+                captureId -> listeners.forEach(listener -> listener.captureDeleted(captureId)));
+        }
+        Set<File> folders = videoFiles.values().stream().map(File::getParentFile)
+            .collect(Collectors.toSet());
+        videoFolders.getRoots().forEach(root -> VfCaptureUtils.deleteEmptyFolders(folders, root));
+        return deletedIds;
+    }
+
+    /**
+     * Replay the existing captures to a listener and then register it.  Changes are committed
+     * before listeners are notified (while holding the same lock), so a change made during the
+     * replay is either replayed, notified afterwards or both (which listeners must tolerate).
+     */
+    @Override
+    public void addListener(CaptureListener listener) {
+        synchronized (listenerLock) {
+            try (Connection connection = connectionPool.getConnection();
+                Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery(SQL_SELECT_SUMMARIES_AND_SIZES)) {
+                while (resultSet.next()) {
+                    CaptureSummary summary = getSummary(resultSet);
+                    listener.captureSaved(summary, resultSet.getLong("data_length")
+                        + getVideoFile(resultSet.getString("folder"), summary.getId(),
+                        summary.getFormat()).length());
+                }
+            } catch (SQLException e) {
+                throw new VideoOpenException("Error listing captures - " + e.getMessage(), e);
+            }
+            listeners.add(listener);
+        }
+    }
+
+    // Private methods
+
+    /**
+     * Create / upgrade the schema by running any migrations which haven't been run yet.
+     */
+    private void migrate() {
+        try (Connection connection = connectionPool.getConnection();
+            Statement statement = connection.createStatement()) {
+            statement.execute(SQL_CREATE_SCHEMA_VERSION);
+            int version;
+            try (ResultSet resultSet = statement.executeQuery(SQL_SELECT_SCHEMA_VERSION)) {
+                resultSet.next();
+                version = resultSet.getInt(1);
+            }
+            connection.setAutoCommit(false);
+            for (; version < MIGRATIONS.length; version++) {
+                log.info("Migrating capture database to schema version " + (version + 1));
+                for (String sql : MIGRATIONS[version]) {
+                    statement.execute(sql);
+                }
+                try (PreparedStatement insert = connection
+                    .prepareStatement(SQL_INSERT_SCHEMA_VERSION)) {
+                    insert.setInt(1, version + 1);
+                    insert.executeUpdate();
+                }
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            throw new VideoOpenException("Error migrating capture database - " + e.getMessage(),
+                e);
+        }
+    }
+
+    /**
+     * Save captures in a single transaction.  The upload column is only set if a capture has an
+     * upload (so saving a capture never removes the upload state).
+     */
+    private void saveAll(List<Capture> captures) {
+        if (captures.isEmpty()) {
+            return;
+        }
+        long[] dataLengths = new long[captures.size()];
+        try (Connection connection = connectionPool.getConnection();
+            PreparedStatement merge = connection.prepareStatement(SQL_MERGE_CAPTURE);
+            PreparedStatement updateUpload = connection.prepareStatement(SQL_UPDATE_UPLOAD)) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < captures.size(); i++) {
+                Capture capture = captures.get(i);
+                byte[] data = jsonMapper
+                    .writeValueAsBytes(capture.toBuilder().upload(null).build());
+                dataLengths[i] = data.length;
+                setParameters(merge, capture.getId(), capture.getType(), capture.getSid(),
+                    capture.getProject(), capture.getFeature(), capture.getScenario(),
+                    capture.getStarted(), capture.getFinished(), capture.getFormat(),
+                    capture.getTestStatus(), capture.getFolder(), data);
+                merge.addBatch();
+                if (capture.getUpload() != null) {
+                    setParameters(updateUpload, jsonMapper.writeValueAsString(capture.getUpload()),
+                        capture.getId());
+                    updateUpload.addBatch();
+                }
+            }
+            merge.executeBatch();
+            updateUpload.executeBatch();
+            connection.commit();
+        } catch (SQLException | IOException e) {
+            throw new VideoSaveException("Error saving capture - " + e.getMessage(), e);
+        }
+        synchronized (listenerLock) {
+            for (int i = 0; i < captures.size(); i++) {
+                Capture capture = captures.get(i);
+                long sizeInBytes = dataLengths[i] + getVideoFile(capture).length();
+                listeners.forEach(
+                    listener -> listener.captureSaved(new CaptureSummary(capture), sizeInBytes));
+            }
+        }
+    }
+
+    /**
+     * Select the summaries of the captures which match a query, in sort order and starting after
+     * the `after` summary (if set).
+     */
+    private List<CaptureSummary> select(CaptureQuery query, CaptureSummary after, Integer limit) {
+        StringBuilder sql = new StringBuilder(SQL_SELECT_SUMMARIES);
+        List<Object> params = new ArrayList<>();
+        where(sql, params, "project = ?", query.getProject());
+        where(sql, params, "feature = ?", query.getFeature());
+        where(sql, params, "scenario = ?", query.getScenario());
+        where(sql, params, "test_status = ?", query.getTestStatus());
+        where(sql, params, "type = ?", query.getType());
+        where(sql, params, "started >= ?", query.getStartedFrom());
+        where(sql, params, "started <= ?", query.getStartedTo());
+
+        // Keyset paging - same order as CaptureCursor.comparator i.e. nulls last, then by ID
+        String column = getColumn(query.sort());
+        String op = query.order() == SortOrder.asc ? " > ?" : " < ?";
+        if (after != null) {
+            Object value = CaptureCursor.sortValue(query.sort(), after);
+            if (value != null) {
+                sql.append(" AND (" + column + op + " OR (" + column + " = ? AND id" + op
+                    + ") OR " + column + " IS NULL)");
+                params.add(value);
+                params.add(value);
+            } else {
+                sql.append(" AND " + column + " IS NULL AND id" + op);
+            }
+            params.add(after.getId());
+        }
+        String direction = query.order() == SortOrder.asc ? " ASC" : " DESC";
+        sql.append(" ORDER BY " + column + direction + " NULLS LAST, id" + direction);
+        if (limit != null) {
+            sql.append(" LIMIT ?");
+            params.add(limit);
+        }
+
+        try (Connection connection = connectionPool.getConnection();
+            PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            setParameters(statement, params.toArray());
+            List<CaptureSummary> summaries = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    summaries.add(getSummary(resultSet));
+                }
+            }
+            return summaries;
+        } catch (SQLException e) {
+            throw new VideoOpenException("Error listing captures - " + e.getMessage(), e);
+        }
+    }
+
+    private void where(StringBuilder sql, List<Object> params, String condition, Object value) {
+        if (value != null) {
+            sql.append(" AND ").append(condition);
+            params.add(value);
+        }
+    }
+
+    private void setParameters(PreparedStatement statement, Object... params)
+        throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            Object param = params[i];
+            if (param instanceof LocalDateTime) {
+                param = Timestamp.valueOf((LocalDateTime) param);
+            } else if (param instanceof Enum) {
+                param = ((Enum<?>) param).name();
+            }
+            statement.setObject(i + 1, param);
+        }
+    }
+
+    private CaptureSummary getSummary(ResultSet resultSet) throws SQLException {
+        CaptureSummary summary = new CaptureSummary();
+        summary.setId(resultSet.getString("id"));
+        String type = resultSet.getString("type");
+        summary.setType(type != null ? CaptureType.valueOf(type) : null);
+        long sid = resultSet.getLong("sid");
+        summary.setSid(resultSet.wasNull() ? null : sid);
+        summary.setProject(resultSet.getString("project"));
+        summary.setFeature(resultSet.getString("feature"));
+        summary.setScenario(resultSet.getString("scenario"));
+        summary.setStarted(getLocalDateTime(resultSet.getTimestamp("started")));
+        summary.setFinished(getLocalDateTime(resultSet.getTimestamp("finished")));
+        summary.setFormat(resultSet.getString("format"));
+        String testStatus = resultSet.getString("test_status");
+        summary.setTestStatus(testStatus != null ? TestStatus.valueOf(testStatus) : null);
+        return summary;
+    }
+
+    private LocalDateTime getLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    private String getColumn(CaptureSortField field) {
+        return field == CaptureSortField.testStatus ? "test_status" : field.name();
+    }
+
+    private File getVideoFile(Capture capture) {
+        return getVideoFile(capture.getFolder(), capture.getId(), capture.getFormat());
+    }
+
+    /**
+     * Return the video file of a capture, from whichever video folder it was recorded to (the video
+     * folder is assumed if the video can't be found).
+     */
+    private File getVideoFile(String folder, String captureId, String format) {
+        String filename = captureId + "." + format;
+        File videoFolder = videoFolders.find(folder, filename);
+        if (videoFolder == null) {
+            videoFolder = videoFolders.getRoots().get(0);
+        }
+        return new File(new File(videoFolder, folder), filename);
+    }
+
+    /**
+     * Lazily iterates through the captures which match a query, reading a batch of captures at a
+     * time (so a connection isn't held open while the captures are consumed).
+     */
+    private class BatchIterator implements Iterator<CaptureSummary> {
+
+        private final CaptureQuery query;
+        private CaptureSummary after;
+        private Iterator<CaptureSummary> batch = Collections.emptyIterator();
+        private boolean lastBatch = false;
+
+        BatchIterator(CaptureQuery query) {
+            this.query = query;
+            this.after = CaptureCursor.decode(query); // invalid cursors fail straight away
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!batch.hasNext() && !lastBatch) {
+                List<CaptureSummary> captures = select(query, after, BATCH_SIZE);
+                lastBatch = captures.size() < BATCH_SIZE;
+                if (!captures.isEmpty()) {
+                    after = captures.get(captures.size() - 1);
+                }
+                batch = captures.iterator();
+            }
+            return batch.hasNext();
+        }
+
+        @Override
+        public CaptureSummary next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return batch.next();
+        }
+
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.enums;
+
+/**
+ * Backpressure enum i.e. what the recorder does when frames are grabbed more quickly than they can
+ * be encoded (and the frame buffer is full): -
+ *
+ * 1. `dropOldest` - the oldest buffered frame is dropped to make room for the new one.
+ * 2. `block` - grabbing waits until the encoder frees a slot (frames are grabbed late).
+ * 3. `degrade` - the grab rate is halved while the buffer is backed up (and raised again once it
+ *    has drained) - if the buffer is still full the new frame is dropped.
+ *
+ * @author Bob Marks
+ */
+public enum Backpressure {
+
+    dropOldest, block, degrade;
+
+    public static Backpressure DEFAULT_BACKPRESSURE = dropOldest;
+
+}
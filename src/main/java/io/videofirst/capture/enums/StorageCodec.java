@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.enums;
+
+/**
+ * Storage codec enum i.e. the format of capture data files: -
+ *
+ * 1. `pretty` - pretty printed JSON (easy to read / edit).
+ * 2. `json` - compact JSON.
+ * 3. `smile` - Smile (binary JSON) - smaller and faster to parse.
+ * 4. `cbor` - CBOR (binary JSON) - smaller and faster to parse.
+ *
+ * @author Bob Marks
+ */
+public enum StorageCodec {
+
+    pretty("json"), json("json"), smile("smile"), cbor("cbor");
+
+    public static StorageCodec DEFAULT_STORAGE_CODEC = pretty;
+
+    private final String extension;
+
+    StorageCodec(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Return the file extension of data files in this format.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+}
@@ -31,7 +31,11 @@ package io.videofirst.capture.exception;
 public class VideoUploadException extends CaptureException {
 
     public VideoUploadException(String message) {
-        super(message);
+        this(message, null);
+    }
+
+    public VideoUploadException(String message, Throwable cause) {
+        super(message, cause);
     }
 
 }
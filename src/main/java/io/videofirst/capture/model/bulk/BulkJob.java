@@ -0,0 +1,58 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.model.bulk;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import io.videofirst.capture.enums.BulkJobState;
+import io.videofirst.capture.enums.BulkOperation;
+import java.time.LocalDateTime;
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Immutable status of a bulk job e.g. how many captures have been deleted so far.  `total` is
+ * only set once the captures of the job are known.
+ *
+ * @author Bob Marks
+ */
+@Value
+@Builder
+@JsonInclude(Include.NON_NULL)
+@JsonPropertyOrder({"id", "operation", "state", "started", "finished", "total", "completed",
+    "failed", "error"})
+public class BulkJob {
+
+    private final String id;
+    private final BulkOperation operation;
+    private final BulkJobState state;
+    private final LocalDateTime started;
+    private final LocalDateTime finished;
+    private final Integer total;
+    private final int completed;
+    private final Integer failed; // only set when finished
+    private final String error;
+
+}
@@ -50,9 +50,10 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 @JsonInclude(Include.NON_NULL)
-@JsonPropertyOrder({"id", "sid", "project", "feature", "scenario", "type", "description",
-    "started", "finished", "folder", "format", "capture", "meta", "environment", "testStatus",
-    "testError", "testStackTrace", "testLogs", "upload"})
+@JsonPropertyOrder({"id", "sid", "project", "feature", "scenario", "type", "started",
+    "finished", "testStatus", "format", "folder", "description", "capture", "video", "meta",
+    "environment", "testError", "testStackTrace", "testLogs",
+    "upload"}) // summary fields first (ending in format)
 public class Capture {
 
     public static final String FORMAT_AVI = "avi"; // only supported format at minute
@@ -69,6 +70,7 @@ public class Capture {
     private String folder;
     private String format;
     private DisplayCapture capture;
+    private VideoSettings video; // video settings overridden when recording (if any)
     private Map<String, String> meta;
     private Map<String, String> environment;
     private TestStatus testStatus;
@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.model.capture;
+
+import io.videofirst.capture.enums.CaptureSortField;
+import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.SortOrder;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.exception.InvalidParameterException;
+import java.time.LocalDateTime;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+
+/**
+ * Model object which defines how to filter, sort and page a list of captures.  All fields are
+ * optional - if none are set then all captures are returned, most recent first.
+ *
+ * @author Bob Marks
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class CaptureQuery {
+
+    // Filters
+
+    private String project;
+    private String feature;
+    private String scenario;
+    private TestStatus testStatus;
+    private CaptureType type;
+    @DateTimeFormat(iso = ISO.DATE_TIME)
+    private LocalDateTime startedFrom; // inclusive
+    @DateTimeFormat(iso = ISO.DATE_TIME)
+    private LocalDateTime startedTo; // inclusive
+
+    // Sorting
+
+    private CaptureSortField sort;
+    private SortOrder order;
+
+    // Paging
+
+    private Integer limit; // page size (all captures if not set)
+    private String cursor; // returned from a previous page
+
+    public CaptureSortField sort() {
+        return sort != null ? sort : CaptureSortField.DEFAULT_SORT_FIELD;
+    }
+
+    public SortOrder order() {
+        return order != null ? order : SortOrder.DEFAULT_SORT_ORDER;
+    }
+
+    /**
+     * Returns true if the default order is used i.e. most recent captures first.
+     */
+    public boolean isLatestFirst() {
+        return sort() == CaptureSortField.started && order() == SortOrder.desc;
+    }
+
+    /**
+     * Return the page size or throw an exception if it's invalid (null means no limit).
+     */
+    public Integer limit() {
+        if (limit != null && limit < 1) {
+            throw new InvalidParameterException("Invalid limit [ " + limit + " ] - must be > 0");
+        }
+        return limit;
+    }
+
+    /**
+     * Returns true if at least 1 filter is set (i.e. not every capture matches).
+     */
+    public boolean isFiltered() {
+        return project != null || feature != null || scenario != null || testStatus != null
+            || type != null || startedFrom != null || startedTo != null;
+    }
+
+    /**
+     * Returns true if a capture summary matches all the filters of this query.
+     */
+    public boolean matches(CaptureSummary summary) {
+        return (project == null || project.equals(summary.getProject()))
+            && (feature == null || feature.equals(summary.getFeature()))
+            && (scenario == null || scenario.equals(summary.getScenario()))
+            && (testStatus == null || testStatus == summary.getTestStatus())
+            && (type == null || type == summary.getType())
+            && (startedFrom == null || (summary.getStarted() != null && !summary.getStarted()
+            .isBefore(startedFrom)))
+            && (startedTo == null || (summary.getStarted() != null && !summary.getStarted()
+            .isAfter(startedTo)));
+    }
+
+}
@@ -52,6 +52,7 @@ public class CaptureRecordParams {
     private Map<String, String> meta;
     private String description;
     private DisplayConfig display;
+    private VideoSettings video;
     private String author;
     private String force;
 
@@ -124,6 +124,7 @@ public class CaptureStatus {
                 .started(started)
                 .id(id)
                 .capture(displayCapture)
+                .video(captureRecordParams.getVideo())
                 .format(FORMAT_AVI)
                 .build();
 
@@ -59,4 +59,10 @@ public class CaptureSummary {
     private String format;
     private TestStatus testStatus;
 
+    public CaptureSummary(final Capture capture) {
+        this(capture.getId(), capture.getType(), capture.getSid(), capture.getProject(),
+            capture.getFeature(), capture.getScenario(), capture.getStarted(),
+            capture.getFinished(), capture.getFormat(), capture.getTestStatus());
+    }
+
 }
@@ -0,0 +1,50 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder;
+
+import java.awt.image.BufferedImage;
+import lombok.Getter;
+
+/**
+ * Mutable frame i.e. a grabbed screen image and when it was grabbed.  Frames are slots of the
+ * `FrameRingBuffer` (and of the encoder) so they're reused rather than created per frame.
+ *
+ * @author Bob Marks
+ */
+@Getter
+public class Frame {
+
+    private BufferedImage image;
+    private long timestamp; // nanoseconds since recording started
+
+    void set(BufferedImage image, long timestamp) {
+        this.image = image;
+        this.timestamp = timestamp;
+    }
+
+    void clear() {
+        set(null, 0);
+    }
+
+}
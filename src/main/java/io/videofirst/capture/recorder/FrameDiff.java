@@ -0,0 +1,160 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.Arrays;
+
+/**
+ * Frame differencing - splits each frame into square tiles and compares the checksum of every tile
+ * with the same tile of the previous frame.  A frame without any changed tiles is a repeat of the
+ * previous frame (so it doesn't need to be encoded).
+ *
+ * @author Bob Marks
+ */
+public class FrameDiff {
+
+    // Constants
+
+    public static final int DEFAULT_TILE_SIZE = 32; // pixels
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // Private fields
+
+    private final int tileSize;
+
+    private long[] checksums; // of the previous frame
+    private long[] frameChecksums; // of the current frame
+    private int[] row; // only used for images which aren't backed by an int array
+    private int width;
+    private int height;
+    private int tilesX;
+    private volatile long tilesCompared;
+    private volatile long tilesSkipped;
+
+    public FrameDiff(int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Tile size must be at least 1");
+        }
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Compare a frame with the previous frame and return the number of tiles which have changed
+     * (every tile if it's the first frame or the size has changed) i.e. 0 if it's a repeat.
+     */
+    public int diff(BufferedImage image) {
+        if (checksums == null || image.getWidth() != width || image.getHeight() != height) {
+            init(image.getWidth(), image.getHeight());
+            checksum(image, checksums);
+            return checksums.length;
+        }
+        checksum(image, frameChecksums);
+        int changed = 0;
+        for (int i = 0; i < checksums.length; i++) {
+            if (checksums[i] != frameChecksums[i]) {
+                changed++;
+            }
+        }
+        long[] previous = checksums;
+        checksums = frameChecksums;
+        frameChecksums = previous;
+
+        tilesCompared += checksums.length;
+        tilesSkipped += checksums.length - changed;
+        return changed;
+    }
+
+    /**
+     * Return the ratio of compared tiles which hadn't changed since the previous frame (0 if no
+     * frames have been compared yet).
+     */
+    public double getSkippedTileRatio() {
+        return tilesCompared == 0 ? 0 : (double) tilesSkipped / tilesCompared;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    // Private methods
+
+    private void init(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+        this.checksums = new long[tilesX * tilesY];
+        this.frameChecksums = new long[checksums.length];
+        this.row = null;
+    }
+
+    /**
+     * Work out the checksum (64 bit FNV-1a of the pixels) of each tile, a row of pixels at a time.
+     */
+    private void checksum(BufferedImage image, long[] tileChecksums) {
+        Arrays.fill(tileChecksums, FNV_OFFSET);
+        Raster raster = image.getRaster();
+        if (raster.getDataBuffer() instanceof DataBufferInt
+            && raster.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+            // read straight from the int array of the image (no copy)
+            DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+            int[] pixels = dataBuffer.getData();
+            int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel())
+                .getScanlineStride();
+            int offset = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+            for (int y = 0; y < height; y++) {
+                checksumRow(pixels, offset + y * stride, y, tileChecksums);
+            }
+        } else {
+            if (row == null) {
+                row = new int[width];
+            }
+            for (int y = 0; y < height; y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                checksumRow(row, 0, y, tileChecksums);
+            }
+        }
+    }
+
+    private void checksumRow(int[] pixels, int offset, int y, long[] tileChecksums) {
+        int tileRow = (y / tileSize) * tilesX;
+        for (int tileX = 0; tileX < tilesX; tileX++) {
+            int start = tileX * tileSize;
+            int end = Math.min(start + tileSize, width);
+            long checksum = tileChecksums[tileRow + tileX];
+            for (int x = start; x < end; x++) {
+                checksum = (checksum ^ pixels[offset + x]) * FNV_PRIME;
+            }
+            tileChecksums[tileRow + tileX] = checksum;
+        }
+    }
+
+}
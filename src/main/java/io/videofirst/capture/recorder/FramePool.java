@@ -0,0 +1,130 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of frame images (`int` array backed RGB rasters) which are recycled once they've
+ * been encoded (or dropped) - so recording doesn't create a new full screen image per frame.  The
+ * pool is filled lazily i.e. images are only created when there isn't a free one, up to the size
+ * of the pool, so it only ever holds as many images as were in flight at once.  If every image is
+ * in use a new image is created (and counted) rather than waiting.
+ *
+ * A pool can be kept for the next recording of the same frame size (e.g. by a recorder).
+ *
+ * @author Bob Marks
+ */
+public class FramePool {
+
+    // Private fields
+
+    private final int width;
+    private final int height;
+    private final int size;
+    private final BlockingQueue<BufferedImage> images;
+    private final AtomicInteger created = new AtomicInteger(); // pooled images created so far
+    private final AtomicLong allocated = new AtomicLong();
+
+    public FramePool(int width, int height, int size) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Frame width and height must be at least 1");
+        }
+        this.width = width;
+        this.height = height;
+        this.size = size;
+        this.images = new ArrayBlockingQueue<>(Math.max(size, 1));
+    }
+
+    /**
+     * Return a free image from the pool (or a new image if there isn't one).
+     */
+    public BufferedImage acquire() {
+        BufferedImage image = images.poll();
+        if (image == null) {
+            if (!reserve()) {
+                allocated.incrementAndGet(); // more images in flight than the pool size
+            }
+            image = newImage();
+        }
+        return image;
+    }
+
+    /**
+     * Return an image to the pool.  Images which aren't from the pool (e.g. a different size) or
+     * don't fit (the pool is full) are left to be garbage collected.
+     */
+    public void release(BufferedImage image) {
+        if (image != null && image.getWidth() == width && image.getHeight() == height
+            && image.getType() == BufferedImage.TYPE_INT_RGB) {
+            images.offer(image);
+        }
+    }
+
+    /**
+     * Returns true if this pool holds images for the specified frame size and pool size.
+     */
+    public boolean isFor(int width, int height, int size) {
+        return this.width == width && this.height == height && this.size == size;
+    }
+
+    /**
+     * Return the number of images which are available in the pool.
+     */
+    public int available() {
+        return images.size();
+    }
+
+    /**
+     * Return the number of images which were created because every image of the (full) pool was in
+     * use.
+     */
+    public long getAllocated() {
+        return allocated.get();
+    }
+
+    // Private methods
+
+    /**
+     * Reserve a place in the pool for a new image (false if the pool has already created all of
+     * its images).
+     */
+    private boolean reserve() {
+        for (int count = created.get(); count < size; count = created.get()) {
+            if (created.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BufferedImage newImage() {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+}
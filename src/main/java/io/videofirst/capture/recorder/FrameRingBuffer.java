@@ -0,0 +1,199 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder;
+
+import io.videofirst.capture.enums.Backpressure;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Bounded ring buffer of frames between the grab thread (producer) and the encoder (consumer).
+ * All slots are allocated up front.  What happens when the buffer is full depends on the
+ * backpressure - the oldest frame is dropped (`dropOldest`), the producer waits (`block`) or the
+ * new frame is dropped (`degrade` - where the producer also slows down, see `isBackedUp`).  The
+ * images of frames which are dropped from (or cleared out of) the buffer are passed to a recycler
+ * e.g. to return them to a `FramePool`.
+ *
+ * @author Bob Marks
+ */
+public class FrameRingBuffer {
+
+    // Private fields
+
+    private final Frame[] slots;
+    private final Backpressure backpressure;
+    private final Consumer<BufferedImage> recycler;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    private int head; // slot of the oldest frame
+    private int count;
+    private long dropped;
+    private boolean closed;
+
+    public FrameRingBuffer(int capacity, Backpressure backpressure) {
+        this(capacity, backpressure, image -> {
+        });
+    }
+
+    public FrameRingBuffer(int capacity, Backpressure backpressure,
+        Consumer<BufferedImage> recycler) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Frame buffer capacity must be at least 1");
+        }
+        this.slots = new Frame[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Frame();
+        }
+        this.backpressure = backpressure != null ? backpressure
+            : Backpressure.DEFAULT_BACKPRESSURE;
+        this.recycler = recycler;
+    }
+
+    /**
+     * Add a frame to the end of the buffer.  Returns false if the frame wasn't added (the buffer is
+     * full and the backpressure is `degrade`, or the buffer has been closed).
+     */
+    public boolean put(BufferedImage image, long timestamp) throws InterruptedException {
+        lock.lock();
+        try {
+            while (count == slots.length && !closed) {
+                if (backpressure == Backpressure.dropOldest) {
+                    recycler.accept(slots[head].getImage());
+                    slots[head].clear();
+                    head = (head + 1) % slots.length;
+                    count--;
+                    dropped++;
+                } else if (backpressure == Backpressure.block) {
+                    notFull.await();
+                } else {
+                    dropped++;
+                    return false;
+                }
+            }
+            if (closed) {
+                return false;
+            }
+            slots[(head + count) % slots.length].set(image, timestamp);
+            count++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move the oldest frame of the buffer into `frame`, waiting until there is one.  Returns false
+     * once the buffer has been closed and every frame has been taken.
+     */
+    public boolean take(Frame frame) throws InterruptedException {
+        lock.lock();
+        try {
+            while (count == 0) {
+                if (closed) {
+                    return false;
+                }
+                notEmpty.await();
+            }
+            Frame slot = slots[head];
+            frame.set(slot.getImage(), slot.getTimestamp());
+            slot.clear();
+            head = (head + 1) % slots.length;
+            count--;
+            notFull.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Close the buffer - no more frames can be added but frames already in the buffer can still be
+     * taken.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Discard every frame in the buffer (e.g. the recording has been cancelled).
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            for (; count > 0; count--) {
+                recycler.accept(slots[head].getImage());
+                slots[head].clear();
+                head = (head + 1) % slots.length;
+            }
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return true if the buffer is at least half full i.e. the encoder is falling behind.
+     */
+    public boolean isBackedUp() {
+        return size() * 2 >= slots.length;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Return the number of frames which were dropped because the buffer was full.
+     */
+    public long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
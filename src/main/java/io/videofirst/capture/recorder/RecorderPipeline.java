@@ -0,0 +1,372 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder;
+
+import io.videofirst.capture.enums.Backpressure;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Recorder pipeline - a grab thread grabs a timestamped frame every tick (1 / frame rate) into a
+ * bounded `FrameRingBuffer` and an encoder thread drains the buffer into the movie writer.  A slow
+ * encode no longer delays the next grab - frames are written with a duration worked out from their
+ * timestamps, so the video keeps time even if frames are dropped.
+ *
+ * There is a single encoder thread as the frames of a movie are delta encoded (each frame depends
+ * on the previous one) and must be written in order.
+ *
+ * If a minimum frame rate (lower than the frame rate) is set then the grab rate is adaptive - every
+ * second it's lowered if grabbing / encoding a frame takes most of the time between grabs (or the
+ * buffer is backing up), and raised again once there is headroom.  The movie keeps the same frame
+ * rate, frames are just shown for more than 1 tick.
+ *
+ * If a `FrameDiff` is set then each frame is compared with the previous one (on the encoder
+ * thread) - frames without any changed tiles are repeats and aren't encoded at all, the previous
+ * frame is just shown for longer.
+ *
+ * Frames are grabbed into the images of a bounded `FramePool` which are recycled once they have
+ * been encoded, repeated or dropped - so steady state recording doesn't create new frame images.
+ * The pool is filled lazily and can be passed on to the next pipeline (e.g. the next recording of
+ * the same recorder), so its images are only created once.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+public class RecorderPipeline {
+
+    // Constants
+
+    private static final String GRAB_THREAD_NAME = "capture-grab-";
+    private static final String ENCODE_THREAD_NAME = "capture-encode-";
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final int MAX_DEGRADE_FACTOR = 8; // i.e. grab every 8th tick at most
+    private static final double BEHIND_RATIO = 0.8; // of the time between grabs
+    private static final double HEADROOM_RATIO = 0.5; // of the time between grabs at a higher rate
+    private static final int FRAMES_IN_USE = 3; // being grabbed, being encoded + pending encode
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    // Private fields
+
+    private final FrameGrabber grabber;
+    private final MovieWriter writer;
+    private final FrameRingBuffer buffer;
+    private final FramePool framePool;
+    private final long allocatedAtStart; // by the frame pool (if it was reused)
+    private final Backpressure backpressure;
+    private final int frameRate;
+    private final int maxTicksPerGrab; // more than 1 if adaptive
+    private final FrameDiff frameDiff; // optional
+    private final RecorderClock clock;
+    private final Thread grabThread;
+    private final Thread encodeThread;
+    private final AtomicLong framesGrabbed = new AtomicLong();
+    private final AtomicLong framesWritten = new AtomicLong();
+    private final AtomicLong framesRepeated = new AtomicLong();
+
+    private volatile int ticksPerGrab = 1;
+    private volatile long grabNanos; // moving average of grab time
+    private volatile long encodeNanos; // moving average of encode time
+    private volatile boolean grabbing;
+    private volatile boolean cancelled;
+    private volatile Exception error;
+
+    /**
+     * Create a pipeline which grabs frames of `width` x `height` pixels.  If `minFrameRate` is
+     * lower than `frameRate` then the pipeline is adaptive (grabs frames at between `minFrameRate`
+     * and `frameRate` frames per second).  If it isn't set (0) it's the same as the frame rate.
+     * The `framePool` of a previous pipeline can be passed in to reuse its images - a new pool is
+     * created if it isn't set or is for a different frame / buffer size.  The `clock` defaults to
+     * the system clock.
+     */
+    @Builder
+    private RecorderPipeline(FrameGrabber grabber, MovieWriter writer, int width, int height,
+        int frameRate, int minFrameRate, int bufferFrames, Backpressure backpressure,
+        FrameDiff frameDiff, FramePool framePool, RecorderClock clock) {
+        if (minFrameRate == 0) {
+            minFrameRate = frameRate;
+        }
+        if (frameRate < 1 || minFrameRate < 1) {
+            throw new IllegalArgumentException("Frame rate must be at least 1");
+        }
+        this.grabber = grabber;
+        this.writer = writer;
+        this.frameRate = frameRate;
+        this.maxTicksPerGrab = Math.max(frameRate / minFrameRate, 1);
+        this.frameDiff = frameDiff;
+        this.clock = clock != null ? clock : RecorderClock.SYSTEM;
+        this.backpressure = backpressure != null ? backpressure
+            : Backpressure.DEFAULT_BACKPRESSURE;
+        int poolSize = bufferFrames + FRAMES_IN_USE;
+        this.framePool = framePool != null && framePool.isFor(width, height, poolSize) ? framePool
+            : new FramePool(width, height, poolSize);
+        this.allocatedAtStart = this.framePool.getAllocated();
+        this.buffer = new FrameRingBuffer(bufferFrames, this.backpressure,
+            this.framePool::release);
+
+        int count = THREAD_COUNT.incrementAndGet();
+        this.grabThread = new Thread(this::grabFrames, GRAB_THREAD_NAME + count);
+        this.grabThread.setDaemon(true);
+        this.encodeThread = new Thread(this::encodeFrames, ENCODE_THREAD_NAME + count);
+        this.encodeThread.setDaemon(true);
+    }
+
+    /**
+     * Start grabbing and encoding frames.
+     */
+    public void start() {
+        grabbing = true;
+        encodeThread.start();
+        grabThread.start();
+    }
+
+    /**
+     * Stop grabbing, wait for the buffered frames to be encoded and close the movie writer.
+     */
+    public void stop() throws IOException {
+        finish();
+        if (error != null) {
+            throw error instanceof IOException ? (IOException) error : new IOException(error);
+        }
+        log.debug("Recording stopped - " + framesGrabbed.get() + " frames grabbed, "
+            + buffer.getDropped() + " dropped, " + framesRepeated.get() + " repeated, "
+            + framesWritten.get() + " written (grabbing at " + getFrameRate() + " fps, "
+            + Math.round(getSkippedTileRatio() * 100) + "% tiles unchanged)");
+    }
+
+    /**
+     * Stop grabbing, discard any buffered frames and close the movie writer.
+     */
+    public void cancel() {
+        cancelled = true;
+        buffer.clear();
+        try {
+            finish();
+        } catch (IOException ioEx) {
+            log.debug("Error closing cancelled recording", ioEx);
+        }
+    }
+
+    /**
+     * Return the current grab rate i.e. the frame rate unless adaptive (or degrading).
+     */
+    public double getFrameRate() {
+        return (double) frameRate / ticksPerGrab;
+    }
+
+    public long getFramesGrabbed() {
+        return framesGrabbed.get();
+    }
+
+    public long getFramesDropped() {
+        return buffer.getDropped();
+    }
+
+    public long getFramesWritten() {
+        return framesWritten.get();
+    }
+
+    /**
+     * Return the number of frames which weren't encoded as nothing had changed.
+     */
+    public long getFramesRepeated() {
+        return framesRepeated.get();
+    }
+
+    /**
+     * Return the number of frame images which were created because the frame pool was empty (0 in
+     * steady state).
+     */
+    public long getFramesAllocated() {
+        return framePool.getAllocated() - allocatedAtStart;
+    }
+
+    /**
+     * Return the frame pool, so it can be reused by the next pipeline.
+     */
+    public FramePool getFramePool() {
+        return framePool;
+    }
+
+    /**
+     * Return the ratio of tiles which hadn't changed since the previous frame (0 if frames aren't
+     * being compared).
+     */
+    public double getSkippedTileRatio() {
+        return frameDiff != null ? frameDiff.getSkippedTileRatio() : 0;
+    }
+
+    // Private methods
+
+    private void finish() throws IOException {
+        grabbing = false;
+        try {
+            grabThread.interrupt(); // wake up from sleeping / waiting for a free slot
+            grabThread.join();
+            buffer.close();
+            encodeThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Grab thread - grab a frame every tick.  If a grab takes longer than a tick then the missed
+     * ticks are skipped (rather than grabbed in a burst).
+     */
+    private void grabFrames() {
+        long interval = NANOS_PER_SECOND / frameRate;
+        long start = clock.nanoTime();
+        int degradeFactor = 1;
+        long nextGrabTick = 0;
+        long nextAdaptTick = frameRate; // i.e. every second
+        try {
+            for (long tick = 0; grabbing; ) {
+                if (tick >= nextAdaptTick) {
+                    adapt(interval);
+                    nextAdaptTick = tick + frameRate;
+                }
+                if (backpressure == Backpressure.degrade) {
+                    degradeFactor = degradeFactor(degradeFactor);
+                }
+                if (tick >= nextGrabTick) {
+                    long grabStart = clock.nanoTime();
+                    BufferedImage image = framePool.acquire();
+                    grabber.grab(image);
+                    framesGrabbed.incrementAndGet();
+                    if (!buffer.put(image, grabStart - start)) {
+                        framePool.release(image);
+                    }
+                    grabNanos = average(grabNanos, clock.nanoTime() - grabStart);
+                    nextGrabTick = tick + ticksPerGrab * degradeFactor;
+                }
+                tick = Math.max(tick + 1, (clock.nanoTime() - start) / interval);
+                long wait = start + tick * interval - clock.nanoTime();
+                if (wait > 0) {
+                    clock.sleep(wait);
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped while sleeping / waiting for a free slot
+        } catch (RuntimeException rtEx) {
+            log.warn("Error grabbing frame", rtEx);
+            error = rtEx;
+        }
+    }
+
+    /**
+     * Lower the grab rate (if adaptive) if grabbing / encoding is falling behind, or raise it again
+     * if there is headroom.
+     */
+    private void adapt(long interval) {
+        if (maxTicksPerGrab == 1) {
+            return;
+        }
+        long busyNanos = Math.max(grabNanos, encodeNanos);
+        if (ticksPerGrab < maxTicksPerGrab && (buffer.isBackedUp()
+            || busyNanos > ticksPerGrab * interval * BEHIND_RATIO)) {
+            ticksPerGrab++;
+            log.debug("Recorder falling behind - lowering frame rate to " + getFrameRate());
+        } else if (ticksPerGrab > 1 && buffer.size() == 0
+            && busyNanos < (ticksPerGrab - 1) * interval * HEADROOM_RATIO) {
+            ticksPerGrab--;
+            log.debug("Recorder has headroom - raising frame rate to " + getFrameRate());
+        }
+    }
+
+    private static long average(long average, long nanos) {
+        return average == 0 ? nanos : average + (nanos - average) / 4;
+    }
+
+    /**
+     * Halve the grab rate while the buffer is backed up and double it again once it has drained.
+     */
+    private int degradeFactor(int degradeFactor) {
+        if (buffer.isBackedUp()) {
+            return Math.min(degradeFactor * 2, MAX_DEGRADE_FACTOR);
+        }
+        if (buffer.size() == 0) {
+            return Math.max(degradeFactor / 2, 1);
+        }
+        return degradeFactor;
+    }
+
+    /**
+     * Encoder thread - each frame is held until the next one arrives so that the number of ticks
+     * it's shown for is known.  If 2 frames fall on the same tick only the latest is written and
+     * repeated frames (if comparing frames) are skipped.
+     */
+    private void encodeFrames() {
+        Frame frame = new Frame();
+        BufferedImage pending = null;
+        long pendingTick = 0;
+        long lastTick = 0; // of the last frame taken (including repeats)
+        try {
+            while (buffer.take(frame) && !cancelled) {
+                long tick = Math
+                    .round(frame.getTimestamp() * (double) frameRate / NANOS_PER_SECOND);
+                lastTick = Math.max(tick, lastTick);
+                if (frameDiff != null && frameDiff.diff(frame.getImage()) == 0 && pending != null) {
+                    framesRepeated.incrementAndGet();
+                    framePool.release(frame.getImage());
+                    frame.clear();
+                    continue;
+                }
+                if (pending != null && tick > pendingTick) {
+                    long encodeStart = clock.nanoTime();
+                    writer.write(pending, (int) (tick - pendingTick));
+                    encodeNanos = average(encodeNanos, clock.nanoTime() - encodeStart);
+                    framesWritten.incrementAndGet();
+                }
+                if (pending == null || tick > pendingTick) {
+                    pendingTick = tick;
+                }
+                framePool.release(pending); // written or replaced by a frame of the same tick
+                pending = frame.getImage();
+                frame.clear();
+            }
+            if (pending != null && !cancelled) {
+                writer.write(pending, (int) (lastTick - pendingTick + 1));
+                framesWritten.incrementAndGet();
+            }
+            framePool.release(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Error encoding frame", ex);
+            error = ex;
+            grabbing = false;
+            buffer.close();
+            buffer.clear();
+        }
+    }
+
+}
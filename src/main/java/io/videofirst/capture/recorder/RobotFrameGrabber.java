@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder;
+
+import java.awt.AWTException;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsDevice;
+import java.awt.MouseInfo;
+import java.awt.Point;
+import java.awt.PointerInfo;
+import java.awt.Rectangle;
+import java.awt.Robot;
+import java.awt.image.BufferedImage;
+
+/**
+ * Frame grabber which uses `java.awt.Robot` to grab the capture area of a screen, with the mouse
+ * pointer drawn on top (as a black arrow).
+ *
+ * @author Bob Marks
+ */
+public class RobotFrameGrabber implements FrameGrabber {
+
+    // Constants
+
+    private static final int[] CURSOR_X = {0, 0, 4, 7, 9, 6, 11};
+    private static final int[] CURSOR_Y = {0, 15, 11, 17, 16, 10, 10};
+
+    // Private fields
+
+    private final Robot robot;
+    private final GraphicsDevice device;
+    private final Rectangle captureArea;
+    private final int[] cursorX = new int[CURSOR_X.length];
+    private final int[] cursorY = new int[CURSOR_Y.length];
+
+    public RobotFrameGrabber(GraphicsDevice device, Rectangle captureArea) throws AWTException {
+        this.robot = new Robot(device);
+        this.device = device;
+        this.captureArea = new Rectangle(captureArea);
+    }
+
+    @Override
+    public void grab(BufferedImage image) {
+        // NOTE - the robot always creates a new image but it's only used until it has been copied
+        BufferedImage capture = robot.createScreenCapture(captureArea);
+        if (capture.getType() == image.getType()) {
+            image.getRaster().setDataElements(0, 0, capture.getRaster());
+        } else {
+            Graphics2D graphics = image.createGraphics();
+            try {
+                graphics.drawImage(capture, 0, 0, null);
+            } finally {
+                graphics.dispose();
+            }
+        }
+        drawCursor(image);
+    }
+
+    // Private methods
+
+    private void drawCursor(BufferedImage image) {
+        PointerInfo pointerInfo = MouseInfo.getPointerInfo();
+        if (pointerInfo == null || !device.equals(pointerInfo.getDevice())) {
+            return;
+        }
+        Point location = pointerInfo.getLocation();
+        if (!captureArea.contains(location)) {
+            return;
+        }
+        for (int i = 0; i < cursorX.length; i++) {
+            cursorX[i] = CURSOR_X[i] + location.x - captureArea.x;
+            cursorY[i] = CURSOR_Y[i] + location.y - captureArea.y;
+        }
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.BLACK);
+            graphics.fillPolygon(cursorX, cursorY, cursorX.length);
+            graphics.setColor(Color.WHITE);
+            graphics.drawPolygon(cursorX, cursorY, cursorX.length);
+        } finally {
+            graphics.dispose();
+        }
+    }
+
+}
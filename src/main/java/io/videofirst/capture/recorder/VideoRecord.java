@@ -23,6 +23,8 @@
  */
 package io.videofirst.capture.recorder;
 
+import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.VideoSettings;
 import io.videofirst.capture.model.display.DisplayCapture;
 import lombok.Builder;
 import lombok.Value;
@@ -38,8 +40,24 @@ import lombok.Value;
 public class VideoRecord {
 
     private final String id;
+    private final String project;
     private final String folder;
     private final String format;
     private final DisplayCapture capture;
+    private final VideoSettings video; // overrides of the default video settings (optional)
+
+    /**
+     * Create the video record of a capture.
+     */
+    public static VideoRecord from(Capture capture) {
+        return VideoRecord.builder()
+            .id(capture.getId())
+            .project(capture.getProject())
+            .folder(capture.getFolder())
+            .format(capture.getFormat())
+            .capture(capture.getCapture())
+            .video(capture.getVideo())
+            .build();
+    }
 
 }
@@ -23,6 +23,8 @@
  */
 package io.videofirst.capture.recorder;
 
+import java.io.File;
+
 /**
  * VideoRecorder interface.  Implementations of this interface should do 3 things - (1) begin
  * recording a screen cast, (2) stop recording and save a capture video OR (3) discard video if it's
@@ -32,13 +34,16 @@ package io.videofirst.capture.recorder;
  */
 public interface VideoRecorder {
 
+    String EXT_FAILED = "failed"; // added to temp files which couldn't be recovered
+
     /**
      * Begin recording video.
      */
     void record(VideoRecord videoRecord);
 
     /**
-     * Stop recording and save video to the specified filename.
+     * Stop recording and save video to the specified filename.  If the video can't be saved an
+     * exception is thrown and the temporary video is kept (so it can be recovered).
      */
     void stop();
 
@@ -47,4 +52,12 @@ public interface VideoRecorder {
      */
     void cancel();
 
+    /**
+     * Recover the partial video of a recording which was never stopped (e.g. the application was
+     * killed) and save it like `stop` does.  Returns the saved video file (or null if there's no
+     * video to recover).  If it can't be recovered its temp file is renamed with a `.failed`
+     * extension, so it isn't recovered again.
+     */
+    File recover(VideoRecord videoRecord);
+
 }
@@ -0,0 +1,390 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder.monte;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import lombok.Value;
+
+/**
+ * Recovers the partial AVI file of a recording which was never stopped (e.g. the application was
+ * killed).  Monte writes each frame (a `00dc` chunk) as it's recorded, but only fills in the RIFF,
+ * `hdrl` and `movi` headers and writes the `idx1` index chunk when the recording is stopped.
+ *
+ * The frames of the partial file are scanned (a truncated last frame is dropped) and copied into a
+ * new AVI file, followed by a rebuilt `idx1` chunk.  The `hdrl` headers of the partial file are
+ * kept (with corrected frame counts) if they were written, otherwise they're rebuilt from the
+ * video format which the recorder uses.
+ *
+ * @author Bob Marks
+ */
+public class AviRecovery {
+
+    // Constants
+
+    private static final int RIFF = fourCC("RIFF");
+    private static final int LIST = fourCC("LIST");
+    private static final int AVI = fourCC("AVI ");
+    private static final int HDRL = fourCC("hdrl");
+    private static final int AVIH = fourCC("avih");
+    private static final int STRL = fourCC("strl");
+    private static final int STRH = fourCC("strh");
+    private static final int STRF = fourCC("strf");
+    private static final int MOVI = fourCC("movi");
+    private static final int IDX1 = fourCC("idx1");
+    private static final int JUNK = fourCC("JUNK");
+    private static final int VIDS = fourCC("vids");
+
+    private static final int AVIF_HASINDEX = 0x10;
+    private static final int AVIIF_KEYFRAME = 0x10;
+    private static final int MAX_STREAMS = 100; // stream numbers are 2 digits
+    private static final int MAX_HEADER_SIZE = 64 * 1024; // bytes searched for the headers
+
+    private AviRecovery() {
+    }
+
+    /**
+     * Recover a partial AVI file into a new video file.  Returns the number of frames which were
+     * recovered (if 0 then no video file is written).  The new video file has the same last
+     * modified time as the partial file i.e. the time the last frame was written.
+     */
+    public static int recover(File partialFile, File videoFile, VideoFormat format)
+        throws IOException {
+        try (FileChannel in = FileChannel.open(partialFile.toPath(), StandardOpenOption.READ)) {
+            long size = in.size();
+            ByteBuffer head = read(in, 0, (int) Math.min(size, MAX_HEADER_SIZE));
+
+            // Find the headers / first frame ...
+            ByteBuffer hdrl = null;
+            long moviStart = -1; // position of the first chunk in the `movi` list
+            if (head.limit() >= 12 && head.getInt(0) == RIFF && head.getInt(8) == AVI) {
+                for (int pos = 12; pos + 12 <= head.limit(); ) {
+                    int id = head.getInt(pos);
+                    int length = head.getInt(pos + 4);
+                    if (id == LIST && head.getInt(pos + 8) == MOVI) {
+                        moviStart = pos + 12;
+                        break;
+                    }
+                    if (length <= 0 || pos + 8L + length > head.limit()) {
+                        break; // placeholder i.e. the headers were never written
+                    }
+                    if (id == LIST && head.getInt(pos + 8) == HDRL && isWritten(head, pos,
+                        length)) {
+                        hdrl = copy(head, pos, 8 + length);
+                    }
+                    pos += 8 + length + (length & 1);
+                }
+            }
+            if (moviStart == -1) {
+                moviStart = findFirstFrame(head, size);
+                if (moviStart == -1) {
+                    return 0;
+                }
+            }
+
+            // ... then index every complete frame
+            Index index = new Index(moviStart, format.getKeyFrameInterval());
+            ByteBuffer chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            long moviEnd = moviStart;
+            for (long pos = moviStart; pos + 8 <= size; ) {
+                chunkHeader.clear();
+                readFully(in, chunkHeader, pos);
+                int id = chunkHeader.getInt(0);
+                long length = chunkHeader.getInt(4) & 0xffffffffL;
+                if (pos + 8 + length > size) {
+                    break; // truncated
+                }
+                if (isFrame(id)) {
+                    index.add(id, pos, (int) length);
+                } else if (id != JUNK) {
+                    break; // `idx1` of a complete file or data which was never written
+                }
+                moviEnd = pos + 8 + length;
+                pos = moviEnd + (length & 1);
+            }
+            if (index.getFrames(0) == 0) {
+                return 0;
+            }
+
+            if (hdrl != null) {
+                updateHeaders(hdrl, index);
+            } else {
+                hdrl = createHeaders(format, index);
+            }
+            write(in, moviStart, moviEnd, hdrl, index, videoFile);
+            videoFile.setLastModified(partialFile.lastModified());
+            return index.getFrames(0);
+        }
+    }
+
+    // Private static methods
+
+    private static void write(FileChannel in, long moviStart, long moviEnd, ByteBuffer hdrl,
+        Index index, File videoFile) throws IOException {
+        long moviSize = moviEnd - moviStart;
+        long moviPadding = moviSize & 1;
+        byte[] idx1 = index.toByteArray();
+        long riffSize = 4 + hdrl.limit() + 12 + moviSize + moviPadding + 8 + idx1.length;
+
+        try (FileChannel out = FileChannel.open(videoFile.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(12 + hdrl.limit() + 12)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(RIFF).putInt((int) riffSize).putInt(AVI);
+            header.put(hdrl.duplicate());
+            header.putInt(LIST).putInt((int) (4 + moviSize + moviPadding)).putInt(MOVI);
+            header.flip();
+            writeFully(out, header);
+
+            for (long pos = moviStart; pos < moviEnd; ) {
+                pos += in.transferTo(pos, moviEnd - pos, out);
+            }
+
+            ByteBuffer trailer = ByteBuffer.allocate((int) moviPadding + 8 + idx1.length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            if (moviPadding == 1) {
+                trailer.put((byte) 0);
+            }
+            trailer.putInt(IDX1).putInt(idx1.length).put(idx1);
+            trailer.flip();
+            writeFully(out, trailer);
+            out.force(true);
+        }
+    }
+
+    /**
+     * Set the frame counts / index flag of `hdrl` headers which were written by the recorder.
+     */
+    private static void updateHeaders(ByteBuffer hdrl, Index index) {
+        int stream = 0;
+        for (int pos = 12; pos + 8 <= hdrl.limit(); ) {
+            int id = hdrl.getInt(pos);
+            int length = hdrl.getInt(pos + 4);
+            if (id == AVIH) {
+                hdrl.putInt(pos + 8 + 12, hdrl.getInt(pos + 8 + 12) | AVIF_HASINDEX);
+                hdrl.putInt(pos + 8 + 16, index.getFrames(0));
+            } else if (id == LIST && hdrl.getInt(pos + 8) == STRL) {
+                int strh = pos + 12;
+                if (hdrl.getInt(strh) == STRH) {
+                    hdrl.putInt(strh + 8 + 32, index.getFrames(stream));
+                }
+                stream++;
+            }
+            pos += 8 + length + (length & 1);
+        }
+    }
+
+    /**
+     * Create the `hdrl` headers of a single video stream.
+     */
+    private static ByteBuffer createHeaders(VideoFormat format, Index index) {
+        int width = format.getWidth();
+        int height = format.getHeight();
+        int frames = index.getFrames(0);
+        int compression = fourCC(format.getCompression());
+
+        ByteBuffer hdrl = ByteBuffer.allocate(200).order(ByteOrder.LITTLE_ENDIAN);
+        hdrl.putInt(LIST).putInt(192).putInt(HDRL);
+
+        hdrl.putInt(AVIH).putInt(56)
+            .putInt(1000000 / format.getFrameRate()) // micro seconds per frame
+            .putInt(index.getMaxLength() * format.getFrameRate()) // max bytes per second
+            .putInt(0) // padding granularity
+            .putInt(AVIF_HASINDEX)
+            .putInt(frames)
+            .putInt(0) // initial frames
+            .putInt(1) // streams
+            .putInt(index.getMaxLength()) // suggested buffer size
+            .putInt(width).putInt(height)
+            .putInt(0).putInt(0).putInt(0).putInt(0); // reserved
+
+        hdrl.putInt(LIST).putInt(116).putInt(STRL);
+        hdrl.putInt(STRH).putInt(56)
+            .putInt(VIDS).putInt(compression)
+            .putInt(0) // flags
+            .putShort((short) 0).putShort((short) 0) // priority, language
+            .putInt(0) // initial frames
+            .putInt(1).putInt(format.getFrameRate()) // scale, rate
+            .putInt(0) // start
+            .putInt(frames)
+            .putInt(index.getMaxLength()) // suggested buffer size
+            .putInt(-1) // quality (default)
+            .putInt(0) // sample size (varies)
+            .putShort((short) 0).putShort((short) 0)
+            .putShort((short) width).putShort((short) height);
+        hdrl.putInt(STRF).putInt(40) // BITMAPINFOHEADER
+            .putInt(40)
+            .putInt(width).putInt(height)
+            .putShort((short) 1).putShort((short) format.getDepth())
+            .putInt(compression)
+            .putInt(width * height * format.getDepth() / 8)
+            .putInt(0).putInt(0).putInt(0).putInt(0);
+        hdrl.flip();
+        return hdrl;
+    }
+
+    /**
+     * Returns true if the `avih` header of a `hdrl` list has been filled in.
+     */
+    private static boolean isWritten(ByteBuffer head, int pos, int length) {
+        int avih = pos + 12;
+        return avih + 12 <= pos + 8 + length && head.getInt(avih) == AVIH
+            && head.getInt(avih + 8) != 0;
+    }
+
+    /**
+     * Find the first frame of a file whose headers were never written (they're zero filled).
+     */
+    private static long findFirstFrame(ByteBuffer head, long size) {
+        for (int pos = 12; pos + 8 <= head.limit(); pos += 2) {
+            if (isFrame(head.getInt(pos))
+                && pos + 8 + (head.getInt(pos + 4) & 0xffffffffL) <= size) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns true if a chunk ID is a frame i.e. a 2 digit stream number followed by `dc`
+     * (compressed video), `db` (uncompressed video), `wb` (audio) or `pc` (palette change).
+     */
+    private static boolean isFrame(int id) {
+        int type = id >>> 16;
+        return isDigit(id & 0xff) && isDigit((id >>> 8) & 0xff) && (type == twoCC("dc")
+            || type == twoCC("db") || type == twoCC("wb") || type == twoCC("pc"));
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int fourCC(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.US_ASCII))
+            .order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    private static int twoCC(String value) {
+        return value.charAt(0) | value.charAt(1) << 8;
+    }
+
+    private static ByteBuffer read(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(in, buffer, position);
+        return buffer;
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position)
+        throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) == -1) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static ByteBuffer copy(ByteBuffer buffer, int position, int length) {
+        ByteBuffer copy = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer source = buffer.duplicate();
+        source.position(position).limit(position + length);
+        copy.put(source).flip();
+        return copy;
+    }
+
+    // Public classes
+
+    /**
+     * Video format of the recorder, used to rebuild the headers of a partial file.
+     */
+    @Value
+    public static class VideoFormat {
+
+        private final String compression; // FourCC e.g. `tscc`
+        private final int depth; // bits per pixel
+        private final int width;
+        private final int height;
+        private final int frameRate;
+        private final int keyFrameInterval; // frames
+
+    }
+
+    // Private classes
+
+    /**
+     * The entries of the `idx1` chunk (offsets are relative to the `movi` ID).
+     */
+    private static class Index {
+
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        private final ByteBuffer entry = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        private final int[] frames = new int[MAX_STREAMS];
+        private final long moviStart;
+        private final int keyFrameInterval;
+        private int maxLength;
+
+        Index(long moviStart, int keyFrameInterval) {
+            this.moviStart = moviStart;
+            this.keyFrameInterval = Math.max(1, keyFrameInterval);
+        }
+
+        void add(int id, long position, int length) {
+            int stream = ((id & 0xff) - '0') * 10 + ((id >>> 8) & 0xff) - '0';
+            boolean keyFrame = frames[stream] % keyFrameInterval == 0;
+            entry.clear();
+            entry.putInt(id).putInt(keyFrame ? AVIIF_KEYFRAME : 0)
+                .putInt((int) (position - moviStart + 4)).putInt(length);
+            entries.write(entry.array(), 0, entry.capacity());
+            frames[stream]++;
+            maxLength = Math.max(maxLength, length);
+        }
+
+        int getFrames(int stream) {
+            return frames[stream];
+        }
+
+        int getMaxLength() {
+            return maxLength;
+        }
+
+        byte[] toByteArray() {
+            return entries.toByteArray();
+        }
+
+    }
+
+}
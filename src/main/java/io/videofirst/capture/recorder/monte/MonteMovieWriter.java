@@ -0,0 +1,69 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder.monte;
+
+import io.videofirst.capture.recorder.MovieWriter;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import org.monte.media.Format;
+import org.monte.media.avi.AVIWriter;
+
+/**
+ * Monte implementation of the MovieWriter interface - encodes frames to a single video track of
+ * an AVI file.
+ *
+ * @author Bob Marks
+ */
+public class MonteMovieWriter implements MovieWriter {
+
+    // Private fields
+
+    private final AVIWriter aviWriter;
+    private final int track;
+
+    /**
+     * Create the AVI file - the format must include the width and height of the frames.
+     */
+    public MonteMovieWriter(File file, Format format) throws IOException {
+        this.aviWriter = new AVIWriter(file);
+        try {
+            this.track = aviWriter.addTrack(format);
+        } catch (IOException | RuntimeException ex) {
+            aviWriter.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void write(BufferedImage image, int duration) throws IOException {
+        aviWriter.write(track, image, duration);
+    }
+
+    @Override
+    public void close() throws IOException {
+        aviWriter.close();
+    }
+
+}
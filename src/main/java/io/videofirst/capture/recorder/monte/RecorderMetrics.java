@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder.monte;
+
+import io.videofirst.capture.recorder.RecorderPipeline;
+import io.videofirst.capture.recorder.VideoRecorder;
+import io.videofirst.capture.service.SessionService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+/**
+ * Exposes the statistics of the current (or last) recording of each capture session via the
+ * actuator `/metrics` endpoint i.e. `recorder.*` for the default session and
+ * `recorder.<session id>.*` for other sessions.
+ *
+ * @author Bob Marks
+ */
+@Component
+@RequiredArgsConstructor
+public class RecorderMetrics implements PublicMetrics {
+
+    // Constants
+
+    private static final String PREFIX = "recorder.";
+
+    // Injected fields
+
+    private final SessionService sessionService;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        for (String sessionId : sessionService.status().keySet()) {
+            VideoRecorder videoRecorder = sessionService.videoRecorder(sessionId);
+            if (videoRecorder instanceof VideoRecorderMonte) {
+                String prefix = SessionService.DEFAULT_SESSION.equals(sessionId) ? PREFIX
+                    : PREFIX + sessionId + ".";
+                addMetrics(metrics, prefix, ((VideoRecorderMonte) videoRecorder).getLastPipeline());
+            }
+        }
+        return metrics;
+    }
+
+    // Private methods
+
+    private void addMetrics(List<Metric<?>> metrics, String prefix, RecorderPipeline pipeline) {
+        if (pipeline == null) {
+            return; // nothing recorded yet
+        }
+        metrics.add(new Metric<>(prefix + "frame.rate", pipeline.getFrameRate()));
+        metrics.add(new Metric<>(prefix + "frames.grabbed", pipeline.getFramesGrabbed()));
+        metrics.add(new Metric<>(prefix + "frames.dropped", pipeline.getFramesDropped()));
+        metrics.add(new Metric<>(prefix + "frames.repeated", pipeline.getFramesRepeated()));
+        metrics.add(new Metric<>(prefix + "frames.written", pipeline.getFramesWritten()));
+        metrics.add(new Metric<>(prefix + "frames.allocated", pipeline.getFramesAllocated()));
+        metrics.add(new Metric<>(prefix + "tiles.skipped.ratio", pipeline.getSkippedTileRatio()));
+    }
+
+}
@@ -32,82 +32,125 @@ import static org.monte.media.FormatKeys.MimeTypeKey;
 import static org.monte.media.VideoFormatKeys.CompressorNameKey;
 import static org.monte.media.VideoFormatKeys.DepthKey;
 import static org.monte.media.VideoFormatKeys.ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE;
+import static org.monte.media.VideoFormatKeys.HeightKey;
 import static org.monte.media.VideoFormatKeys.QualityKey;
+import static org.monte.media.VideoFormatKeys.WidthKey;
 
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.RecorderConfig;
+import io.videofirst.capture.dao.VideoFolders;
 import io.videofirst.capture.exception.VideoRecordException;
+import io.videofirst.capture.model.capture.VideoSettings;
 import io.videofirst.capture.model.display.DisplayCapture;
+import io.videofirst.capture.recorder.FrameDiff;
+import io.videofirst.capture.recorder.FrameGrabber;
+import io.videofirst.capture.recorder.FramePool;
+import io.videofirst.capture.recorder.MovieWriter;
+import io.videofirst.capture.recorder.RecorderPipeline;
+import io.videofirst.capture.recorder.RobotFrameGrabber;
 import io.videofirst.capture.recorder.VideoRecord;
 import io.videofirst.capture.recorder.VideoRecorder;
 import java.awt.AWTException;
-import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
 import java.awt.GraphicsEnvironment;
 import java.awt.Rectangle;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.regex.Pattern;
 import lombok.extern.slf4j.Slf4j;
 import org.monte.media.Format;
 import org.monte.media.FormatKeys;
 import org.monte.media.math.Rational;
-import org.monte.screenrecorder.ScreenRecorder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 /**
- * Monte implementation of the VideoRecorder interface.
+ * Monte implementation of the VideoRecorder interface.  Frames are grabbed and encoded (using
+ * Monte's AVI writer) on separate threads by a `RecorderPipeline`.  A recorder records one video
+ * at a time, so it's prototype scoped i.e. each capture session gets its own recorder.  The frame
+ * pool of a recording is kept for the next one, so frame images are only created once per recorder.
  *
  * @author Bob Marks
  */
 @Slf4j
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class VideoRecorderMonte implements VideoRecorder {
 
-    private static final int DEFAULT_FRAME_RATE = 10;
-
     // Fields created by constructor
 
-    private final GraphicsConfiguration graphicsConfiguration;
-    private final Format fileFormat;
-    private final Format screenFormat;
-    private final Format mouseFormat;
-    private final Format audioFormat;
+    private final GraphicsDevice graphicsDevice;
     private final File tempFolder;
-    private final File videoFolder;
-    private final int frameRate = DEFAULT_FRAME_RATE; // put in configuration in future
+    private final VideoFolders videoFolders;
+    private final RecorderConfig recorderConfig;
 
     // Other fields
 
-    private EnhancedScreenRecorder screenRecorder;
+    private RecorderPipeline pipeline;
+    private volatile RecorderPipeline lastPipeline; // current or last recording (for metrics)
+    private FramePool framePool; // kept for the next recording
     private VideoRecord videoRecord;
+    private File tempFile;
 
     /**
-     * Constructor which takes temporary video folder (while videos are being recorded) and final
-     * output folder.
+     * Constructor which takes temporary video folder (while videos are being recorded) and the
+     * video folders which finished videos are moved to (using the default recorder config).
      */
+    public VideoRecorderMonte(File tempFolder, VideoFolders videoFolders) {
+        this(tempFolder, videoFolders, CaptureConfig.builder().build());
+    }
+
     @Autowired
-    public VideoRecorderMonte(@Value("${capture_config.storage.videoFolder}") File tempFolder,
-        @Value("${capture_config.storage.videoFolder}") File videoFolder) {
+    public VideoRecorderMonte(@Value("${capture_config.storage.tempFolder}") File tempFolder,
+        VideoFolders videoFolders, CaptureConfig captureConfig) {
         this.tempFolder = tempFolder;
-        this.videoFolder = videoFolder;
+        this.videoFolders = videoFolders;
+        this.recorderConfig = captureConfig.getRecorder() != null ? captureConfig.getRecorder()
+            : new RecorderConfig();
 
-        graphicsConfiguration = getGraphicsConfiguration();
-        fileFormat = getFileFormat();
-        screenFormat = getScreenFormat(frameRate);
-        mouseFormat = getMouseFormat(frameRate);
-        audioFormat = getAudioFormat();
+        graphicsDevice = getGraphicsDevice();
     }
 
     @Override
     public void record(VideoRecord videoRecord) {
+        VideoSettings settings = recorderConfig.videoSettings(videoRecord.getVideo());
+        this.videoRecord = videoRecord;
+        DisplayCapture displayCapture = videoRecord.getCapture();
+        Rectangle captureArea = new Rectangle(displayCapture.getX(), displayCapture.getY(),
+            displayCapture.getWidth(), displayCapture.getHeight());
+        Format format = getScreenFormat(settings).prepend(WidthKey, captureArea.width,
+            HeightKey, captureArea.height);
+
+        tempFile = createTempFile(videoRecord);
         try {
-            this.videoRecord = videoRecord;
-            DisplayCapture displayCapture = videoRecord.getCapture();
-            Rectangle captureArea = new Rectangle(displayCapture.getX(), displayCapture.getY(),
-                displayCapture.getWidth(), displayCapture.getHeight());
-
-            screenRecorder = new EnhancedScreenRecorder(graphicsConfiguration,
-                captureArea, fileFormat, screenFormat, mouseFormat, audioFormat, tempFolder);
-            screenRecorder.start();
+            FrameGrabber grabber = new RobotFrameGrabber(graphicsDevice, captureArea);
+            MovieWriter writer = new MonteMovieWriter(tempFile, format);
+            pipeline = RecorderPipeline.builder()
+                .grabber(grabber)
+                .writer(writer)
+                .width(captureArea.width)
+                .height(captureArea.height)
+                .frameRate(settings.getFrameRate())
+                .minFrameRate(settings.getAdaptive() ? settings.getMinFrameRate()
+                    : settings.getFrameRate())
+                .bufferFrames(recorderConfig.getBufferFrames())
+                .backpressure(recorderConfig.getBackpressure())
+                .frameDiff(recorderConfig.isFrameDiff()
+                    ? new FrameDiff(recorderConfig.getTileSize()) : null)
+                .framePool(framePool)
+                .build();
+            framePool = pipeline.getFramePool();
+            lastPipeline = pipeline;
+            pipeline.start();
         } catch (IOException ioEx) {
             throw new VideoRecordException("Record exception when starting recording", ioEx);
         } catch (AWTException awtEx) {
@@ -117,8 +160,8 @@ public class VideoRecorderMonte implements VideoRecorder {
 
     @Override
     public void stop() {
-        if (screenRecorder == null) {
-            log.debug("The screenRecorder field is null - has the recording started yet?");
+        if (pipeline == null) {
+            log.debug("The pipeline field is null - has the recording started yet?");
             return;
         }
         if (videoRecord == null) {
@@ -126,97 +169,192 @@ public class VideoRecorderMonte implements VideoRecorder {
             return;
         }
 
-        screenRecorder.stop();
-
-        File videoDir = new File(videoFolder, videoRecord.getFolder());
-        videoDir.mkdirs(); // ensure directory structure is created
-
-        File tempFile = screenRecorder.getCreatedMovieFiles().get(0);
-        File videoFile = new File(videoDir, videoRecord.getId() + "." + videoRecord.getFormat());
-        tempFile.renameTo(videoFile);
+        try {
+            pipeline.stop();
+        } catch (IOException ioEx) {
+            throw new VideoRecordException("Record exception when stopping recording", ioEx);
+        } finally {
+            pipeline = null;
+        }
+        File videoFile = getVideoFile(videoRecord);
+        try {
+            move(tempFile, videoFile);
+        } catch (IOException ioEx) {
+            // the temp file (and recording file) are kept, so the video is recovered at startup
+            throw new VideoRecordException("Unable to move video [ " + tempFile + " ] to [ "
+                + videoFile + " ]", ioEx);
+        }
     }
 
     @Override
     public void cancel() {
-        if (screenRecorder == null) {
-            log.debug("Screen-recorder is null");
+        if (pipeline == null) {
+            log.debug("Pipeline is null");
             return;
         }
 
-        screenRecorder.stop();
+        pipeline.cancel();
+        pipeline = null;
 
         // Delete file if it exists
-        File tempFile = screenRecorder.getCreatedMovieFiles().get(0);
         if (tempFile != null) {
             tempFile.delete();
         }
     }
 
-    // Private methods
-
-    private GraphicsConfiguration getGraphicsConfiguration() {
-        GraphicsConfiguration GraphicsConfiguration = GraphicsEnvironment
-            .getLocalGraphicsEnvironment().getDefaultScreenDevice()
-            .getDefaultConfiguration();
-        return GraphicsConfiguration;
-    }
-
-    private Format getFileFormat() {
-        Format fileFormat = new Format(
-            MediaTypeKey, MediaType.VIDEO, MimeTypeKey, FormatKeys.MIME_AVI);
-        return fileFormat;
+    @Override
+    public File recover(VideoRecord videoRecord) {
+        File tempFile = findTempFile(videoRecord);
+        if (tempFile == null) {
+            return null;
+        }
+        DisplayCapture displayCapture = videoRecord.getCapture() != null ? videoRecord.getCapture()
+            : new DisplayCapture();
+        VideoSettings settings = recorderConfig.videoSettings(videoRecord.getVideo());
+        AviRecovery.VideoFormat videoFormat = new AviRecovery.VideoFormat(
+            ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE, settings.getDepth(), displayCapture.getWidth(),
+            displayCapture.getHeight(), settings.getFrameRate(), settings.getKeyFrameInterval());
+        File videoFile = getVideoFile(videoRecord);
+        try {
+            int frames = AviRecovery.recover(tempFile, videoFile, videoFormat);
+            tempFile.delete();
+            if (frames == 0) {
+                log.warn("No frames to recover in [ " + tempFile + " ]");
+                return null;
+            }
+            log.info("Recovered " + frames + " frames of [ " + tempFile + " ] to [ " + videoFile
+                + " ]");
+            return videoFile;
+        } catch (IOException ioEx) {
+            videoFile.delete();
+            VideoRecordException vrEx = new VideoRecordException(
+                "Error recovering video - " + tempFile, ioEx);
+            try {
+                markFailed(tempFile); // don't retry
+            } catch (IOException failedEx) {
+                vrEx.addSuppressed(failedEx);
+            }
+            throw vrEx;
+        }
     }
 
-    private Format getScreenFormat(int frameRate) {
-        Format screenFormat = new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey,
-            ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE,
-            CompressorNameKey, ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE,
-            DepthKey, 24, FrameRateKey, Rational.valueOf(frameRate),
-            QualityKey, 1.0f,
-            KeyFrameIntervalKey, 15 * 60);
-        return screenFormat;
+    /**
+     * Return the pipeline of the current (or last) recording, or null if nothing has been recorded.
+     */
+    public RecorderPipeline getLastPipeline() {
+        return lastPipeline;
     }
 
-    private Format getMouseFormat(int frameRate) {
-        Format mouseFormat = new Format(MediaTypeKey, MediaType.VIDEO, EncodingKey, "black",
-            FrameRateKey, Rational.valueOf(frameRate));
-        return mouseFormat;
-    }
+    // Private methods
 
-    public Format getAudioFormat() {
-        return null;
+    /**
+     * Create the temporary file of a recording.  If it already exists (e.g. a previous recording
+     * of the same capture) then a `-N` suffix is added.
+     */
+    private File createTempFile(VideoRecord videoRecord) {
+        tempFolder.mkdirs();
+        File movieFile = getTempFile(videoRecord);
+        for (int i = 2; movieFile.exists(); i++) {
+            movieFile = new File(tempFolder,
+                videoRecord.getId() + "-" + i + "." + videoRecord.getFormat());
+        }
+        return movieFile;
     }
 
     /**
-     * Extend Monte ScreenRecorder as some fields / methods are protected and we need access to
-     * them.
+     * Find the temporary file of a recording which was never stopped i.e. the most recently
+     * modified `<capture id>.<format>` or `<capture id>-N.<format>` file (or null if there's none).
+     * Any older ones are left over from earlier recordings of the same capture, so they're renamed
+     * with a `.failed` extension.
      */
-    private class EnhancedScreenRecorder extends ScreenRecorder {
-
-        public EnhancedScreenRecorder(GraphicsConfiguration cfg, Rectangle captureArea,
-            Format fileFormat, Format screenFormat, Format mouseFormat,
-            Format audioFormat, File movieFolder) throws IOException, AWTException {
-            super(cfg, captureArea, fileFormat, screenFormat, mouseFormat, audioFormat,
-                movieFolder);
+    private File findTempFile(VideoRecord videoRecord) {
+        Pattern tempFileName = Pattern.compile(Pattern.quote(videoRecord.getId()) + "(-[0-9]+)?"
+            + Pattern.quote("." + videoRecord.getFormat()));
+        File[] tempFiles = tempFolder
+            .listFiles((dir, name) -> tempFileName.matcher(name).matches());
+        if (tempFiles == null || tempFiles.length == 0) {
+            return null;
         }
-
-        @Override
-        public File createMovieFile(Format fileFormat) {
+        Arrays.sort(tempFiles, Comparator.comparingLong(File::lastModified).reversed());
+        for (int i = 1; i < tempFiles.length; i++) {
+            log.warn("Ignoring older temporary video [ " + tempFiles[i] + " ]");
             try {
-                return super.createMovieFile(fileFormat);
-            } catch (IOException e) {
-                throw new VideoRecordException(e);
+                markFailed(tempFiles[i]);
+            } catch (IOException ioEx) {
+                log.warn("Unable to rename older temporary video [ " + tempFiles[i] + " ] - "
+                    + ioEx.getMessage());
             }
         }
+        return tempFiles[0];
+    }
+
+    /**
+     * Rename a temp file with a `.failed` extension, so it's kept but never recovered.
+     */
+    private static void markFailed(File file) throws IOException {
+        move(file, new File(file.getPath() + "." + EXT_FAILED));
+    }
 
-        @Override
-        public void stop() {
+    /**
+     * Move a file, replacing the target if it exists.  The temp folder is often on a different
+     * filesystem to the video folders, so if the file can't be renamed it's copied and then the
+     * original is deleted.
+     */
+    private static void move(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return;
+        } catch (AtomicMoveNotSupportedException | FileAlreadyExistsException ex) {
+            // not the same filesystem (or the target can't be atomically replaced)
+        }
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ioEx) {
             try {
-                super.stop();
-            } catch (IOException e) {
-                throw new VideoRecordException(e);
+                Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException copyEx) {
+                Files.deleteIfExists(target.toPath()); // partial copy
+                copyEx.addSuppressed(ioEx);
+                throw copyEx;
+            }
+            if (!source.delete()) {
+                log.warn("Unable to delete [ " + source + " ] after copying it to [ " + target
+                    + " ]");
             }
         }
     }
 
+    /**
+     * Return the temporary file of a recording (named after the capture ID, so it can be recovered
+     * if the recording is never stopped).
+     */
+    private File getTempFile(VideoRecord videoRecord) {
+        return new File(tempFolder, videoRecord.getId() + "." + videoRecord.getFormat());
+    }
+
+    /**
+     * Return the video file of a recording (in the video folder chosen for its project).
+     */
+    private File getVideoFile(VideoRecord videoRecord) {
+        File videoDir = new File(videoFolders.place(videoRecord.getProject()),
+            videoRecord.getFolder());
+        videoDir.mkdirs(); // ensure directory structure is created
+        return new File(videoDir, videoRecord.getId() + "." + videoRecord.getFormat());
+    }
+
+    private GraphicsDevice getGraphicsDevice() {
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice();
+    }
+
+    private Format getScreenFormat(VideoSettings settings) {
+        Format screenFormat = new Format(MediaTypeKey, MediaType.VIDEO,
+            MimeTypeKey, FormatKeys.MIME_AVI,
+            EncodingKey, ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE,
+            CompressorNameKey, ENCODING_AVI_TECHSMITH_SCREEN_CAPTURE,
+            DepthKey, settings.getDepth(), FrameRateKey, Rational.valueOf(settings.getFrameRate()),
+            QualityKey, settings.getQuality(),
+            KeyFrameIntervalKey, settings.getKeyFrameInterval());
+        return screenFormat;
+    }
+
 }
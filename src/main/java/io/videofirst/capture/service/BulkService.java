@@ -0,0 +1,55 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service;
+
+import io.videofirst.capture.model.bulk.BulkDeleteParams;
+import io.videofirst.capture.model.bulk.BulkJob;
+import io.videofirst.capture.model.capture.CaptureQuery;
+import java.util.List;
+
+/**
+ * Bulk service i.e. runs operations on many captures at once as background jobs, which can be
+ * polled for their progress.
+ *
+ * @author Bob Marks
+ */
+public interface BulkService {
+
+    /**
+     * Start a job which deletes the captures with the specified IDs or (if there are no IDs) the
+     * captures which match the filters of the query.  Returns straight away.
+     */
+    BulkJob delete(BulkDeleteParams params, CaptureQuery query);
+
+    /**
+     * Return the status of a job.
+     */
+    BulkJob status(String jobId);
+
+    /**
+     * Return the status of recent jobs, most recent first.
+     */
+    List<BulkJob> status();
+
+}
@@ -24,6 +24,8 @@
 package io.videofirst.capture.service;
 
 import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CapturePage;
+import io.videofirst.capture.model.capture.CaptureQuery;
 import io.videofirst.capture.model.capture.CaptureRecordParams;
 import io.videofirst.capture.model.capture.CaptureStatus;
 import io.videofirst.capture.model.capture.CaptureStopParams;
@@ -31,6 +33,7 @@ import io.videofirst.capture.model.capture.CaptureSummary;
 import io.videofirst.capture.model.display.DisplayUpdate;
 import java.util.List;
 import java.util.Observer;
+import java.util.stream.Stream;
 
 /**
  * High level capture service.
@@ -49,6 +52,16 @@ public interface CaptureService {
      */
     List<CaptureSummary> list();
 
+    /**
+     * Return a filtered / sorted page of capture summaries.
+     */
+    CapturePage list(CaptureQuery query);
+
+    /**
+     * Return a lazy stream of all the capture summaries which match a query.
+     */
+    Stream<CaptureSummary> stream(CaptureQuery query);
+
     /**
      * Return the current status i.e. is it idle or in progress.
      */
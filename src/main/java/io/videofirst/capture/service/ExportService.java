@@ -0,0 +1,46 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service;
+
+import io.videofirst.capture.enums.ExportFormat;
+import io.videofirst.capture.model.capture.CaptureQuery;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Export service i.e. writes the files of captures (data file + video) into a single archive.
+ *
+ * @author Bob Marks
+ */
+public interface ExportService {
+
+    /**
+     * Write an archive of the captures which match the filters of a query to an output stream
+     * (which isn't closed).  Captures are read one at a time, so memory use doesn't grow with the
+     * number of captures.
+     */
+    void export(CaptureQuery query, ExportFormat format, OutputStream outputStream)
+        throws IOException;
+
+}
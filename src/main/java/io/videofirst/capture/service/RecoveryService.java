@@ -0,0 +1,54 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service;
+
+import io.videofirst.capture.model.capture.Capture;
+import java.util.List;
+
+/**
+ * Crash recovery service i.e. recordings which were never stopped (e.g. the application was killed)
+ * are recovered when the application restarts.
+ *
+ * @author Bob Marks
+ */
+public interface RecoveryService {
+
+    /**
+     * Persist the data of a capture which has started recording, so it can be recovered if the
+     * recording is never stopped.
+     */
+    void recording(Capture capture);
+
+    /**
+     * Remove the persisted data of a capture once its recording has been stopped (or cancelled).
+     */
+    void stopped(String captureId);
+
+    /**
+     * Recover every recording which was never stopped i.e. save the frames of its partial video
+     * and register it as an `aborted` capture.  Returns the IDs of the recovered captures.
+     */
+    List<String> recover();
+
+}
@@ -0,0 +1,65 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service;
+
+import io.videofirst.capture.model.capture.CaptureRecordParams;
+import io.videofirst.capture.model.capture.CaptureStatus;
+import io.videofirst.capture.model.capture.CaptureStopParams;
+import io.videofirst.capture.model.display.DisplayCapture;
+import java.util.Observer;
+
+/**
+ * A single capture session of the SessionService (see `SessionService.defaultSession`).
+ * Observers are notified whenever its status changes.
+ *
+ * @author Bob Marks
+ */
+public interface Session {
+
+    /**
+     * Return the current status of this session i.e. is it idle or in progress.
+     */
+    CaptureStatus status();
+
+    /**
+     * Start recording the capture area of the display.
+     */
+    CaptureStatus record(CaptureRecordParams captureRecordParams, DisplayCapture displayCapture);
+
+    /**
+     * Stop recording and save the capture.
+     */
+    CaptureStatus stop(CaptureStopParams captureStopParams);
+
+    /**
+     * Cancel the current capture (if any).
+     */
+    CaptureStatus cancel();
+
+    /**
+     * Add an observer which is notified whenever the status of this session changes.
+     */
+    void addObserver(Observer observer);
+
+}
@@ -0,0 +1,80 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service;
+
+import io.videofirst.capture.model.capture.CaptureRecordParams;
+import io.videofirst.capture.model.capture.CaptureStatus;
+import io.videofirst.capture.model.capture.CaptureStopParams;
+import io.videofirst.capture.recorder.VideoRecorder;
+import java.util.Map;
+
+/**
+ * Capture sessions i.e. several captures which are recorded at the same time, each by its own
+ * video recorder (with its own capture area and status).  Sessions are identified by a session ID
+ * and are created when they first record.  The `default` session is the capture of CaptureService.
+ *
+ * @author Bob Marks
+ */
+public interface SessionService {
+
+    String DEFAULT_SESSION = "default";
+
+    /**
+     * Return the status of every session (keyed by session ID).  Idle sessions are removed, so
+     * this is the `default` session plus any session which is recording.
+     */
+    Map<String, CaptureStatus> status();
+
+    /**
+     * Return the status of a session (stopped if the session doesn't exist yet).
+     */
+    CaptureStatus status(String sessionId);
+
+    /**
+     * Start recording a session (created if it doesn't exist yet).  Fails if the maximum number of
+     * sessions are already recording (which includes the `default` session).
+     */
+    CaptureStatus record(String sessionId, CaptureRecordParams captureRecordParams);
+
+    /**
+     * Stop recording a session.
+     */
+    CaptureStatus stop(String sessionId, CaptureStopParams captureStopParams);
+
+    /**
+     * Cancel the current capture of a session (if any).
+     */
+    CaptureStatus cancel(String sessionId);
+
+    /**
+     * Return the video recorder of a session, or null if the session doesn't exist.
+     */
+    VideoRecorder videoRecorder(String sessionId);
+
+    /**
+     * Return the `default` session (created if it doesn't exist yet), which is never removed.
+     */
+    Session defaultSession();
+
+}
@@ -0,0 +1,52 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes files into an archive, one entry at a time, straight to an output stream.
+ *
+ * @author Bob Marks
+ */
+interface CaptureArchiveWriter {
+
+    /**
+     * Add a file to the archive.  Files which are already compressed (e.g. videos) should set
+     * `compress` to false so they're stored as they are.
+     */
+    void addFile(String name, File file, boolean compress) throws IOException;
+
+    /**
+     * Add an entry using the bytes of a file which doesn't exist on disk.
+     */
+    void addBytes(String name, byte[] bytes, long lastModified) throws IOException;
+
+    /**
+     * Write the end of the archive (the output stream isn't closed).
+     */
+    void finish() throws IOException;
+
+}
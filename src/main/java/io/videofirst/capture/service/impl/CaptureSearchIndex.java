@@ -0,0 +1,249 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import io.videofirst.capture.model.TestLog;
+import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import lombok.Value;
+
+/**
+ * Thread-safe, in-memory inverted index of the text of captures i.e. description, test error,
+ * test stack trace, meta values and test logs (log, category and tier).
+ *
+ * Text is split into lower case words (letters / digits).  A search returns the captures which
+ * contain every word of the search text, ranked by TF-IDF i.e. words which occur often in a
+ * capture but rarely in other captures score highest.  Only the postings of the searched words
+ * are visited, so searching doesn't depend on the number of captures.
+ *
+ * @author Bob Marks
+ */
+class CaptureSearchIndex {
+
+    // Constants
+
+    static final Comparator<Hit> BEST_FIRST = Comparator.comparingDouble(Hit::getScore)
+        .reversed().thenComparing(hit -> hit.getSummary().getId());
+
+    private static final int MAX_WORD_LENGTH = 64;
+
+    // Private fields
+
+    private final Map<String, Map<String, Integer>> postings = new HashMap<>(); // word -> ID -> TF
+    private final Map<String, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Add / replace the text of a capture.
+     */
+    void put(Capture capture) {
+        Map<String, Integer> words = new HashMap<>();
+        addText(words, capture.getDescription());
+        addText(words, capture.getTestError());
+        addText(words, capture.getTestStackTrace());
+        if (capture.getMeta() != null) {
+            capture.getMeta().values().forEach(value -> addText(words, value));
+        }
+        if (capture.getTestLogs() != null) {
+            for (TestLog testLog : capture.getTestLogs()) {
+                addText(words, testLog.getLog());
+                addText(words, testLog.getCat());
+                addText(words, testLog.getTier() != null ? testLog.getTier().name() : null);
+            }
+        }
+
+        String captureId = capture.getId();
+        lock.writeLock().lock();
+        try {
+            unlink(captureId);
+            documents.put(captureId, new Document(new CaptureSummary(capture), words.keySet()));
+            words.forEach((word, frequency) -> postings
+                .computeIfAbsent(word, w -> new HashMap<>()).put(captureId, frequency));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a capture from the index.
+     */
+    void remove(String captureId) {
+        lock.writeLock().lock();
+        try {
+            unlink(captureId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Return the best matching captures for some search text (which pass the filter).  If `limit`
+     * is set then only that many hits are returned.
+     */
+    List<Hit> search(String text, Predicate<CaptureSummary> filter, Integer limit) {
+        Set<String> words = words(text);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Bounded heap (worst hit at the head) so only `limit` hits are ever sorted
+        PriorityQueue<Hit> best = new PriorityQueue<>(BEST_FIRST.reversed());
+        lock.readLock().lock();
+        try {
+            // Visit the rarest word first, as every word must match
+            List<Map<String, Integer>> wordPostings = new ArrayList<>();
+            for (String word : words) {
+                Map<String, Integer> captureIds = postings.get(word);
+                if (captureIds == null) {
+                    return Collections.emptyList();
+                }
+                wordPostings.add(captureIds);
+            }
+            wordPostings.sort(Comparator.comparingInt(Map::size));
+
+            for (String captureId : wordPostings.get(0).keySet()) {
+                double score = 0;
+                for (Map<String, Integer> captureIds : wordPostings) {
+                    Integer frequency = captureIds.get(captureId);
+                    if (frequency == null) {
+                        score = -1; // doesn't contain every word
+                        break;
+                    }
+                    double idf = Math.log(1 + (double) documents.size() / captureIds.size());
+                    score += (1 + Math.log(frequency)) * idf;
+                }
+                if (score < 0) {
+                    continue;
+                }
+                Hit hit = new Hit(documents.get(captureId).getSummary(), score);
+                if (filter.test(hit.getSummary())) {
+                    best.add(hit);
+                    if (limit != null && best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Hit> hits = new ArrayList<>(best);
+        hits.sort(BEST_FIRST);
+        return hits;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Split text into unique, lower case words.
+     */
+    static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text != null) {
+            forEachWord(text, words::add);
+        }
+        return words;
+    }
+
+    // Private methods
+
+    private void unlink(String captureId) {
+        Document old = documents.remove(captureId);
+        if (old != null) {
+            for (String word : old.getWords()) {
+                Map<String, Integer> captureIds = postings.get(word);
+                captureIds.remove(captureId);
+                if (captureIds.isEmpty()) {
+                    postings.remove(word);
+                }
+            }
+        }
+    }
+
+    private static void addText(Map<String, Integer> words, String text) {
+        if (text != null) {
+            forEachWord(text, word -> words.merge(word, 1, Integer::sum));
+        }
+    }
+
+    private static void forEachWord(String text, Consumer<String> wordConsumer) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start == -1) {
+                start = i;
+            } else if (!wordChar && start != -1) {
+                String word = text.substring(start, Math.min(i, start + MAX_WORD_LENGTH));
+                wordConsumer.accept(word.toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    // Private classes
+
+    /**
+     * Search hit i.e. capture summary + score.
+     */
+    @Value
+    static class Hit {
+
+        private final CaptureSummary summary;
+        private final double score;
+
+    }
+
+    /**
+     * Indexed capture (the words are kept so the capture can be removed from the postings).
+     */
+    @Value
+    private static class Document {
+
+        private final CaptureSummary summary;
+        private final Set<String> words;
+
+    }
+
+}
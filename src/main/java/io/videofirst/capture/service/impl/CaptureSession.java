@@ -0,0 +1,188 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.exception.InvalidParameterException;
+import io.videofirst.capture.model.capture.CaptureRecordParams;
+import io.videofirst.capture.model.capture.CaptureStatus;
+import io.videofirst.capture.model.capture.CaptureStopParams;
+import io.videofirst.capture.model.display.DisplayCapture;
+import io.videofirst.capture.recorder.VideoRecord;
+import io.videofirst.capture.recorder.VideoRecorder;
+import io.videofirst.capture.service.InfoService;
+import io.videofirst.capture.service.RecoveryService;
+import io.videofirst.capture.service.Session;
+import java.util.Observable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Capture session - a video recorder with its own capture status, so several captures (each of
+ * its own capture area) can be recorded at the same time.  A session can be used by several
+ * requests at once, so its status is only changed while holding its lock.  Observers are notified
+ * (outside of the lock) whenever the status changes.  A session holds one of the shared recording
+ * slots while it's recording, so the limit applies to every session (including `default`).
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+class CaptureSession extends Observable implements Session {
+
+    // Private fields
+
+    @Getter
+    private final String id;
+    @Getter
+    private final VideoRecorder videoRecorder;
+    private final InfoService infoService;
+    private final CaptureDao captureDao;
+    private final RecoveryService recoveryService;
+    private final RecordingSlots recordingSlots;
+    private final Object lock = new Object();
+
+    private volatile CaptureStatus captureStatus = CaptureStatus.STOPPED;
+    int users; // requests using this session (guarded by the DefaultSessionService lock)
+
+    CaptureSession(String id, VideoRecorder videoRecorder, InfoService infoService,
+        CaptureDao captureDao, RecoveryService recoveryService, RecordingSlots recordingSlots) {
+        this.id = id;
+        this.videoRecorder = videoRecorder;
+        this.infoService = infoService;
+        this.captureDao = captureDao;
+        this.recoveryService = recoveryService;
+        this.recordingSlots = recordingSlots;
+    }
+
+    /**
+     * Return the current status of this session i.e. is it idle or in progress.
+     */
+    @Override
+    public CaptureStatus status() {
+        return captureStatus;
+    }
+
+    /**
+     * Start recording the capture area of the display.
+     */
+    @Override
+    public CaptureStatus record(CaptureRecordParams captureRecordParams,
+        DisplayCapture displayCapture) {
+        synchronized (lock) {
+            if (captureRecordParams.force()) {
+                cancelCapture();
+            }
+
+            boolean reserved = !captureStatus.isRecording();
+            if (reserved) {
+                recordingSlots.reserve(id);
+            }
+            CaptureStatus previousStatus = captureStatus;
+            try {
+                captureStatus = captureStatus
+                    .record(infoService.getInfo(), captureRecordParams, displayCapture);
+                videoRecorder.record(getVideoRecord());
+            } catch (RuntimeException rtEx) {
+                captureStatus = previousStatus; // e.g. invalid video settings
+                if (reserved) {
+                    recordingSlots.release();
+                }
+                throw rtEx;
+            }
+            recoveryService.recording(captureStatus.getCapture());
+        }
+
+        refreshObservers();
+        return status();
+    }
+
+    /**
+     * Stop recording and save the capture.
+     */
+    @Override
+    public CaptureStatus stop(CaptureStopParams captureStopParams) {
+        synchronized (lock) {
+            if (!captureStatus.isRecording()) {
+                throw new InvalidParameterException(
+                    "You can only stop a video when [ isRecording=true ]");
+            }
+
+            captureStatus = captureStatus.stop(captureStopParams);
+
+            try {
+                videoRecorder.stop();
+            } finally {
+                recordingSlots.release();
+            }
+
+            captureDao.save(captureStatus.getCapture());
+            recoveryService.stopped(captureStatus.getCapture().getId());
+        }
+
+        refreshObservers();
+        return status();
+    }
+
+    /**
+     * Cancel the current capture (if any).
+     */
+    @Override
+    public CaptureStatus cancel() {
+        synchronized (lock) {
+            cancelCapture();
+        }
+
+        refreshObservers();
+        return status();
+    }
+
+    // Private methods
+
+    private void cancelCapture() {
+        videoRecorder.cancel();  // cancel any recording if applicable
+        if (captureStatus.isRecording()) {
+            recoveryService.stopped(captureStatus.getCapture().getId());
+            recordingSlots.release();
+        }
+        captureStatus = CaptureStatus.STOPPED; // re-set status
+    }
+
+    /**
+     * Return video record.
+     */
+    private VideoRecord getVideoRecord() {
+        if (captureStatus == null || captureStatus.getCapture() == null) {
+            log.warn("Capture record is null");
+            return null;
+        }
+
+        return VideoRecord.from(captureStatus.getCapture());
+    }
+
+    private void refreshObservers() {
+        setChanged();
+        notifyObservers();    // notify any class which observe this session
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.model.capture.CaptureStats;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.model.capture.DurationStats;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Capture statistics which are updated incrementally i.e. saving / deleting a capture only
+ * updates the counts it belongs to (all captures, its project, its feature and the day it started),
+ * so returning the stats doesn't depend on the number of captures.
+ *
+ * Durations are counted in fixed histogram buckets (rather than kept), so percentiles are
+ * estimated by interpolating inside the bucket which contains them.
+ *
+ * @author Bob Marks
+ */
+class CaptureStatsAggregator {
+
+    // Constants
+
+    static final long[] DURATION_BUCKETS_IN_SECS = {1, 2, 5, 10, 20, 30, 60, 120, 300, 600, 1200,
+        1800, 3600};
+
+    private static final String OVERFLOW_BUCKET = "+Inf";
+
+    // Private fields
+
+    private final Map<String, CaptureSummary> summaries = new HashMap<>(); // last counted version
+    private final Counts all = new Counts();
+    private final Map<String, Counts> projects = new HashMap<>();
+    private final Map<String, Map<String, Counts>> features = new HashMap<>(); // project, feature
+    private final NavigableMap<LocalDate, Counts> days = new TreeMap<>();
+
+    /**
+     * Count a capture which has been added / changed (if changed its old version is uncounted).
+     */
+    synchronized void put(CaptureSummary summary) {
+        CaptureSummary old = summaries.put(summary.getId(), summary);
+        if (old != null) {
+            count(old, -1);
+        }
+        count(summary, 1);
+    }
+
+    synchronized void remove(String captureId) {
+        CaptureSummary old = summaries.remove(captureId);
+        if (old != null) {
+            count(old, -1);
+        }
+    }
+
+    synchronized int size() {
+        return summaries.size();
+    }
+
+    /**
+     * Return the stats of all captures, including the daily stats from `fromDay` (inclusive).
+     */
+    synchronized CaptureStats stats(LocalDate fromDay) {
+        CaptureStats stats = all.toStats();
+        stats.setProjects(toStats(projects, project -> {
+            CaptureStats projectStats = projects.get(project).toStats();
+            projectStats.setFeatures(toStats(features.get(project), null));
+            return projectStats;
+        }));
+        Map<String, CaptureStats> dayStats = new LinkedHashMap<>();
+        days.tailMap(fromDay, true)
+            .forEach((day, counts) -> dayStats.put(day.toString(), counts.toStats()));
+        stats.setDays(dayStats);
+        return stats;
+    }
+
+    // Private methods
+
+    private void count(CaptureSummary summary, int delta) {
+        Long durationMillis = null;
+        if (summary.getStarted() != null && summary.getFinished() != null) {
+            durationMillis = Duration.between(summary.getStarted(), summary.getFinished())
+                .toMillis();
+        }
+        all.add(summary, durationMillis, delta);
+
+        String project = summary.getProject();
+        if (project != null) {
+            add(projects, project, summary, durationMillis, delta);
+            if (summary.getFeature() != null) {
+                Map<String, Counts> projectFeatures = features
+                    .computeIfAbsent(project, key -> new HashMap<>());
+                add(projectFeatures, summary.getFeature(), summary, durationMillis, delta);
+                if (projectFeatures.isEmpty()) {
+                    features.remove(project);
+                }
+            }
+        }
+        if (summary.getStarted() != null) {
+            add(days, summary.getStarted().toLocalDate(), summary, durationMillis, delta);
+        }
+    }
+
+    /**
+     * Add to the counts of a key, which are removed once they're empty.
+     */
+    private static <K> void add(Map<K, Counts> countsMap, K key, CaptureSummary summary,
+        Long durationMillis, int delta) {
+        Counts counts = countsMap.computeIfAbsent(key, k -> new Counts());
+        counts.add(summary, durationMillis, delta);
+        if (counts.count == 0) {
+            countsMap.remove(key);
+        }
+    }
+
+    private static Map<String, CaptureStats> toStats(Map<String, Counts> countsMap,
+        Function<String, CaptureStats> statsFunction) {
+        Map<String, CaptureStats> stats = new TreeMap<>();
+        if (countsMap != null) {
+            countsMap.forEach((key, counts) -> stats.put(key,
+                statsFunction != null ? statsFunction.apply(key) : counts.toStats()));
+        }
+        return stats;
+    }
+
+    // Private classes
+
+    /**
+     * Counts of a group of captures.
+     */
+    private static class Counts {
+
+        private long count;
+        private final long[] testStatus = new long[TestStatus.values().length];
+        private final long[] type = new long[CaptureType.values().length];
+        private final long[] durations = new long[DURATION_BUCKETS_IN_SECS.length + 1];
+        private long durationCount;
+        private long totalDurationMillis;
+
+        private void add(CaptureSummary summary, Long durationMillis, int delta) {
+            count += delta;
+            if (summary.getTestStatus() != null) {
+                testStatus[summary.getTestStatus().ordinal()] += delta;
+            }
+            if (summary.getType() != null) {
+                type[summary.getType().ordinal()] += delta;
+            }
+            if (durationMillis != null && durationMillis >= 0) {
+                durations[bucket(durationMillis)] += delta;
+                durationCount += delta;
+                totalDurationMillis += delta * durationMillis;
+            }
+        }
+
+        private CaptureStats toStats() {
+            Map<TestStatus, Long> testStatusCounts = new EnumMap<>(TestStatus.class);
+            for (TestStatus status : TestStatus.values()) {
+                if (testStatus[status.ordinal()] > 0) {
+                    testStatusCounts.put(status, testStatus[status.ordinal()]);
+                }
+            }
+            Map<CaptureType, Long> typeCounts = new EnumMap<>(CaptureType.class);
+            for (CaptureType captureType : CaptureType.values()) {
+                if (type[captureType.ordinal()] > 0) {
+                    typeCounts.put(captureType, type[captureType.ordinal()]);
+                }
+            }
+            return CaptureStats.builder().count(count).testStatus(testStatusCounts)
+                .type(typeCounts).duration(toDurationStats()).build();
+        }
+
+        private DurationStats toDurationStats() {
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < durations.length; i++) {
+                histogram.put(i < DURATION_BUCKETS_IN_SECS.length ?
+                    String.valueOf(DURATION_BUCKETS_IN_SECS[i]) : OVERFLOW_BUCKET, durations[i]);
+            }
+            DurationStats.DurationStatsBuilder builder = DurationStats.builder()
+                .count(durationCount).histogramInSecs(histogram);
+            if (durationCount > 0) {
+                builder.meanMillis(totalDurationMillis / durationCount)
+                    .p50Millis(percentile(0.50)).p90Millis(percentile(0.90))
+                    .p99Millis(percentile(0.99));
+            }
+            return builder.build();
+        }
+
+        /**
+         * Estimate a percentile, assuming durations are spread evenly inside each bucket (the
+         * overflow bucket returns its lower limit).
+         */
+        private long percentile(double fraction) {
+            double rank = fraction * durationCount;
+            long counted = 0;
+            for (int i = 0; i < durations.length; i++) {
+                if (durations[i] > 0 && counted + durations[i] >= rank) {
+                    long lower = i > 0 ? DURATION_BUCKETS_IN_SECS[i - 1] * 1000 : 0;
+                    if (i == DURATION_BUCKETS_IN_SECS.length) {
+                        return lower;
+                    }
+                    long upper = DURATION_BUCKETS_IN_SECS[i] * 1000;
+                    return lower + Math.round((upper - lower) * (rank - counted) / durations[i]);
+                }
+                counted += durations[i];
+            }
+            return 0;
+        }
+
+        private static int bucket(long durationMillis) {
+            for (int i = 0; i < DURATION_BUCKETS_IN_SECS.length; i++) {
+                if (durationMillis <= DURATION_BUCKETS_IN_SECS[i] * 1000) {
+                    return i;
+                }
+            }
+            return DURATION_BUCKETS_IN_SECS.length;
+        }
+
+    }
+
+}
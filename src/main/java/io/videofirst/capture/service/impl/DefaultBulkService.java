@@ -0,0 +1,207 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.enums.BulkJobState;
+import io.videofirst.capture.enums.BulkOperation;
+import io.videofirst.capture.exception.InvalidParameterException;
+import io.videofirst.capture.model.bulk.BulkDeleteParams;
+import io.videofirst.capture.model.bulk.BulkJob;
+import io.videofirst.capture.model.capture.CaptureQuery;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.service.BulkService;
+import io.videofirst.capture.utils.VfCaptureUtils;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default implementation of the BulkService interface.
+ *
+ * Jobs are run one at a time on a background thread.  The files of a job's captures are deleted
+ * by a bounded pool of threads and the capture indexes are only updated once all the files are
+ * deleted (see `CaptureDao.deleteAll`).  Progress is counted as each capture is deleted, so it can
+ * be polled while the job is running.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+public class DefaultBulkService implements BulkService {
+
+    // Constants
+
+    private static final String JOB_THREAD_NAME = "capture-bulk-job";
+    private static final String DELETE_THREAD_NAME = "capture-bulk-delete-";
+    private static final int MAX_JOBS = 100; // status of older jobs is forgotten
+
+    // Injected fields
+
+    private final CaptureDao captureDao;
+
+    // Private fields
+
+    private final Map<String, Job> jobs = Collections.synchronizedMap(
+        new LinkedHashMap<String, Job>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+                return size() > MAX_JOBS;
+            }
+        });
+    private final ExecutorService jobRunner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, JOB_THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService deleters; // threads are only created when first used
+
+    public DefaultBulkService(CaptureDao captureDao, CaptureConfig captureConfig) {
+        this.captureDao = captureDao;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.deleters = Executors
+            .newFixedThreadPool(Math.max(1, captureConfig.getStorage().getBulkThreads()),
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                        DELETE_THREAD_NAME + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        jobRunner.shutdownNow();
+        deleters.shutdownNow();
+    }
+
+    @Override
+    public BulkJob delete(BulkDeleteParams params, CaptureQuery query) {
+        List<String> ids = params.getIds();
+        if ((ids == null || ids.isEmpty()) && !query.isFiltered()) {
+            throw new InvalidParameterException(
+                "Captures to delete must be set using `ids` or at least 1 filter");
+        }
+
+        Job job = new Job(BulkOperation.delete);
+        jobs.put(job.id, job);
+        jobRunner.execute(() -> {
+            try {
+                List<String> captureIds = ids != null && !ids.isEmpty() ?
+                    new ArrayList<>(new LinkedHashSet<>(ids)) : find(query);
+                job.total = captureIds.size();
+                List<String> deletedIds = captureDao
+                    .deleteAll(captureIds, deleters, captureId -> job.completed.incrementAndGet());
+                job.finish(captureIds.size() - deletedIds.size(), null);
+                log.info("Bulk job [ " + job.id + " ] deleted " + deletedIds.size() + " captures");
+            } catch (RuntimeException e) {
+                log.warn("Bulk job [ " + job.id + " ] failed - " + e.getMessage(), e);
+                job.finish(null, e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        });
+        return job.toBulkJob();
+    }
+
+    @Override
+    public BulkJob status(String jobId) {
+        Job job = jobs.get(jobId);
+        if (job == null) {
+            throw new InvalidParameterException("Cannot find a bulk job for ID - " + jobId);
+        }
+        return job.toBulkJob();
+    }
+
+    @Override
+    public List<BulkJob> status() {
+        List<Job> recentJobs;
+        synchronized (jobs) {
+            recentJobs = new ArrayList<>(jobs.values());
+        }
+        Collections.reverse(recentJobs);
+        return recentJobs.stream().map(Job::toBulkJob).collect(Collectors.toList());
+    }
+
+    // Private methods
+
+    /**
+     * Return the IDs of all the captures which match the filters of a query.
+     */
+    private List<String> find(CaptureQuery query) {
+        try (Stream<CaptureSummary> captures = captureDao
+            .stream(query.toBuilder().limit(null).cursor(null).build())) {
+            return captures.map(CaptureSummary::getId).collect(Collectors.toList());
+        }
+    }
+
+    // Private classes
+
+    /**
+     * Mutable state of a job (fields are volatile as they're read while the job is running).
+     */
+    private static class Job {
+
+        private final String id;
+        private final BulkOperation operation;
+        private final LocalDateTime started = LocalDateTime.now();
+        private final AtomicInteger completed = new AtomicInteger();
+        private volatile Integer total;
+        private volatile Integer failed;
+        private volatile String error;
+        private volatile LocalDateTime finished;
+        private volatile BulkJobState state = BulkJobState.running;
+
+        private Job(BulkOperation operation) {
+            this.id = VfCaptureUtils.generateId(started);
+            this.operation = operation;
+        }
+
+        private void finish(Integer failed, String error) {
+            this.failed = failed;
+            this.error = error;
+            this.finished = LocalDateTime.now();
+            this.state = error == null ? BulkJobState.finished : BulkJobState.error;
+        }
+
+        private BulkJob toBulkJob() {
+            return BulkJob.builder().id(id).operation(operation).state(state).started(started)
+                .finished(finished).total(total).completed(completed.get()).failed(failed)
+                .error(error).build();
+        }
+
+    }
+
+}
@@ -24,42 +24,50 @@
 package io.videofirst.capture.service.impl;
 
 import io.videofirst.capture.dao.CaptureDao;
-import io.videofirst.capture.exception.InvalidParameterException;
 import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CapturePage;
+import io.videofirst.capture.model.capture.CaptureQuery;
 import io.videofirst.capture.model.capture.CaptureRecordParams;
 import io.videofirst.capture.model.capture.CaptureStatus;
 import io.videofirst.capture.model.capture.CaptureStopParams;
 import io.videofirst.capture.model.capture.CaptureSummary;
 import io.videofirst.capture.model.display.DisplayUpdate;
-import io.videofirst.capture.recorder.VideoRecord;
-import io.videofirst.capture.recorder.VideoRecorder;
 import io.videofirst.capture.service.CaptureService;
 import io.videofirst.capture.service.InfoService;
+import io.videofirst.capture.service.Session;
+import io.videofirst.capture.service.SessionService;
 import java.util.List;
 import java.util.Observable;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import java.util.stream.Stream;
 import org.springframework.stereotype.Component;
 
 /**
- * Default implementation of the high level CaptureService interface.
+ * Default implementation of the high level CaptureService interface.  Captures are recorded by the
+ * `default` session of the SessionService.
  *
  * @author Bob Marks
  */
-@Slf4j
-@RequiredArgsConstructor
 @Component
 public class DefaultCaptureService extends Observable implements CaptureService {
 
     // Injected fields
 
-    private final VideoRecorder videoRecorder;
     private final InfoService infoService;
     private final CaptureDao captureDao;
 
     // Local fields
 
-    private CaptureStatus captureStatus = CaptureStatus.STOPPED;  // only stateful object
+    private final Session captureSession; // only stateful object
+
+    public DefaultCaptureService(InfoService infoService, CaptureDao captureDao,
+        SessionService sessionService) {
+        this.infoService = infoService;
+        this.captureDao = captureDao;
+        this.captureSession = sessionService.defaultSession();
+
+        // also covers the default session being recorded using the `/sessions` endpoints
+        this.captureSession.addObserver((observable, arg) -> refreshObservers());
+    }
 
     @Override
     public Capture select(String captureId) {
@@ -73,50 +81,40 @@ public class DefaultCaptureService extends Observable implements CaptureService
         return list;
     }
 
+    @Override
+    public CapturePage list(CaptureQuery query) {
+        CapturePage page = captureDao.list(query);
+        return page;
+    }
+
+    @Override
+    public Stream<CaptureSummary> stream(CaptureQuery query) {
+        return captureDao.stream(query);
+    }
+
     @Override
     public CaptureStatus status() {
-        return captureStatus;
+        return captureSession.status();
     }
 
     @Override
     public CaptureStatus record(CaptureRecordParams captureRecordParams) {
         if (captureRecordParams.force()) {
-            cancelCapture();
+            captureSession.cancel(); // before the display update, which uses the current status
         }
 
         DisplayUpdate displayUpdate = getDisplayUpdate(); // move to
-        captureStatus = captureStatus
-            .record(infoService.getInfo(), captureRecordParams, displayUpdate.getCapture());
-
-        videoRecorder.record(getVideoRecord());
-
-        refreshObservers();
-        return status();
+        return captureSession.record(captureRecordParams, displayUpdate.getCapture());
     }
 
     @Override
     public CaptureStatus stop(CaptureStopParams captureStopParams) {
-        if (!captureStatus.isRecording()) {
-            throw new InvalidParameterException(
-                "You can only stop a video when [ isRecording=true ]");
-        }
-
-        captureStatus = captureStatus.stop(captureStopParams);
-
-        videoRecorder.stop();
-
-        captureDao.save(captureStatus.getCapture());
-
-        refreshObservers();
-        return status();
+        return captureSession.stop(captureStopParams);
     }
 
     @Override
     public CaptureStatus cancel() {
-        cancelCapture();
-
-        refreshObservers();
-        return status();
+        return captureSession.cancel();
     }
 
     @Override
@@ -132,35 +130,11 @@ public class DefaultCaptureService extends Observable implements CaptureService
     @Override
     public DisplayUpdate getDisplayUpdate() {
         return DisplayUpdate
-            .build(infoService.getInfo(), captureStatus.getCaptureRecordParams().getDisplay());
+            .build(infoService.getInfo(), status().getCaptureRecordParams().getDisplay());
     }
 
     // Private methods
 
-    private void cancelCapture() {
-        videoRecorder.cancel();  // cancel any recording if applicable
-        captureStatus = CaptureStatus.STOPPED; // re-set status
-    }
-
-
-    /**
-     * Return video record.
-     */
-    private VideoRecord getVideoRecord() {
-        if (captureStatus == null || captureStatus.getCapture() == null) {
-            log.warn("Capture record is null");
-            return null;
-        }
-
-        Capture capture = captureStatus.getCapture();
-        return VideoRecord.builder()
-            .id(capture.getId())
-            .folder(capture.getFolder())
-            .format(capture.getFormat())
-            .capture(capture.getCapture())
-            .build();
-    }
-
     private void refreshObservers() {
         setChanged();
         notifyObservers();    // notify any class which observe this class
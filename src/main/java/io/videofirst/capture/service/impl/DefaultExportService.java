@@ -0,0 +1,103 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.enums.ExportFormat;
+import io.videofirst.capture.exception.CaptureException;
+import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CaptureQuery;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.service.ExportService;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default implementation of the ExportService interface.
+ *
+ * Each capture is added to the archive as `<capture folder>/<file name>` i.e. the same layout as
+ * the video folder.  Files are written straight from disk to the output stream (no temporary
+ * files) and videos are never re-compressed.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DefaultExportService implements ExportService {
+
+    // Injected fields
+
+    private final CaptureDao captureDao;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void export(CaptureQuery query, ExportFormat format, OutputStream outputStream)
+        throws IOException {
+        CaptureArchiveWriter writer = format == ExportFormat.tar ?
+            new TarArchiveWriter(outputStream) : new ZipArchiveWriter(outputStream);
+        try (Stream<CaptureSummary> summaries = captureDao
+            .stream(query.toBuilder().limit(null).cursor(null).build())) {
+            Iterator<CaptureSummary> it = summaries.iterator();
+            while (it.hasNext()) {
+                String captureId = it.next().getId();
+                Capture capture;
+                try {
+                    capture = captureDao.findById(captureId);
+                } catch (CaptureException cEx) {
+                    log.warn("Unable to export capture [ " + captureId + " ] - "
+                        + cEx.getMessage());
+                    continue; // e.g. deleted since the export started
+                }
+                export(capture, writer);
+            }
+        }
+        writer.finish();
+    }
+
+    // Private methods
+
+    private void export(Capture capture, CaptureArchiveWriter writer) throws IOException {
+        String folder = capture.getFolder() != null ? capture.getFolder() + "/" : "";
+        File dataFile = capture.getDataFile();
+        if (dataFile != null && dataFile.exists()) {
+            writer.addFile(folder + dataFile.getName(), dataFile, true);
+        } else { // e.g. capture data is stored in a database
+            writer.addBytes(folder + capture.getId() + ".json",
+                objectMapper.writeValueAsBytes(capture), System.currentTimeMillis());
+        }
+        File videoFile = capture.getVideoFile();
+        if (videoFile != null && videoFile.exists()) {
+            writer.addFile(folder + videoFile.getName(), videoFile, false);
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.dao.filesystem.AtomicFileWriter;
+import io.videofirst.capture.enums.DurabilityPolicy;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.recorder.VideoRecord;
+import io.videofirst.capture.recorder.VideoRecorder;
+import io.videofirst.capture.service.RecoveryService;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default implementation of the RecoveryService interface.
+ *
+ * When a recording starts its capture is saved to a `<capture id>.recording.json` file in the temp
+ * folder (next to the temporary video), which is deleted when the recording is stopped.  So any of
+ * these files found at startup are recordings which were never stopped - they're recovered in
+ * parallel before the application starts recording.  Recording files are written atomically and
+ * forced to disk (so a crash can't leave a torn file).  If a recording can't be recovered its
+ * files are renamed with a `.failed` extension, so they're kept but never retried.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+public class DefaultRecoveryService implements RecoveryService {
+
+    // Constants
+
+    private static final String EXT_RECORDING = "recording.json";
+    private static final String EXT_FAILED = VideoRecorder.EXT_FAILED;
+    private static final String THREAD_NAME = "capture-recovery-";
+
+    // Injected fields
+
+    private final VideoRecorder videoRecorder;
+    private final CaptureDao captureDao;
+    private final ObjectMapper objectMapper;
+    private final File tempFolder;
+
+    // Private fields
+
+    private final AtomicFileWriter fileWriter = new AtomicFileWriter(DurabilityPolicy.fsync, 0);
+
+    public DefaultRecoveryService(VideoRecorder videoRecorder, CaptureDao captureDao,
+        ObjectMapper objectMapper, CaptureConfig captureConfig) {
+        this.videoRecorder = videoRecorder;
+        this.captureDao = captureDao;
+        this.objectMapper = objectMapper;
+        this.tempFolder = captureConfig.getStorage().getTempFolder();
+    }
+
+    @PostConstruct
+    public void start() {
+        List<String> captureIds = recover();
+        if (!captureIds.isEmpty()) {
+            log.info("Recovered " + captureIds.size() + " recordings which were never stopped - "
+                + captureIds);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        fileWriter.close();
+    }
+
+    @Override
+    public void recording(Capture capture) {
+        tempFolder.mkdirs();
+        try {
+            fileWriter.write(getRecordingFile(capture.getId()).toPath(),
+                objectMapper.writeValueAsBytes(capture));
+        } catch (IOException ioEx) {
+            log.warn("Unable to save recording of capture [ " + capture.getId()
+                + " ] - it can't be recovered if it's never stopped", ioEx);
+        }
+    }
+
+    @Override
+    public void stopped(String captureId) {
+        getRecordingFile(captureId).delete();
+    }
+
+    @Override
+    public List<String> recover() {
+        File[] recordingFiles = tempFolder
+            .listFiles((dir, name) -> name.endsWith("." + EXT_RECORDING));
+        if (recordingFiles == null || recordingFiles.length == 0) {
+            return Collections.emptyList();
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService recoverers = Executors.newFixedThreadPool(
+            Math.min(recordingFiles.length, Runtime.getRuntime().availableProcessors()),
+            runnable -> {
+                Thread thread = new Thread(runnable, THREAD_NAME + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        try {
+            List<CompletableFuture<String>> recoveries = Arrays.stream(recordingFiles)
+                .map(file -> CompletableFuture.supplyAsync(() -> recover(file), recoverers))
+                .collect(Collectors.toList());
+            return recoveries.stream().map(CompletableFuture::join).filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        } finally {
+            recoverers.shutdown();
+        }
+    }
+
+    // Private methods
+
+    /**
+     * Recover a single recording.  Returns its capture ID (or null if it couldn't be recovered).
+     */
+    private String recover(File recordingFile) {
+        try {
+            Capture capture = objectMapper.readValue(recordingFile, Capture.class);
+            File videoFile = videoRecorder.recover(VideoRecord.from(capture));
+            if (videoFile == null) {
+                log.warn("No video to recover for capture [ " + capture.getId() + " ]");
+                recordingFile.delete();
+                return null;
+            }
+
+            // Finished when the last frame was written
+            LocalDateTime finished = LocalDateTime
+                .ofInstant(Instant.ofEpochMilli(videoFile.lastModified()), ZoneId.systemDefault());
+            captureDao.save(capture.toBuilder()
+                .finished(finished)
+                .testStatus(TestStatus.aborted)
+                .build());
+            recordingFile.delete();
+            return capture.getId();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to recover recording [ " + recordingFile + " ]", e);
+            quarantine(recordingFile);
+            return null;
+        }
+    }
+
+    /**
+     * Rename the files of a recording which can't be recovered (the recording file and any of its
+     * temp videos which the recorder hasn't already renamed) so it isn't retried at every startup.
+     */
+    private void quarantine(File recordingFile) {
+        String name = recordingFile.getName();
+        String captureId = name.substring(0, name.length() - EXT_RECORDING.length() - 1);
+        File[] files = tempFolder.listFiles((dir, filename) -> !filename.endsWith("." + EXT_FAILED)
+            && (filename.startsWith(captureId + ".") || filename.startsWith(captureId + "-")));
+        for (File file : files != null ? files : new File[0]) {
+            File failedFile = new File(file.getPath() + "." + EXT_FAILED);
+            if (!file.renameTo(failedFile)) {
+                log.warn("Unable to rename [ " + file + " ] to [ " + failedFile + " ]");
+            }
+        }
+    }
+
+    private File getRecordingFile(String captureId) {
+        return new File(tempFolder, captureId + "." + EXT_RECORDING);
+    }
+
+}
@@ -0,0 +1,272 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageRetentionConfig;
+import io.videofirst.capture.dao.CaptureCursor;
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.dao.CaptureListener;
+import io.videofirst.capture.enums.CaptureSortField;
+import io.videofirst.capture.enums.SortOrder;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.enums.UploadState;
+import io.videofirst.capture.exception.VideoConfigurationException;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.model.capture.UploadStatus;
+import io.videofirst.capture.service.RetentionService;
+import io.videofirst.capture.service.UploadService;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default implementation of the RetentionService interface.
+ *
+ * The size of every capture is tracked incrementally by listening to the CaptureDao (so the video
+ * folder is never walked when the rules are applied).  The rules are applied on their own thread
+ * and captures are deleted in parallel by a pool of threads, so recording is never blocked.
+ * Captures which are being uploaded are never deleted.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+public class DefaultRetentionService implements RetentionService, CaptureListener {
+
+    // Constants
+
+    private static final String THREAD_NAME = "capture-retention";
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+    private static final Set<TestStatus> FAILED = EnumSet.of(TestStatus.fail, TestStatus.error);
+    private static final Set<UploadState> UPLOADING = EnumSet
+        .of(UploadState.scheduled, UploadState.uploading);
+    private static final Comparator<TrackedCapture> LATEST_FIRST = Comparator.comparing(
+        TrackedCapture::getSummary,
+        CaptureCursor.comparator(CaptureSortField.started, SortOrder.desc));
+
+    // Injected fields
+
+    private final CaptureDao captureDao;
+    private final UploadService uploadService;
+    private final StorageRetentionConfig retentionConfig;
+
+    // Private fields
+
+    private final Map<String, TrackedCapture> captures = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final ExecutorService deleters; // threads are only created when first used
+    private ScheduledExecutorService scheduler;
+
+    public DefaultRetentionService(CaptureDao captureDao, UploadService uploadService,
+        CaptureConfig captureConfig) {
+        this.captureDao = captureDao;
+        this.uploadService = uploadService;
+        this.retentionConfig = captureConfig.getStorage().getRetention();
+
+        AtomicInteger count = new AtomicInteger();
+        this.deleters = Executors.newFixedThreadPool(Math.max(1, retentionConfig.getThreads()),
+            runnable -> daemonThread(runnable, THREAD_NAME + "-" + count.incrementAndGet()));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!retentionConfig.isEnable()) {
+            return;
+        }
+        if (retentionConfig.getIntervalInMins() <= 0) {
+            throw new VideoConfigurationException("Invalid retention interval [ "
+                + retentionConfig.getIntervalInMins() + " ] - "
+                + "`capture_config.storage.retention.intervalInMins` must be greater than 0");
+        }
+        captureDao.addListener(this);
+        log.info("Tracking " + captures.size() + " captures (" + totalBytes.get() / BYTES_PER_MB
+            + " MB) for retention");
+
+        scheduler = Executors
+            .newSingleThreadScheduledExecutor(runnable -> daemonThread(runnable, THREAD_NAME));
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                applyRetention();
+            } catch (RuntimeException rEx) {
+                log.warn("Error applying capture retention rules", rEx); // try again next time
+            }
+        }, 0, retentionConfig.getIntervalInMins(), TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        deleters.shutdownNow();
+    }
+
+    @Override
+    public synchronized List<String> applyRetention() {
+        if (!retentionConfig.isEnable()) {
+            return Collections.emptyList();
+        }
+
+        Set<String> uploading = uploadService.status().stream()
+            .filter(status -> UPLOADING.contains(status.getState()))
+            .map(UploadStatus::getId)
+            .collect(Collectors.toSet());
+        List<TrackedCapture> latestFirst = captures.values().stream()
+            .filter(capture -> !uploading.contains(capture.getSummary().getId()))
+            .sorted(LATEST_FIRST)
+            .collect(Collectors.toList());
+
+        Set<TrackedCapture> expired = new LinkedHashSet<>();
+        LocalDateTime now = LocalDateTime.now();
+        if (retentionConfig.getMaxAgeInDays() > 0) {
+            LocalDateTime cutOff = now.minusDays(retentionConfig.getMaxAgeInDays());
+            latestFirst.stream()
+                .filter(capture -> isStartedBefore(capture, cutOff))
+                .forEach(expired::add);
+        }
+        if (retentionConfig.getKeepFailedOnlyAfterDays() > 0) {
+            LocalDateTime cutOff = now.minusDays(retentionConfig.getKeepFailedOnlyAfterDays());
+            latestFirst.stream()
+                .filter(capture -> isStartedBefore(capture, cutOff)
+                    && !FAILED.contains(capture.getSummary().getTestStatus()))
+                .forEach(expired::add);
+        }
+        if (retentionConfig.getMaxCapturesPerProject() > 0) {
+            Map<String, Integer> projectCounts = new HashMap<>();
+            for (TrackedCapture capture : latestFirst) {
+                if (!expired.contains(capture) && projectCounts
+                    .merge(String.valueOf(capture.getSummary().getProject()), 1, Integer::sum)
+                    > retentionConfig.getMaxCapturesPerProject()) {
+                    expired.add(capture);
+                }
+            }
+        }
+        if (retentionConfig.getMaxSizeInMb() > 0) {
+            long maxBytes = retentionConfig.getMaxSizeInMb() * BYTES_PER_MB;
+            long remainingBytes = totalBytes.get() - expired.stream()
+                .mapToLong(TrackedCapture::getSizeInBytes).sum();
+            for (int i = latestFirst.size() - 1; i >= 0 && remainingBytes > maxBytes; i--) {
+                TrackedCapture oldest = latestFirst.get(i);
+                if (expired.add(oldest)) {
+                    remainingBytes -= oldest.getSizeInBytes();
+                }
+            }
+        }
+
+        List<String> captureIds = expired.stream()
+            .map(capture -> capture.getSummary().getId())
+            .collect(Collectors.toList());
+        if (!captureIds.isEmpty()) {
+            log.info("Deleting " + captureIds.size() + " captures which break retention rules");
+            delete(captureIds);
+        }
+        return captureIds;
+    }
+
+    @Override
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    // Methods from `CaptureListener`
+
+    @Override
+    public void captureSaved(CaptureSummary summary, long sizeInBytes) {
+        TrackedCapture old = captures
+            .put(summary.getId(), new TrackedCapture(summary, sizeInBytes));
+        totalBytes.addAndGet(sizeInBytes - (old != null ? old.getSizeInBytes() : 0));
+    }
+
+    @Override
+    public void captureDeleted(String captureId) {
+        TrackedCapture old = captures.remove(captureId);
+        if (old != null) {
+            totalBytes.addAndGet(-old.getSizeInBytes());
+        }
+    }
+
+    // Private methods
+
+    /**
+     * Delete captures in parallel (using the deleter threads) and wait until they're all deleted.
+     * The DAO updates its indexes once, after all the captures have been deleted.
+     */
+    private void delete(List<String> captureIds) {
+        try {
+            List<String> deleted = captureDao.deleteAll(captureIds, deleters, captureId -> {
+            });
+            if (deleted.size() < captureIds.size()) {
+                log.warn("Unable to delete " + (captureIds.size() - deleted.size())
+                    + " captures which break retention rules");
+            }
+        } catch (RuntimeException rEx) {
+            log.warn("Error deleting captures", rEx);
+        }
+    }
+
+    private boolean isStartedBefore(TrackedCapture capture, LocalDateTime cutOff) {
+        LocalDateTime started = capture.getSummary().getStarted();
+        return started != null && started.isBefore(cutOff);
+    }
+
+    private Thread daemonThread(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // Private classes
+
+    /**
+     * Immutable capture summary + size of its files.
+     */
+    @Value
+    private static class TrackedCapture {
+
+        private final CaptureSummary summary;
+        private final long sizeInBytes;
+
+    }
+
+}
@@ -0,0 +1,231 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.dao.CaptureListener;
+import io.videofirst.capture.exception.CaptureException;
+import io.videofirst.capture.exception.InvalidParameterException;
+import io.videofirst.capture.exception.InvalidStateException;
+import io.videofirst.capture.model.capture.CapturePage;
+import io.videofirst.capture.model.capture.CaptureQuery;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.service.SearchService;
+import io.videofirst.capture.service.impl.CaptureSearchIndex.Hit;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default implementation of the SearchService interface.
+ *
+ * The search index is only built when the first search is made, so startup never reads every
+ * capture.  It's built on a background thread which reads captures around the capture cache (so
+ * useful cached captures aren't evicted) at a limited rate.  Until it's built, searches only
+ * return the captures indexed so far.  Once built it's kept up to date by listening to the
+ * CaptureDao i.e. when a capture is saved (e.g. when a capture is stopped) it's read and indexed
+ * on the same thread, so saving isn't slowed down.
+ *
+ * Scores depend on every indexed capture, so search pages use an offset cursor.  A capture which
+ * is saved / deleted between pages can still move hits across a page boundary.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+public class DefaultSearchService implements SearchService, CaptureListener {
+
+    // Constants
+
+    private static final String THREAD_NAME = "capture-search-index";
+
+    // Injected fields
+
+    private final CaptureDao captureDao;
+    private final boolean enable;
+    private final int indexRate; // captures per second when building the index (0 = no limit)
+
+    // Private fields
+
+    private final CaptureSearchIndex searchIndex = new CaptureSearchIndex();
+    private final Set<String> unindexed = ConcurrentHashMap.newKeySet(); // before index is built
+    private final Set<String> pending = ConcurrentHashMap.newKeySet(); // IDs waiting to be indexed
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, THREAD_NAME);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean building; // guarded by `unindexed`
+
+    public DefaultSearchService(CaptureDao captureDao, CaptureConfig captureConfig) {
+        this.captureDao = captureDao;
+        this.enable = captureConfig.getStorage().isSearch();
+        this.indexRate = captureConfig.getStorage().getSearchIndexRate();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enable) {
+            captureDao.addListener(this);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        indexer.shutdownNow();
+    }
+
+    @Override
+    public CapturePage search(String text, CaptureQuery query) {
+        if (!enable) {
+            throw new InvalidStateException("Search is disabled");
+        }
+        if (CaptureSearchIndex.words(text).isEmpty()) {
+            throw new InvalidParameterException(
+                "Invalid search [ " + text + " ] - must contain at least 1 word");
+        }
+        buildIndex();
+
+        Integer limit = query.limit();
+        int offset = decodeCursor(query.getCursor());
+        List<Hit> hits = searchIndex
+            .search(text, query::matches, limit != null ? offset + limit + 1 : null);
+        hits = hits.subList(Math.min(offset, hits.size()), hits.size());
+
+        String nextCursor = null;
+        if (limit != null && hits.size() > limit) {
+            hits = hits.subList(0, limit);
+            nextCursor = encodeCursor(offset + limit);
+        }
+        return new CapturePage(hits.stream().map(Hit::getSummary)
+            .collect(Collectors.toList()), nextCursor);
+    }
+
+    // Methods from `CaptureListener`
+
+    @Override
+    public void captureSaved(CaptureSummary summary, long sizeInBytes) {
+        String captureId = summary.getId();
+        synchronized (unindexed) {
+            if (!building) {
+                unindexed.add(captureId); // indexed when the first search is made
+                return;
+            }
+        }
+        if (pending.add(captureId)) {
+            indexer.execute(() -> index(captureId));
+        }
+    }
+
+    @Override
+    public void captureDeleted(String captureId) {
+        unindexed.remove(captureId);
+        indexer.execute(() -> searchIndex.remove(captureId)); // after any pending index
+    }
+
+    // Private methods
+
+    /**
+     * Start building the index in the background (if it hasn't been started already).  Captures
+     * saved from now on are queued behind the build.
+     */
+    private void buildIndex() {
+        synchronized (unindexed) {
+            if (building) {
+                return;
+            }
+            building = true;
+        }
+        log.info("Building search index of " + unindexed.size() + " captures");
+        indexer.execute(() -> {
+            long nanosPerCapture = indexRate > 0 ? TimeUnit.SECONDS.toNanos(1) / indexRate : 0;
+            long next = System.nanoTime();
+            int count = 0;
+            for (Iterator<String> it = unindexed.iterator(); it.hasNext(); count++) {
+                String captureId = it.next();
+                it.remove();
+                index(captureId);
+
+                next += nanosPerCapture;
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException iEx) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+            log.info("Built search index of " + count + " captures");
+        });
+    }
+
+    private void index(String captureId) {
+        pending.remove(captureId); // so a later save is indexed again
+        try {
+            searchIndex.put(captureDao.read(captureId));
+        } catch (CaptureException cEx) {
+            log.debug("Unable to index capture [ " + captureId + " ] - " + cEx.getMessage());
+            searchIndex.remove(captureId);
+        }
+    }
+
+    /**
+     * Cursors are the offset of the first hit of the next page.
+     */
+    private String encodeCursor(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(String.valueOf(offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private int decodeCursor(String cursor) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(new String(Base64.getUrlDecoder().decode(cursor.trim()),
+                StandardCharsets.UTF_8));
+            if (offset < 0) {
+                throw new IllegalArgumentException("negative offset");
+            }
+            return offset;
+        } catch (RuntimeException rEx) {
+            throw new InvalidParameterException("Invalid cursor [ " + cursor + " ]");
+        }
+    }
+
+}
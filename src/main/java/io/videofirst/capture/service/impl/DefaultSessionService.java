@@ -0,0 +1,211 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.RecorderConfig;
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.exception.InvalidParameterException;
+import io.videofirst.capture.model.capture.CaptureRecordParams;
+import io.videofirst.capture.model.capture.CaptureStatus;
+import io.videofirst.capture.model.capture.CaptureStopParams;
+import io.videofirst.capture.model.display.DisplayCapture;
+import io.videofirst.capture.model.display.DisplayUpdate;
+import io.videofirst.capture.recorder.VideoRecorder;
+import io.videofirst.capture.service.InfoService;
+import io.videofirst.capture.service.RecoveryService;
+import io.videofirst.capture.service.Session;
+import io.videofirst.capture.service.SessionService;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default implementation of the SessionService interface.
+ *
+ * Each session has its own (prototype scoped) video recorder, so sessions record independently of
+ * each other.  The capture area of a session is worked out from the `display` parameter of the
+ * record request.
+ *
+ * A session is only created when it starts recording and is removed again (with its recorder and
+ * metrics) once it's idle i.e. it has stopped / been cancelled and no request is using it.  So
+ * sessions which are rejected (too many sessions recording) or unused don't build up.  The
+ * `default` session is never removed.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+public class DefaultSessionService implements SessionService {
+
+    // Constants
+
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9_\\-]{1,64}");
+
+    // Injected fields
+
+    private final ObjectFactory<VideoRecorder> videoRecorderFactory;
+    private final InfoService infoService;
+    private final CaptureDao captureDao;
+    private final RecoveryService recoveryService;
+    private final RecordingSlots recordingSlots;
+
+    // Private fields
+
+    private final Map<String, CaptureSession> sessions = new ConcurrentHashMap<>();
+    private final Object lock = new Object(); // held while adding / removing sessions
+
+    public DefaultSessionService(ObjectFactory<VideoRecorder> videoRecorderFactory,
+        InfoService infoService, CaptureDao captureDao, RecoveryService recoveryService,
+        CaptureConfig captureConfig) {
+        this.videoRecorderFactory = videoRecorderFactory;
+        this.infoService = infoService;
+        this.captureDao = captureDao;
+        this.recoveryService = recoveryService;
+        this.recordingSlots = new RecordingSlots(captureConfig.getRecorder() != null
+            ? captureConfig.getRecorder().getMaxSessions() : RecorderConfig.DEFAULT_MAX_SESSIONS);
+    }
+
+    @Override
+    public Map<String, CaptureStatus> status() {
+        Map<String, CaptureStatus> status = new TreeMap<>();
+        sessions.forEach((sessionId, session) -> status.put(sessionId, session.status()));
+        return status;
+    }
+
+    @Override
+    public CaptureStatus status(String sessionId) {
+        CaptureSession session = sessions.get(validate(sessionId));
+        return session != null ? session.status() : CaptureStatus.STOPPED;
+    }
+
+    @Override
+    public CaptureStatus record(String sessionId, CaptureRecordParams captureRecordParams) {
+        DisplayCapture displayCapture = DisplayUpdate
+            .build(infoService.getInfo(), captureRecordParams.getDisplay()).getCapture();
+        CaptureSession session = use(sessionId, true);
+        try {
+            return session.record(captureRecordParams, displayCapture); // reserves a slot
+        } finally {
+            release(session);
+        }
+    }
+
+    @Override
+    public CaptureStatus stop(String sessionId, CaptureStopParams captureStopParams) {
+        CaptureSession session = use(sessionId, false);
+        if (session == null) {
+            throw new InvalidParameterException(
+                "You can only stop a video when [ isRecording=true ]");
+        }
+        try {
+            return session.stop(captureStopParams);
+        } finally {
+            release(session);
+        }
+    }
+
+    @Override
+    public CaptureStatus cancel(String sessionId) {
+        CaptureSession session = use(sessionId, false);
+        if (session == null) {
+            return CaptureStatus.STOPPED;
+        }
+        try {
+            return session.cancel();
+        } finally {
+            release(session);
+        }
+    }
+
+    @Override
+    public VideoRecorder videoRecorder(String sessionId) {
+        CaptureSession session = sessions.get(sessionId);
+        return session != null ? session.getVideoRecorder() : null;
+    }
+
+    @Override
+    public Session defaultSession() {
+        synchronized (lock) {
+            CaptureSession session = sessions.computeIfAbsent(DEFAULT_SESSION, this::newSession);
+            session.users++; // never released, so never idle
+            return session;
+        }
+    }
+
+    // Private methods
+
+    /**
+     * Return a session (or null if it doesn't exist and `create` is false) and count the request
+     * as one of its users, so it isn't removed while the request is using it.  A session (with a
+     * new video recorder) is only created if there's a free recording slot.
+     */
+    private CaptureSession use(String sessionId, boolean create) {
+        validate(sessionId);
+        synchronized (lock) {
+            CaptureSession session = sessions.get(sessionId);
+            if (session == null) {
+                if (!create) {
+                    return null;
+                }
+                recordingSlots.checkAvailable(sessionId);
+                session = newSession(sessionId);
+                sessions.put(sessionId, session);
+            }
+            session.users++;
+            return session;
+        }
+    }
+
+    private CaptureSession newSession(String sessionId) {
+        log.info("Creating capture session [ " + sessionId + " ]");
+        return new CaptureSession(sessionId, videoRecorderFactory.getObject(), infoService,
+            captureDao, recoveryService, recordingSlots);
+    }
+
+    /**
+     * Stop counting a request as a user of a session and remove the session if it's now idle.
+     */
+    private void release(CaptureSession session) {
+        synchronized (lock) {
+            if (--session.users == 0 && !session.status().isRecording()) {
+                sessions.remove(session.getId());
+                log.info("Removing idle capture session [ " + session.getId() + " ]");
+            }
+        }
+    }
+
+    private static String validate(String sessionId) {
+        if (sessionId == null || !SESSION_ID.matcher(sessionId).matches()) {
+            throw new InvalidParameterException("Invalid session ID [ " + sessionId
+                + " ] - must be 1 to 64 letters, digits, underscores or hyphens");
+        }
+        return sessionId;
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.dao.CaptureListener;
+import io.videofirst.capture.exception.InvalidParameterException;
+import io.videofirst.capture.model.capture.CaptureStats;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.service.StatsService;
+import java.time.LocalDate;
+import javax.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default implementation of the StatsService interface.
+ *
+ * Statistics are kept up to date by listening to the CaptureDao, which only passes capture
+ * summaries, so updating them doesn't read any files.
+ *
+ * @author Bob Marks
+ */
+@Slf4j
+@Component
+public class DefaultStatsService implements StatsService, CaptureListener {
+
+    // Constants
+
+    private static final int DEFAULT_DAYS = 30;
+
+    // Injected fields
+
+    private final CaptureDao captureDao;
+
+    // Private fields
+
+    private final CaptureStatsAggregator aggregator = new CaptureStatsAggregator();
+
+    public DefaultStatsService(CaptureDao captureDao) {
+        this.captureDao = captureDao;
+    }
+
+    @PostConstruct
+    public void start() {
+        captureDao.addListener(this);
+        log.info("Counted stats of " + aggregator.size() + " captures");
+    }
+
+    @Override
+    public CaptureStats stats(Integer days) {
+        if (days != null && days < 0) {
+            throw new InvalidParameterException(
+                "Invalid days [ " + days + " ] - must be 0 or more");
+        }
+        int numberOfDays = days != null ? days : DEFAULT_DAYS;
+        return aggregator.stats(LocalDate.now().minusDays(numberOfDays - 1L));
+    }
+
+    // Methods from `CaptureListener`
+
+    @Override
+    public void captureSaved(CaptureSummary summary, long sizeInBytes) {
+        aggregator.put(summary);
+    }
+
+    @Override
+    public void captureDeleted(String captureId) {
+        aggregator.remove(captureId);
+    }
+
+}
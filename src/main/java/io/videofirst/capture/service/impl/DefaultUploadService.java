@@ -23,8 +23,10 @@
  */
 package io.videofirst.capture.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.videofirst.capture.configuration.properties.UploadConfig;
 import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.dao.CaptureWriteBehind;
 import io.videofirst.capture.enums.UploadState;
 import io.videofirst.capture.exception.InvalidStateException;
 import io.videofirst.capture.exception.VideoUploadException;
@@ -75,10 +77,13 @@ public class DefaultUploadService implements UploadService, Runnable {
     private static final int DAO_UPDATE_INTERVAL_MILLIS = 2000; // Update DAO every 2 seconds
     private static final String PARAM_VIDEO = "video";
     private static final String PARAM_DATA = "data";
+    private static final String EXT_JSON = ".json";
 
     // Injected fields
 
     private final CaptureDao captureDao;
+    private final CaptureWriteBehind captureWriteBehind;
+    private final ObjectMapper objectMapper;
 
     // Local fields / stateful objects
 
@@ -90,9 +95,12 @@ public class DefaultUploadService implements UploadService, Runnable {
     private final Map<String, Capture> uploads = new ConcurrentHashMap<>();
 
     @Autowired
-    public DefaultUploadService(InfoService infoService, CaptureDao captureDao) {
+    public DefaultUploadService(InfoService infoService, CaptureDao captureDao,
+        CaptureWriteBehind captureWriteBehind, ObjectMapper objectMapper) {
         uploadConfig = infoService.getInfo().getInfo().getUpload();
         this.captureDao = captureDao;
+        this.captureWriteBehind = captureWriteBehind;
+        this.objectMapper = objectMapper;
 
         // Create thread of execution depending on the number of configured threads
         if (uploadConfig.isEnable()) {
@@ -125,7 +133,7 @@ public class DefaultUploadService implements UploadService, Runnable {
         // Mark capture that it's scheduled for upload
         Upload upload = Upload.schedule(uploadConfig.getUrl());
         capture.setUpload(upload);
-        captureDao.save(capture);
+        captureWriteBehind.saveUploadNow(captureId, upload);
 
         uploads.put(captureId, capture);
         queue.add(capture);
@@ -200,11 +208,11 @@ public class DefaultUploadService implements UploadService, Runnable {
     }
 
     /**
-     * Update capture upload.
+     * Update capture upload and save it straight away (replacing any pending progress saves).
      */
     private void updateCaptureUpload(final Capture capture, final Upload upload) {
         capture.setUpload(upload);
-        captureDao.save(capture);
+        captureWriteBehind.saveUploadNow(capture.getId(), upload);
     }
 
     /**
@@ -244,7 +252,7 @@ public class DefaultUploadService implements UploadService, Runnable {
     private HttpPost getHttpPost(Capture capture) {
         // Get capture file and data file
         File videoFile = validateExists(capture.getVideoFile());
-        File dataFile = validateExists(capture.getDataFile());
+        File dataFile = capture.getDataFile(); // null if captures are stored in a database
 
         HttpPost httpPost = new HttpPost(uploadConfig.getUrl());
         uploadConfig.getHeaders().entrySet().stream()
@@ -253,15 +261,30 @@ public class DefaultUploadService implements UploadService, Runnable {
         MultipartEntityBuilder builder = MultipartEntityBuilder.create();
         builder
             .addBinaryBody(PARAM_VIDEO, videoFile, ContentType.DEFAULT_BINARY, videoFile.getName());
-        builder.addBinaryBody(PARAM_DATA, dataFile, ContentType.DEFAULT_BINARY, dataFile.getName());
+        if (dataFile != null && dataFile.getName().endsWith(EXT_JSON)) {
+            builder.addBinaryBody(PARAM_DATA, dataFile, ContentType.DEFAULT_BINARY,
+                dataFile.getName());
+        } else {
+            // Data file is stored in a binary format (or not a file), so always upload as JSON
+            builder.addBinaryBody(PARAM_DATA, getJson(capture), ContentType.DEFAULT_BINARY,
+                capture.getId() + EXT_JSON);
+        }
         HttpEntity multipart = builder.build();
 
-        ProgressListener pListener = new VideoUploadProgressListener(captureDao, capture,
+        ProgressListener pListener = new VideoUploadProgressListener(captureWriteBehind, capture,
             DAO_UPDATE_INTERVAL_MILLIS);
         httpPost.setEntity(new ProgressEntityWrapper(multipart, pListener));
         return httpPost;
     }
 
+    private byte[] getJson(Capture capture) {
+        try {
+            return objectMapper.writeValueAsBytes(capture.toBuilder().upload(null).build());
+        } catch (IOException ioEx) {
+            throw new VideoUploadException("Can't upload - error creating JSON data", ioEx);
+        }
+    }
+
     private String getHttpBody(HttpResponse httpResponse) {
         HttpEntity responseEntity = httpResponse.getEntity();
         if (responseEntity != null) {
@@ -293,7 +316,7 @@ public class DefaultUploadService implements UploadService, Runnable {
 
         // Injected fields
 
-        private final CaptureDao captureDao;
+        private final CaptureWriteBehind captureWriteBehind;
         private final Capture capture;
         private final long updateIntervalMillis;
 
@@ -301,9 +324,9 @@ public class DefaultUploadService implements UploadService, Runnable {
 
         private long curTimeMillis;
 
-        public VideoUploadProgressListener(CaptureDao captureDao, Capture capture,
+        public VideoUploadProgressListener(CaptureWriteBehind captureWriteBehind, Capture capture,
             long updateIntervalMillis) {
-            this.captureDao = captureDao;
+            this.captureWriteBehind = captureWriteBehind;
             this.capture = capture;
             this.updateIntervalMillis = updateIntervalMillis;
 
@@ -316,7 +339,7 @@ public class DefaultUploadService implements UploadService, Runnable {
             if ((System.currentTimeMillis() - curTimeMillis) > updateIntervalMillis) {
                 Upload upload = capture.getUpload().updateProgress(transferred, totalBytes);
                 capture.setUpload(upload);
-                captureDao.save(capture);
+                captureWriteBehind.saveUpload(capture.getId(), upload); // coalesced
 
                 curTimeMillis = System.currentTimeMillis(); // reset time
 
@@ -0,0 +1,81 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import io.videofirst.capture.exception.InvalidParameterException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits how many capture sessions can record at the same time.  A session reserves a slot
+ * (atomically) before it starts recording and releases it once it has stopped or been cancelled.
+ *
+ * @author Bob Marks
+ */
+class RecordingSlots {
+
+    // Private fields
+
+    private final int maxSessions;
+    private final Semaphore slots;
+
+    RecordingSlots(int maxSessions) {
+        this.maxSessions = maxSessions;
+        this.slots = new Semaphore(maxSessions);
+    }
+
+    /**
+     * Reserve a slot for a session which is about to record, or throw an exception if every slot is
+     * in use.
+     */
+    void reserve(String sessionId) {
+        if (!slots.tryAcquire()) {
+            throw noSlotsException(sessionId);
+        }
+    }
+
+    /**
+     * Release the slot of a session which has stopped recording.
+     */
+    void release() {
+        slots.release();
+    }
+
+    /**
+     * Throw an exception if every slot is in use e.g. before creating a session.  This is only a
+     * check - the slot is reserved when the session starts recording.
+     */
+    void checkAvailable(String sessionId) {
+        if (slots.availablePermits() == 0) {
+            throw noSlotsException(sessionId);
+        }
+    }
+
+    // Private methods
+
+    private InvalidParameterException noSlotsException(String sessionId) {
+        return new InvalidParameterException("Unable to record session [ " + sessionId
+            + " ] - a maximum of " + maxSessions + " sessions can record at the same time");
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes an uncompressed (POSIX / ustar) tar archive.  File contents are copied with
+ * `FileChannel.transferTo` in small chunks, so large videos are never loaded into memory.  The
+ * target is an output stream (e.g. the HTTP response) rather than a file, so this isn't a zero-copy
+ * transfer - each chunk is still copied through the 8 KB heap buffer of the stream's channel.
+ * Names which are too long for a ustar header are written in a PAX extended header and sizes over
+ * 8 GB use the base-256 size field.
+ *
+ * @author Bob Marks
+ */
+class TarArchiveWriter implements CaptureArchiveWriter {
+
+    // Constants
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int NAME_LENGTH = 100;
+    private static final long MAX_OCTAL_SIZE = 077777777777L; // 11 octal digits
+    private static final int FILE_MODE = 0644;
+    private static final byte TYPE_FILE = '0';
+    private static final byte TYPE_PAX = 'x';
+    private static final String PAX_HEADER_NAME = "PaxHeader";
+    private static final byte[] USTAR_MAGIC = "ustar\0".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] USTAR_VERSION = "00".getBytes(StandardCharsets.US_ASCII);
+
+    // Private fields
+
+    private final WritableByteChannel channel;
+
+    TarArchiveWriter(OutputStream outputStream) {
+        this.channel = Channels.newChannel(outputStream);
+    }
+
+    @Override
+    public void addFile(String name, File file, boolean compress) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = fileChannel.size();
+            writeHeader(name, size, file.lastModified());
+            long position = 0;
+            while (position < size) {
+                long transferred = fileChannel.transferTo(position, size - position, channel);
+                if (transferred <= 0) {
+                    break; // file has been truncated since its size was read
+                }
+                position += transferred;
+            }
+            writeZeros(size - position);
+            writePadding(size);
+        }
+    }
+
+    @Override
+    public void addBytes(String name, byte[] bytes, long lastModified) throws IOException {
+        writeHeader(name, bytes.length, lastModified);
+        write(ByteBuffer.wrap(bytes));
+        writePadding(bytes.length);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        writeZeros(BLOCK_SIZE * 2L); // end of archive marker
+    }
+
+    // Private methods
+
+    private void writeHeader(String name, long size, long lastModified) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > NAME_LENGTH || !StandardCharsets.US_ASCII.newEncoder()
+            .canEncode(name)) {
+            byte[] paxRecord = paxRecord("path", name);
+            write(ByteBuffer.wrap(header(PAX_HEADER_NAME, paxRecord.length, lastModified,
+                TYPE_PAX)));
+            write(ByteBuffer.wrap(paxRecord));
+            writePadding(paxRecord.length);
+            name = name.substring(name.lastIndexOf('/') + 1); // fallback for old readers
+        }
+        write(ByteBuffer.wrap(header(name, size, lastModified, TYPE_FILE)));
+    }
+
+    private void writePadding(long size) throws IOException {
+        long remainder = size % BLOCK_SIZE;
+        if (remainder != 0) {
+            writeZeros(BLOCK_SIZE - remainder);
+        }
+    }
+
+    private void writeZeros(long count) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocate(BLOCK_SIZE);
+        while (count > 0) {
+            zeros.clear().limit((int) Math.min(count, BLOCK_SIZE));
+            count -= zeros.remaining();
+            write(zeros);
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Create a ustar header block.
+     */
+    private static byte[] header(String name, long size, long lastModified, byte type) {
+        byte[] header = new byte[BLOCK_SIZE];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, NAME_LENGTH));
+        octal(header, 100, 8, FILE_MODE);
+        octal(header, 108, 8, 0); // uid
+        octal(header, 116, 8, 0); // gid
+        if (size <= MAX_OCTAL_SIZE) {
+            octal(header, 124, 12, size);
+        } else {
+            header[124] = (byte) 0x80; // base-256 i.e. big endian binary in the other 11 bytes
+            for (int i = 135; i > 124; i--, size >>>= 8) {
+                header[i] = (byte) size;
+            }
+        }
+        octal(header, 136, 12, lastModified / 1000);
+        header[156] = type;
+        System.arraycopy(USTAR_MAGIC, 0, header, 257, USTAR_MAGIC.length);
+        System.arraycopy(USTAR_VERSION, 0, header, 263, USTAR_VERSION.length);
+
+        // checksum is calculated with the checksum field set to spaces
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        long checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        octal(header, 148, 7, checksum);
+        return header;
+    }
+
+    /**
+     * Write a zero padded, NUL terminated octal number into a header field.
+     */
+    private static void octal(byte[] header, int offset, int length, long value) {
+        String digits = Long.toOctalString(value);
+        for (int i = 0; i < length - 1; i++) {
+            int digit = i - (length - 1 - digits.length());
+            header[offset + i] = (byte) (digit >= 0 ? digits.charAt(digit) : '0');
+        }
+        header[offset + length - 1] = 0;
+    }
+
+    /**
+     * Create a PAX record i.e. "<length> <key>=<value>\n" where length includes itself.
+     */
+    private static byte[] paxRecord(String key, String value) {
+        byte[] keyValue = (" " + key + "=" + value + "\n").getBytes(StandardCharsets.UTF_8);
+        int length = keyValue.length;
+        while (String.valueOf(length).length() + keyValue.length != length) {
+            length = String.valueOf(length).length() + keyValue.length;
+        }
+        return (length + new String(keyValue, StandardCharsets.UTF_8))
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+}
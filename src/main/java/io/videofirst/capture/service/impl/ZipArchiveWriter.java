@@ -0,0 +1,111 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a zip archive.  Files which are already compressed are stored, which means their size
+ * and CRC must be known before their entry is written - the CRC is calculated by reading the file
+ * through a direct buffer first (cheap compared to compressing it).  The file is then read again
+ * and copied into the zip stream with `Files.copy` (through a heap buffer).  Zip64 is used
+ * automatically if an archive is bigger than 4 GB.
+ *
+ * @author Bob Marks
+ */
+class ZipArchiveWriter implements CaptureArchiveWriter {
+
+    // Constants
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Private fields
+
+    private final ZipOutputStream zipOutputStream;
+
+    ZipArchiveWriter(OutputStream outputStream) {
+        this.zipOutputStream = new ZipOutputStream(outputStream);
+    }
+
+    @Override
+    public void addFile(String name, File file, boolean compress) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(file.lastModified());
+        if (!compress) {
+            CRC32 crc = new CRC32();
+            long size = crc(file, crc);
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(size);
+            entry.setCompressedSize(size);
+            entry.setCrc(crc.getValue());
+        }
+        zipOutputStream.putNextEntry(entry);
+        Files.copy(file.toPath(), zipOutputStream);
+        zipOutputStream.closeEntry();
+    }
+
+    @Override
+    public void addBytes(String name, byte[] bytes, long lastModified) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(lastModified);
+        zipOutputStream.putNextEntry(entry);
+        zipOutputStream.write(bytes);
+        zipOutputStream.closeEntry();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        zipOutputStream.finish();
+        zipOutputStream.flush();
+    }
+
+    // Private methods
+
+    /**
+     * Update a CRC with the contents of a file and return its size.
+     */
+    private static long crc(File file, CRC32 crc) throws IOException {
+        long size = 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                size += buffer.remaining();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return size;
+    }
+
+}
@@ -23,13 +23,18 @@
  */
 package io.videofirst.capture.utils;
 
+import java.io.File;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Objects;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.RandomStringUtils;
 
@@ -46,6 +51,9 @@ public class VfCaptureUtils {
     private static final DateTimeFormatter VIDEO_FORMAT = DateTimeFormatter
         .ofPattern("yyyy-MM-dd_HH-mm-ss");
     private static final int ID_RANDOM_LENGTH = 6;
+    private static final Comparator<File> DEEPEST_FIRST = Comparator
+        .comparingInt((File file) -> file.toPath().getNameCount()).reversed()
+        .thenComparing(Comparator.naturalOrder());
 
     // Static methods
 
@@ -140,4 +148,24 @@ public class VfCaptureUtils {
         }
         return null;
     }
+
+    /**
+     * Delete folders which are empty and then any parent folders which become empty, stopping at
+     * the root folder (which is never deleted).  The deepest folders are checked first, so a
+     * parent shared by many folders is only checked once.
+     */
+    public static void deleteEmptyFolders(Collection<File> folders, File root) {
+        File rootFolder = root.getAbsoluteFile();
+        NavigableSet<File> pending = new TreeSet<>(DEEPEST_FIRST);
+        folders.forEach(folder -> pending.add(folder.getAbsoluteFile()));
+        for (File folder = pending.pollFirst(); folder != null; folder = pending.pollFirst()) {
+            if (folder.equals(rootFolder) || !folder.toPath().startsWith(rootFolder.toPath())) {
+                continue;
+            }
+            String[] children = folder.list();
+            if (children != null && children.length == 0 && folder.delete()) {
+                pending.add(folder.getParentFile());
+            }
+        }
+    }
 }
@@ -0,0 +1,85 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.configuration.properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.videofirst.capture.exception.VideoConfigurationException;
+import io.videofirst.capture.model.capture.VideoSettings;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of RecorderConfig.
+ *
+ * @author Bob Marks
+ */
+public class RecorderConfigTest {
+
+    private final RecorderConfig recorderConfig = new RecorderConfig();
+
+    @Test
+    public void shouldUseDefaultVideoSettings() {
+
+        VideoSettings settings = recorderConfig.videoSettings(null);
+
+        assertThat(settings.getFrameRate()).isEqualTo(10);
+        assertThat(settings.getAdaptive()).isFalse();
+        assertThat(settings.getMinFrameRate()).isEqualTo(2);
+        assertThat(settings.getKeyFrameInterval()).isEqualTo(900);
+        assertThat(settings.getQuality()).isEqualTo(1.0f);
+        assertThat(settings.getDepth()).isEqualTo(24);
+    }
+
+    @Test
+    public void shouldOverrideVideoSettings() {
+
+        recorderConfig.setFrameRate(15);
+        VideoSettings settings = recorderConfig.videoSettings(VideoSettings.builder()
+            .frameRate(25).adaptive(true).depth(16).build());
+
+        assertThat(settings.getFrameRate()).isEqualTo(25);
+        assertThat(settings.getAdaptive()).isTrue();
+        assertThat(settings.getMinFrameRate()).isEqualTo(2);
+        assertThat(settings.getDepth()).isEqualTo(16);
+    }
+
+    @Test(expected = VideoConfigurationException.class)
+    public void shouldNotAllowMinFrameRateAboveFrameRate() {
+
+        recorderConfig.videoSettings(VideoSettings.builder().frameRate(5).minFrameRate(6).build());
+    }
+
+    @Test(expected = VideoConfigurationException.class)
+    public void shouldNotAllowInvalidDepth() {
+
+        recorderConfig.videoSettings(VideoSettings.builder().depth(8).build());
+    }
+
+    @Test(expected = VideoConfigurationException.class)
+    public void shouldNotAllowInvalidQuality() {
+
+        recorderConfig.videoSettings(VideoSettings.builder().quality(1.5f).build());
+    }
+
+}
@@ -40,16 +40,27 @@ import com.revinate.assertj.json.JsonPathAssert;
 import io.videofirst.capture.enums.CaptureType;
 import io.videofirst.capture.enums.TestStatus;
 import io.videofirst.capture.model.TestLog;
+import io.videofirst.capture.model.bulk.BulkDeleteParams;
+import io.videofirst.capture.model.capture.Capture;
 import io.videofirst.capture.model.capture.CaptureRecordParams;
 import io.videofirst.capture.model.capture.CaptureStopParams;
 import io.videofirst.capture.test.VfCaptureTesting;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.json.JSONException;
 import org.junit.Test;
 import org.skyscreamer.jsonassert.JSONAssert;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -146,12 +157,235 @@ public class CaptureControllerTest extends AbstractControllerTest {
     /**
      * Call /captures GET endpoint.
      */
+    @Test
+    public void shouldRetrieveFilteredPageOfCaptures() throws JSONException {
+
+        ResponseEntity<String> response = videos("?limit=1");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JSONAssert.assertEquals("[{ 'id': '2018-02-23_10-13-25_9ip93m' }]", response.getBody(),
+            false);
+        String cursor = response.getHeaders().getFirst(CaptureController.HEADER_NEXT_CURSOR);
+        assertThat(cursor).isNotEmpty();
+
+        response = videos("?limit=1&cursor=" + cursor);
+
+        JSONAssert.assertEquals("[{ 'id': '2018-02-15_12-14-02_n3jwzb' }]", response.getBody(),
+            false);
+        assertThat(response.getHeaders().get(CaptureController.HEADER_NEXT_CURSOR)).isNull();
+
+        response = videos("?testStatus=pass&startedFrom=2018-02-20T00:00:00");
+
+        JSONAssert.assertEquals("[{ 'id': '2018-02-23_10-13-25_9ip93m' }]", response.getBody(),
+            true);
+    }
+
+    @Test
+    public void shouldNotRetrieveCapturesWithInvalidLimit() {
+
+        ResponseEntity<String> response = videos("?limit=0");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
     private ResponseEntity<String> videos() {
         HttpEntity<Void> entity = new HttpEntity<>(headers);
         return restTemplate
             .exchange(urlWithPort("/captures"), HttpMethod.GET, entity, String.class);
     }
 
+    private ResponseEntity<String> videos(String queryString) {
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+        return restTemplate.exchange(urlWithPort("/captures" + queryString), HttpMethod.GET,
+            entity, String.class);
+    }
+
+    // ===========================================
+    // [ /captures/stream ] GET
+    // ===========================================
+
+    @Test
+    public void shouldStreamCapturesAsNdjson() throws JSONException {
+
+        ResponseEntity<String> response = streamVideos("");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString())
+            .startsWith(CaptureController.MEDIA_TYPE_NDJSON);
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(2);
+        JSONAssert.assertEquals("{ 'id': '2018-02-23_10-13-25_9ip93m', 'testStatus': 'pass' }",
+            lines[0], false);
+        JSONAssert.assertEquals("{ 'id': '2018-02-15_12-14-02_n3jwzb', 'testStatus': 'fail' }",
+            lines[1], false);
+        assertThat(response.getBody()).endsWith("}\n");
+    }
+
+    @Test
+    public void shouldStreamFilteredCaptures() throws JSONException {
+
+        ResponseEntity<String> response = streamVideos("?project=Moon Rocket");
+
+        String[] lines = response.getBody().split("\n");
+        assertThat(lines).hasSize(1);
+        JSONAssert.assertEquals("{ 'id': '2018-02-15_12-14-02_n3jwzb' }", lines[0], false);
+    }
+
+    private ResponseEntity<String> streamVideos(String queryString) {
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+        return restTemplate.exchange(urlWithPort("/captures/stream" + queryString),
+            HttpMethod.GET, entity, String.class);
+    }
+
+    // ===========================================
+    // [ /captures/search ] GET
+    // ===========================================
+
+    @Test
+    public void shouldSearchCaptures() {
+
+        String id = "2018-04-01_10-00-00_search";
+        captureDao.save(Capture.builder()
+            .id(id)
+            .started(LocalDateTime.of(2018, 4, 1, 10, 0, 0))
+            .project("Moon Rocket")
+            .folder("moon-rocket/search/" + id)
+            .format("avi")
+            .testError("Login timeout after 30 seconds")
+            .build());
+
+        await().atMost(10, SECONDS).untilAsserted(() -> {
+            ResponseEntity<String> response = searchVideos("?q=LOGIN timeout");
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).contains(id);
+        });
+
+        assertThat(searchVideos("?q=login password").getBody()).isEqualTo("[]");
+        assertThat(searchVideos("?q=login&project=Google Search").getBody()).isEqualTo("[]");
+    }
+
+    @Test
+    public void shouldNotSearchWithoutWords() {
+
+        ResponseEntity<String> response = searchVideos("?q=...");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    private ResponseEntity<String> searchVideos(String queryString) {
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+        return restTemplate.exchange(urlWithPort("/captures/search" + queryString),
+            HttpMethod.GET, entity, String.class);
+    }
+
+    // ===========================================
+    // [ /captures/stats ] GET
+    // ===========================================
+
+    @Test
+    public void shouldRetrieveCaptureStats() throws JSONException {
+
+        ResponseEntity<String> response = captureStats("?days=100000");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String expectedJson = "{" +
+            "    'count': 2," +
+            "    'testStatus': { 'pass': 1, 'fail': 1 }," +
+            "    'type': { 'manual': 1, 'automated': 1 }," +
+            "    'duration': { 'count': 2, 'meanMillis': 2964 }," +
+            "    'projects': {" +
+            "        'Google Search': { 'count': 1, 'features': {" +
+            "            'Home Page Search': { 'count': 1, 'testStatus': { 'pass': 1 } } } }," +
+            "        'Moon Rocket': { 'count': 1, 'features': {" +
+            "            'Bob Feature': { 'count': 1, 'testStatus': { 'fail': 1 } } } }" +
+            "    }," +
+            "    'days': {" +
+            "        '2018-02-15': { 'count': 1 }," +
+            "        '2018-02-23': { 'count': 1 }" +
+            "    }" +
+            "}";
+        JSONAssert.assertEquals(expectedJson, response.getBody(), false);
+    }
+
+    @Test
+    public void shouldUpdateCaptureStatsWhenCapturesAreDeleted() throws JSONException {
+
+        deleteVideo(MOCK_CAPTURE_ID);
+
+        ResponseEntity<String> response = captureStats("?days=0");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String expectedJson = "{" +
+            "    'count': 1," +
+            "    'testStatus': { 'pass': 1 }," +
+            "    'projects': { 'Google Search': { 'count': 1 } }," +
+            "    'days': {}" +
+            "}";
+        JSONAssert.assertEquals(expectedJson, response.getBody(), false);
+        assertThat(response.getBody()).doesNotContain("Moon Rocket");
+    }
+
+    private ResponseEntity<String> captureStats(String queryString) {
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+        return restTemplate.exchange(urlWithPort("/captures/stats" + queryString),
+            HttpMethod.GET, entity, String.class);
+    }
+
+    // ===========================================
+    // [ /captures/export ] GET
+    // ===========================================
+
+    @Test
+    public void shouldExportCapturesAsZip() throws IOException {
+
+        ResponseEntity<byte[]> response = exportVideos("?project=Moon Rocket");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString())
+            .isEqualTo("application/zip");
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION))
+            .matches("attachment; filename=\"captures_.*\\.zip\"");
+        String folder = "moon-rocket/bob-feature/dave-scenario/" + MOCK_CAPTURE_ID + "/";
+        File videoFile = new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            folder + MOCK_CAPTURE_ID + ".avi");
+        try (ZipInputStream zip = new ZipInputStream(
+            new ByteArrayInputStream(response.getBody()))) {
+            ZipEntry dataEntry = zip.getNextEntry();
+            assertThat(dataEntry.getName()).isEqualTo(folder + MOCK_CAPTURE_ID + ".json");
+            assertThat(dataEntry.getMethod()).isEqualTo(ZipEntry.DEFLATED);
+            ZipEntry videoEntry = zip.getNextEntry();
+            assertThat(videoEntry.getName()).isEqualTo(folder + MOCK_CAPTURE_ID + ".avi");
+            assertThat(videoEntry.getMethod()).isEqualTo(ZipEntry.STORED); // not re-compressed
+            assertThat(IOUtils.toByteArray(zip))
+                .isEqualTo(FileUtils.readFileToByteArray(videoFile));
+            assertThat(zip.getNextEntry()).isNull();
+        }
+    }
+
+    @Test
+    public void shouldExportCapturesAsTar() {
+
+        ResponseEntity<byte[]> response = exportVideos("?format=tar");
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString())
+            .isEqualTo("application/x-tar");
+        byte[] tar = response.getBody();
+        assertThat(tar.length % 512).isEqualTo(0);
+        String content = new String(tar, StandardCharsets.ISO_8859_1);
+        assertThat(content).startsWith("PaxHeader") // path is longer than 100 characters
+            .contains("path=google-search/home-page-search/property-search-in-belfast/"
+                + "2018-02-23_10-13-25_9ip93m/2018-02-23_10-13-25_9ip93m.json\n")
+            .contains("moon-rocket/bob-feature/dave-scenario/" + MOCK_CAPTURE_ID + "/"
+                + MOCK_CAPTURE_ID + ".avi");
+    }
+
+    private ResponseEntity<byte[]> exportVideos(String queryString) {
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+        return restTemplate.exchange(urlWithPort("/captures/export" + queryString),
+            HttpMethod.GET, entity, byte[].class);
+    }
+
     // ===========================================
     // [ /captures/<captureId> ] GET
     // ===========================================
@@ -200,6 +434,86 @@ public class CaptureControllerTest extends AbstractControllerTest {
             urlWithPort("/captures/" + captureId), HttpMethod.GET, entity, String.class);
     }
 
+    // ===========================================
+    // [ /captures/<captureId>/video ] GET
+    // ===========================================
+
+    @Test
+    public void shouldRetrieveVideo() throws IOException {
+
+        ResponseEntity<byte[]> response = videoFile(MOCK_CAPTURE_ID, null, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentType().toString())
+            .isEqualTo("video/x-msvideo");
+        assertThat(response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeaders().getETag()).isNotEmpty();
+        assertThat(response.getBody()).isEqualTo(FileUtils.readFileToByteArray(mockVideoFile()));
+    }
+
+    @Test
+    public void shouldRetrieveVideoRange() throws IOException {
+
+        byte[] video = FileUtils.readFileToByteArray(mockVideoFile());
+
+        ResponseEntity<byte[]> response = videoFile(MOCK_CAPTURE_ID, "bytes=10-19", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE))
+            .isEqualTo("bytes 10-19/" + video.length);
+        assertThat(response.getBody()).isEqualTo(Arrays.copyOfRange(video, 10, 20));
+
+        response = videoFile(MOCK_CAPTURE_ID, "bytes=-5", null); // last 5 bytes
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getBody())
+            .isEqualTo(Arrays.copyOfRange(video, video.length - 5, video.length));
+    }
+
+    @Test
+    public void shouldNotRetrieveUnsatisfiableVideoRange() {
+
+        long length = mockVideoFile().length();
+
+        ResponseEntity<byte[]> response = videoFile(MOCK_CAPTURE_ID, "bytes=" + length + "-",
+            null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE))
+            .isEqualTo("bytes */" + length);
+    }
+
+    @Test
+    public void shouldReturnNotModifiedIfVideoETagMatches() {
+
+        String etag = videoFile(MOCK_CAPTURE_ID, null, null).getHeaders().getETag();
+
+        ResponseEntity<byte[]> response = videoFile(MOCK_CAPTURE_ID, null, etag);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getBody()).isNull();
+    }
+
+    // Private methods
+
+    private File mockVideoFile() {
+        return new File(VfCaptureTesting.VF_VIDEO_FOLDER, "moon-rocket/bob-feature/dave-scenario/"
+            + MOCK_CAPTURE_ID + "/" + MOCK_CAPTURE_ID + ".avi");
+    }
+
+    private ResponseEntity<byte[]> videoFile(String captureId, String range, String ifNoneMatch) {
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.putAll(headers);
+        if (range != null) {
+            requestHeaders.set(HttpHeaders.RANGE, range);
+        }
+        if (ifNoneMatch != null) {
+            requestHeaders.setIfNoneMatch(ifNoneMatch);
+        }
+        HttpEntity<Void> entity = new HttpEntity<>(requestHeaders);
+        return restTemplate.exchange(urlWithPort("/captures/" + captureId + "/video"),
+            HttpMethod.GET, entity, byte[].class);
+    }
+
     // ===========================================
     // [ /captures/record ] POST
     // ===========================================
@@ -546,6 +860,74 @@ public class CaptureControllerTest extends AbstractControllerTest {
                 Void.class);
     }
 
+    // ===========================================
+    // [ /captures/bulk/delete ] POST
+    // ===========================================
+
+    @Test
+    public void shouldBulkDeleteCapturesById() {
+
+        ResponseEntity<String> response = bulkDelete("",
+            BulkDeleteParams.builder().ids(asList(MOCK_CAPTURE_ID, "unknown")).build());
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        DocumentContext json = awaitBulkJob(JsonPath.parse(response.getBody()).read("$.id"));
+        JsonPathAssert.assertThat(json).jsonPathAsString("$.operation").isEqualTo("delete");
+        JsonPathAssert.assertThat(json).jsonPathAsInteger("$.total").isEqualTo(2);
+        JsonPathAssert.assertThat(json).jsonPathAsInteger("$.completed").isEqualTo(1);
+        JsonPathAssert.assertThat(json).jsonPathAsInteger("$.failed").isEqualTo(1);
+        assertThat(new File(VfCaptureTesting.VF_VIDEO_FOLDER, "moon-rocket")).doesNotExist();
+        assertThat(videos().getBody()).doesNotContain(MOCK_CAPTURE_ID)
+            .contains("2018-02-23_10-13-25_9ip93m");
+    }
+
+    @Test
+    public void shouldBulkDeleteCapturesByFilter() {
+
+        ResponseEntity<String> response = bulkDelete("?project=Google Search", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        DocumentContext json = awaitBulkJob(JsonPath.parse(response.getBody()).read("$.id"));
+        JsonPathAssert.assertThat(json).jsonPathAsInteger("$.total").isEqualTo(1);
+        JsonPathAssert.assertThat(json).jsonPathAsInteger("$.completed").isEqualTo(1);
+        assertThat(new File(VfCaptureTesting.VF_VIDEO_FOLDER, "google-search")).doesNotExist();
+        assertThat(videos().getBody()).contains(MOCK_CAPTURE_ID)
+            .doesNotContain("2018-02-23_10-13-25_9ip93m");
+        assertThat(bulkStatus("").getBody()).contains(json.read("$.id").toString());
+    }
+
+    @Test
+    public void shouldNotBulkDeleteWithoutIdsOrFilter() {
+
+        ResponseEntity<String> response = bulkDelete("", null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(videos().getBody()).contains(MOCK_CAPTURE_ID);
+    }
+
+    // Private methods
+
+    private DocumentContext awaitBulkJob(String jobId) {
+        await().atMost(10, SECONDS).until(() -> !bulkStatus("/" + jobId).getBody()
+            .contains("\"state\":\"running\""));
+        DocumentContext json = JsonPath.parse(bulkStatus("/" + jobId).getBody());
+        JsonPathAssert.assertThat(json).jsonPathAsString("$.state").isEqualTo("finished");
+        return json;
+    }
+
+    private ResponseEntity<String> bulkDelete(String queryString,
+        BulkDeleteParams bulkDeleteParams) {
+        HttpEntity<BulkDeleteParams> entity = new HttpEntity<>(bulkDeleteParams, headers);
+        return restTemplate.exchange(urlWithPort("/captures/bulk/delete" + queryString),
+            HttpMethod.POST, entity, String.class);
+    }
+
+    private ResponseEntity<String> bulkStatus(String path) {
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+        return restTemplate.exchange(urlWithPort("/captures/bulk" + path), HttpMethod.GET,
+            entity, String.class);
+    }
+
     // ===========================================
     // [ /captures/cancel ]
     // ===========================================
@@ -0,0 +1,246 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.controller.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.jayway.jsonpath.DocumentContext;
+import com.jayway.jsonpath.JsonPath;
+import com.revinate.assertj.json.JsonPathAssert;
+import io.videofirst.capture.configuration.properties.DisplayCaptureConfig;
+import io.videofirst.capture.configuration.properties.DisplayConfig;
+import io.videofirst.capture.model.capture.CaptureRecordParams;
+import io.videofirst.capture.service.SessionService;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Test;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Integration tests to test the end points of SessionController.
+ *
+ * @author Bob Marks
+ */
+public class SessionControllerTest extends AbstractControllerTest {
+
+    // Autowired fields
+
+    @Autowired
+    private SessionService sessionService;
+
+    @After
+    public void cancelSessions() {
+        sessionService.status().keySet().forEach(sessionService::cancel);
+    }
+
+    // ===========================================
+    // [ /sessions/{sessionId}/captures/record ] POST
+    // ===========================================
+
+    @Test
+    public void shouldRecordSessionsAtTheSameTime() throws JSONException {
+
+        ResponseEntity<String> response1 = recordSession("session-1",
+            recordParams(0, 0, 100, 80));
+        ResponseEntity<String> response2 = recordSession("session-2",
+            recordParams(100, 80, 200, 60));
+
+        assertThat(response1.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response2.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String expectedJson1 = "{" +
+            "    'recording': true," +
+            "    'project': 'Moon Rocket'," +
+            "    'capture': { 'x': 0, 'y': 0, 'width': 100, 'height': 80 }" +
+            "}";
+        JSONAssert.assertEquals(expectedJson1, response1.getBody(), false);
+        String expectedJson2 = "{" +
+            "    'recording': true," +
+            "    'project': 'Moon Rocket'," +
+            "    'capture': { 'x': 100, 'y': 80, 'width': 200, 'height': 60 }" +
+            "}";
+        JSONAssert.assertEquals(expectedJson2, response2.getBody(), false);
+
+        String id1 = JsonPath.parse(response1.getBody()).read("$.id");
+        String id2 = JsonPath.parse(response2.getBody()).read("$.id");
+        assertThat(id1).isNotEqualTo(id2);
+
+        // the default capture isn't affected
+        assertThat(captureService.status().isRecording()).isFalse();
+    }
+
+    @Test
+    public void shouldRecordDefaultSessionAsCapture() throws JSONException {
+
+        ResponseEntity<String> response = recordSession(SessionService.DEFAULT_SESSION,
+            recordParams(0, 0, 100, 80));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(captureService.status().isRecording()).isTrue();
+    }
+
+    @Test
+    public void shouldNotRecordInvalidSessionId() {
+
+        ResponseEntity<String> response = recordSession("s$1", recordParams(0, 0, 100, 80));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    // ===========================================
+    // [ /sessions/{sessionId}/captures/stop ] POST
+    // ===========================================
+
+    @Test
+    public void shouldStopSession() throws JSONException {
+
+        recordSession("session-1", recordParams(0, 0, 100, 80));
+        recordSession("session-2", recordParams(100, 80, 200, 60));
+        ResponseEntity<String> response = sessionRequest("session-1", "stop", HttpMethod.POST);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JSONAssert.assertEquals("{'recording': false}", response.getBody(), false);
+        DocumentContext json = JsonPath.parse(response.getBody());
+        JsonPathAssert.assertThat(json).jsonPathAsString("$.finished").isNotNull();
+        String captureId = json.read("$.id");
+        assertThat(captureDao.findById(captureId)).isNotNull();
+
+        // other session is still recording
+        ResponseEntity<String> status = sessionRequest("session-2", "status", HttpMethod.GET);
+        JSONAssert.assertEquals("{'recording': true}", status.getBody(), false);
+    }
+
+    @Test
+    public void shouldNotStopUnknownSession() {
+
+        ResponseEntity<String> response = sessionRequest("unknown", "stop", HttpMethod.POST);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    // ===========================================
+    // [ /sessions/{sessionId}/captures/cancel ] POST
+    // ===========================================
+
+    @Test
+    public void shouldCancelSession() throws JSONException {
+
+        recordSession("session-1", recordParams(0, 0, 100, 80));
+        ResponseEntity<String> response = sessionRequest("session-1", "cancel", HttpMethod.POST);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JSONAssert.assertEquals("{'recording': false}", response.getBody(), false);
+    }
+
+    // ===========================================
+    // [ /sessions/{sessionId}/captures/status ] GET
+    // ===========================================
+
+    @Test
+    public void shouldGetStatusOfUnknownSession() throws JSONException {
+
+        ResponseEntity<String> response = sessionRequest("unknown", "status", HttpMethod.GET);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        JSONAssert.assertEquals("{'recording': false}", response.getBody(), false);
+    }
+
+    // ===========================================
+    // [ /sessions ] GET
+    // ===========================================
+
+    @Test
+    public void shouldGetStatusOfAllSessions() throws JSONException {
+
+        recordSession("session-1", recordParams(0, 0, 100, 80));
+        recordSession("session-2", recordParams(100, 80, 200, 60));
+        sessionRequest("session-2", "stop", HttpMethod.POST);
+
+        ResponseEntity<String> response = getSessions();
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String expectedJson = "{" +
+            "    'default': { 'recording': false }," +
+            "    'session-1': { 'recording': true }" +
+            "}";
+        JSONAssert.assertEquals(expectedJson, response.getBody(), false);
+        assertThat(response.getBody()).doesNotContain("session-2"); // idle, so removed
+    }
+
+    @Test
+    public void shouldNotRecordMoreThanMaxSessions() {
+
+        // the default session counts towards the maximum (4)
+        recordSession(SessionService.DEFAULT_SESSION, recordParams(0, 0, 100, 80));
+        for (int i = 1; i <= 3; i++) {
+            assertThat(recordSession("session-" + i, recordParams(i * 10, 0, 100, 80))
+                .getStatusCode()).isEqualTo(HttpStatus.OK);
+        }
+
+        ResponseEntity<String> response = recordSession("session-4",
+            recordParams(40, 0, 100, 80));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(getSessions().getBody()).doesNotContain("session-4"); // never created
+
+        // a slot is free again once a session is cancelled
+        sessionRequest("session-1", "cancel", HttpMethod.POST);
+        assertThat(recordSession("session-4", recordParams(40, 0, 100, 80)).getStatusCode())
+            .isEqualTo(HttpStatus.OK);
+    }
+
+    // Private methods
+
+    private CaptureRecordParams recordParams(int x, int y, int width, int height) {
+        DisplayConfig display = new DisplayConfig();
+        display.setCapture(DisplayCaptureConfig.builder().x(String.valueOf(x))
+            .y(String.valueOf(y)).width(String.valueOf(width)).height(String.valueOf(height))
+            .build());
+        return CaptureRecordParams.builder().display(display).build();
+    }
+
+    private ResponseEntity<String> recordSession(String sessionId,
+        CaptureRecordParams captureRecordParams) {
+        HttpEntity<CaptureRecordParams> entity = new HttpEntity<>(captureRecordParams, headers);
+        return restTemplate.exchange(urlWithPort("/sessions/" + sessionId + "/captures/record"),
+            HttpMethod.POST, entity, String.class);
+    }
+
+    private ResponseEntity<String> getSessions() {
+        return restTemplate.exchange(urlWithPort("/sessions"), HttpMethod.GET,
+            new HttpEntity<>(headers), String.class);
+    }
+
+    private ResponseEntity<String> sessionRequest(String sessionId, String action,
+        HttpMethod method) {
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+        return restTemplate.exchange(urlWithPort("/sessions/" + sessionId + "/captures/" + action),
+            method, entity, String.class);
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.model.capture.Upload;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Unit test to test the methods of CaptureWriteBehind.
+ *
+ * @author Bob Marks
+ */
+public class CaptureWriteBehindTest {
+
+    // Constants
+
+    private static final String ID = "2018-02-15_12-14-02_n3jwzb";
+    private static final int WINDOW_MILLIS = 200;
+
+    // Fields
+
+    private CaptureDao captureDao;
+
+    private CaptureWriteBehind target;
+
+    @Before
+    public void setUp() {
+        captureDao = mock(CaptureDao.class);
+
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setWriteBehindInMillis(WINDOW_MILLIS);
+        target = new CaptureWriteBehind(captureDao,
+            CaptureConfig.builder().storage(storageConfig).build());
+    }
+
+    @After
+    public void tearDown() {
+        target.close();
+    }
+
+    @Test
+    public void shouldCoalesceUploadSavesWithinWindow() {
+
+        target.saveUpload(ID, upload(1));
+        target.saveUpload(ID, upload(2));
+        target.saveUpload(ID, upload(3));
+
+        verify(captureDao, never()).saveUpload(anyString(), any(Upload.class));
+        verify(captureDao, timeout(WINDOW_MILLIS * 10)).saveUpload(anyString(), any(Upload.class));
+        assertSaved(3);
+    }
+
+    @Test
+    public void shouldSaveNowReplacingPendingSave() throws InterruptedException {
+
+        target.saveUpload(ID, upload(1));
+        target.saveUploadNow(ID, upload(2));
+
+        assertSaved(2);
+
+        // Pending save was replaced so is never written
+        Thread.sleep(WINDOW_MILLIS * 3);
+        assertSaved(2);
+    }
+
+    @Test
+    public void shouldWritePendingSavesOnClose() {
+
+        target.saveUpload(ID, upload(1));
+        target.close();
+
+        assertSaved(1);
+    }
+
+    // Private methods
+
+    private Upload upload(long transferred) {
+        return Upload.schedule("http://localhost/upload").updateProgress(transferred, 10);
+    }
+
+    /**
+     * Assert the upload was saved exactly once with the specified number of transferred bytes.
+     */
+    private void assertSaved(long transferred) {
+        ArgumentCaptor<Upload> captor = ArgumentCaptor.forClass(Upload.class);
+        verify(captureDao).saveUpload(eq(ID), captor.capture());
+        assertThat(captor.getValue().getTransferred()).isEqualTo(transferred);
+    }
+
+}
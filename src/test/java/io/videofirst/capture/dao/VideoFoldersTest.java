@@ -0,0 +1,128 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.enums.ShardPlacement;
+import io.videofirst.capture.test.VfCaptureTesting;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of VideoFolders.
+ *
+ * @author Bob Marks
+ */
+public class VideoFoldersTest {
+
+    // Constants
+
+    private static final File VIDEOS = VfCaptureTesting.VF_VIDEO_FOLDER;
+    private static final File SHARD = VfCaptureTesting.VF_SHARD_FOLDER;
+
+    @Before
+    public void setUp() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+    }
+
+    @Test
+    public void shouldOnlyUseVideoFolderIfNoShardFolders() {
+
+        VideoFolders target = createVideoFolders(ShardPlacement.roundRobin);
+
+        assertThat(target.getRoots()).containsExactly(VIDEOS);
+        assertThat(target.place("Moon Rocket")).isEqualTo(VIDEOS);
+        assertThat(target.place("Google Search")).isEqualTo(VIDEOS);
+    }
+
+    @Test
+    public void shouldPlaceRoundRobin() {
+
+        VideoFolders target = createVideoFolders(ShardPlacement.roundRobin, SHARD, VIDEOS);
+
+        assertThat(target.getRoots()).containsExactly(VIDEOS, SHARD); // duplicate ignored
+        assertThat(target.place("Moon Rocket")).isEqualTo(VIDEOS);
+        assertThat(target.place("Moon Rocket")).isEqualTo(SHARD);
+        assertThat(target.place("Moon Rocket")).isEqualTo(VIDEOS);
+    }
+
+    @Test
+    public void shouldPlaceByProjectHash() {
+
+        VideoFolders target = createVideoFolders(ShardPlacement.projectHash, SHARD);
+
+        File root = target.place("Moon Rocket");
+        for (int i = 0; i < 5; i++) {
+            assertThat(target.place("Moon Rocket")).isEqualTo(root);
+        }
+        assertThat(target.place(null)).isIn(VIDEOS, SHARD);
+    }
+
+    @Test
+    public void shouldPlaceByMostFreeSpace() {
+
+        VideoFolders target = createVideoFolders(ShardPlacement.mostFreeSpace, SHARD);
+
+        assertThat(target.place("Moon Rocket")).isIn(VIDEOS, SHARD);
+    }
+
+    @Test
+    public void shouldFindVideoFolderOfFile() throws IOException {
+
+        VideoFolders target = createVideoFolders(ShardPlacement.roundRobin, SHARD);
+        File videoFile = new File(SHARD, "moon-rocket/capture-1.avi");
+        FileUtils.writeStringToFile(videoFile, "video", StandardCharsets.UTF_8);
+
+        assertThat(target.find("moon-rocket", "capture-1.avi")).isEqualTo(SHARD);
+        assertThat(target.find("moon-rocket", "capture-2.avi")).isNull();
+        assertThat(target.rootOf(videoFile)).isEqualTo(SHARD);
+        assertThat(target.rootOf(new File(VIDEOS, "a/b/c.json"))).isEqualTo(VIDEOS);
+        assertThat(target.rootOf(new File(VfCaptureTesting.VF_TEMP_FOLDER, "c.json"))).isNull();
+    }
+
+    // Private methods
+
+    private VideoFolders createVideoFolders(ShardPlacement placement, File... shardFolders) {
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setVideoFolder(VIDEOS);
+        storageConfig.setShardFolders(asList(shardFolders));
+        storageConfig.setShardPlacement(placement);
+        return new VideoFolders(CaptureConfig.builder().storage(storageConfig).build());
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.filesystem;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import io.videofirst.capture.enums.DurabilityPolicy;
+import io.videofirst.capture.exception.VideoConfigurationException;
+import io.videofirst.capture.test.VfCaptureTesting;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of AtomicFileWriter.
+ *
+ * @author Bob Marks
+ */
+public class AtomicFileWriterTest {
+
+    // Fields
+
+    private final File folder = VfCaptureTesting.VF_VIDEO_FOLDER;
+    private final Path file = new File(folder, "capture.json").toPath();
+
+    private AtomicFileWriter target;
+
+    @Before
+    public void setUp() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+        folder.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (target != null) {
+            target.close();
+        }
+        VfCaptureTesting.cleanTestFolders();
+    }
+
+    @Test
+    public void shouldReplaceFileWithoutLeavingTempFiles() throws IOException {
+
+        for (DurabilityPolicy policy : DurabilityPolicy.values()) {
+            target = new AtomicFileWriter(policy, 10);
+
+            target.write(file, bytes("first " + policy));
+            target.write(file, bytes("second " + policy));
+
+            assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+                .isEqualTo("second " + policy);
+            assertThat(folder.list()).containsExactly("capture.json");
+            target.close();
+        }
+    }
+
+    @Test
+    public void shouldWaitForGroupCommitBeforeMovingFile() throws Exception {
+
+        target = new AtomicFileWriter(DurabilityPolicy.group, 60 * 1000);
+        Thread writer = new Thread(() -> {
+            try {
+                target.write(file, bytes("data"));
+            } catch (IOException ioEx) {
+                throw new IllegalStateException(ioEx);
+            }
+        });
+        writer.start();
+        await().atMost(10, SECONDS).until(() -> folder.list().length == 1);
+
+        assertThat(file.toFile()).doesNotExist(); // waiting for the group commit
+
+        await().atMost(10, SECONDS).until(() -> {
+            target.groupCommit(); // the writer may not have queued its temp file yet
+            return !writer.isAlive();
+        });
+
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+            .isEqualTo("data");
+        assertThat(folder.list()).containsExactly("capture.json");
+    }
+
+    @Test
+    public void shouldReleaseWaitingWritersOnClose() throws Exception {
+
+        target = new AtomicFileWriter(DurabilityPolicy.group, 60 * 1000);
+        Thread writer = new Thread(() -> {
+            try {
+                target.write(file, bytes("data"));
+            } catch (IOException ioEx) {
+                throw new IllegalStateException(ioEx);
+            }
+        });
+        writer.start();
+        await().atMost(10, SECONDS).until(() -> folder.list().length == 1);
+
+        target.close();
+        writer.join(10 * 1000);
+        target.write(file, bytes("after close")); // forced straight away
+
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8))
+            .isEqualTo("after close");
+        assertThat(folder.list()).containsExactly("capture.json");
+    }
+
+    @Test(expected = VideoConfigurationException.class)
+    public void shouldRejectInvalidGroupCommitInterval() {
+
+        new AtomicFileWriter(DurabilityPolicy.group, 0);
+    }
+
+    @Test
+    public void shouldDetectStaleTempFiles() throws IOException {
+
+        target = new AtomicFileWriter(DurabilityPolicy.none, 0);
+        File tempFile = new File(folder, ".capture.json.1234abcd.tmp");
+        Files.write(tempFile.toPath(), bytes("partial"));
+
+        assertThat(target.isStaleTempFile(tempFile.toPath())).isFalse(); // could still be in use
+
+        tempFile.setLastModified(System.currentTimeMillis() - 5 * 60 * 1000);
+
+        assertThat(target.isStaleTempFile(tempFile.toPath())).isTrue();
+        assertThat(target.isStaleTempFile(file)).isFalse();
+    }
+
+    // Private methods
+
+    private byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
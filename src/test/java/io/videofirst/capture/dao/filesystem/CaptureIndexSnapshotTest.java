@@ -0,0 +1,129 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.filesystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.test.VfCaptureTesting;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of CaptureIndexSnapshot.
+ *
+ * @author Bob Marks
+ */
+public class CaptureIndexSnapshotTest {
+
+    // Constants
+
+    private static final String ID_1 = "2018-02-15_12-14-02_n3jwzb";
+    private static final String ID_2 = "2018-02-23_10-13-25_9ip93m";
+
+    // Fields
+
+    private final File videoFolder = VfCaptureTesting.VF_VIDEO_FOLDER;
+    private final File snapshotFile = new File(videoFolder,
+        CaptureIndexSnapshot.INDEX_FOLDER + "/" + CaptureIndexSnapshot.SNAPSHOT_FILE);
+
+    private CaptureIndexSnapshot target;
+
+    @Before
+    public void setUp() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+
+        target = new CaptureIndexSnapshot(videoFolder);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+    }
+
+    @Test
+    public void shouldReportMissingSnapshot() {
+
+        CaptureIndex captureIndex = new CaptureIndex();
+
+        assertThat(target.load(captureIndex)).isEqualTo(-1);
+        assertThat(captureIndex.size()).isZero();
+    }
+
+    @Test
+    public void shouldReloadEntriesWithWatermark() throws IOException {
+
+        CaptureSummary summary1 = new CaptureSummary(ID_1, CaptureType.automated, 1234L,
+            "Moon Rocket", "Bob Feature", "Dave Scenario", LocalDateTime.of(2018, 2, 15, 12, 14, 2),
+            LocalDateTime.of(2018, 2, 15, 12, 14, 3, 500), "avi", TestStatus.fail);
+        CaptureSummary summary2 = new CaptureSummary(ID_2, null, null, "Google Search", null,
+            null, null, null, "avi", null);
+        CaptureIndex captureIndex = new CaptureIndex();
+        captureIndex.put(summary1, dataFile("moon-rocket", ID_1), 1000L, 200L);
+        captureIndex.put(summary2, dataFile("google-search", ID_2), 3000L, 400L);
+
+        long before = System.currentTimeMillis();
+        target.write(captureIndex);
+
+        CaptureIndex reloaded = new CaptureIndex();
+        assertThat(target.load(reloaded)).isBetween(before, System.currentTimeMillis());
+        assertThat(reloaded.list()).containsExactly(summary2, summary1);
+        assertThat(reloaded.getDataFile(ID_1)).isEqualTo(dataFile("moon-rocket", ID_1));
+        assertThat(reloaded.entries()).extracting(CaptureIndex.Entry::getLastModified)
+            .containsOnly(1000L, 3000L);
+    }
+
+    @Test
+    public void shouldIgnoreCorruptSnapshot() throws IOException {
+
+        CaptureIndex captureIndex = new CaptureIndex();
+        captureIndex.put(new CaptureSummary(ID_1, null, null, "Moon Rocket", null, null, null,
+            null, "avi", null), dataFile("moon-rocket", ID_1), 1000L, 200L);
+        target.write(captureIndex);
+        try (RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")) {
+            file.seek(file.length() - 20); // flip a byte of the last entry
+            int b = file.read();
+            file.seek(file.length() - 20);
+            file.write(b ^ 0xff);
+        }
+
+        CaptureIndex reloaded = new CaptureIndex();
+        assertThat(target.load(reloaded)).isEqualTo(-1);
+        assertThat(reloaded.size()).isZero();
+    }
+
+    // Private methods
+
+    private File dataFile(String folder, String captureId) {
+        return new File(videoFolder, folder + "/" + captureId + "/" + captureId + ".json");
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.filesystem;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.test.VfCaptureTesting;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of CaptureSummaryReader.
+ *
+ * @author Bob Marks
+ */
+public class CaptureSummaryReaderTest {
+
+    // Constants
+
+    private static final String ID = "2018-02-15_12-14-02_n3jwzb";
+    private static final String FOLDER = "moon-rocket/bob-feature/dave-scenario/" + ID;
+
+    // Fields
+
+    private ObjectMapper objectMapper;
+
+    @Before
+    public void setUp() throws IOException {
+        VfCaptureTesting.initTestFolders();
+
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+    }
+
+    @Test
+    public void shouldReadSummaryFromOlderDataFile() throws IOException {
+
+        // Test data file has `folder` before `format` and `testStatus` at the end
+        File dataFile = new File(VfCaptureTesting.VF_VIDEO_FOLDER, FOLDER + "/" + ID + ".json");
+
+        CaptureSummary summary = CaptureSummaryReader.read(dataFile, objectMapper);
+
+        assertThat(summary).isEqualTo(objectMapper.readValue(dataFile, CaptureSummary.class));
+        assertThat(summary.getTestStatus()).isEqualTo(TestStatus.fail);
+        assertThat(summary.getType()).isEqualTo(CaptureType.automated);
+        assertThat(summary.getSid()).isEqualTo(1234L);
+        assertThat(summary.getStarted()).isEqualTo(LocalDateTime.of(2018, 2, 15, 12, 14, 2));
+    }
+
+    @Test
+    public void shouldReadSummaryFromSavedCapture() throws IOException {
+
+        Capture capture = Capture.builder()
+            .id(ID)
+            .project("Moon Rocket")
+            .started(LocalDateTime.of(2018, 2, 15, 12, 14, 2))
+            .format("avi")
+            .folder(FOLDER)
+            .description("Awesome test")
+            .build(); // no test status
+        File dataFile = writeDataFile(objectMapper.writeValueAsString(capture));
+
+        CaptureSummary summary = CaptureSummaryReader.read(dataFile, objectMapper);
+
+        assertThat(summary).isEqualTo(new CaptureSummary(capture));
+    }
+
+    @Test
+    public void shouldStopParsingAfterSummaryFields() throws IOException {
+
+        // Everything after `folder` is invalid JSON, so would fail if it was parsed
+        File dataFile = writeDataFile("{ \"id\": \"" + ID + "\", \"testStatus\": \"pass\", "
+            + "\"format\": \"avi\", \"folder\": \"" + FOLDER + "\", \"testLogs\": [ { ...");
+
+        CaptureSummary summary = CaptureSummaryReader.read(dataFile, objectMapper);
+
+        assertThat(summary.getId()).isEqualTo(ID);
+        assertThat(summary.getTestStatus()).isEqualTo(TestStatus.pass);
+        assertThat(summary.getFormat()).isEqualTo("avi");
+    }
+
+    @Test
+    public void shouldReadSummaryFromSmileDataFile() throws IOException {
+
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        smileMapper.registerModule(new JavaTimeModule());
+        Capture capture = Capture.builder()
+            .id(ID)
+            .project("Moon Rocket")
+            .started(LocalDateTime.of(2018, 2, 15, 12, 14, 2))
+            .format("avi")
+            .folder(FOLDER)
+            .testStatus(TestStatus.pass)
+            .build();
+        File dataFile = new File(VfCaptureTesting.VF_VIDEO_FOLDER, "capture.smile");
+        smileMapper.writeValue(dataFile, capture);
+
+        CaptureSummary summary = CaptureSummaryReader.read(dataFile, smileMapper);
+
+        assertThat(summary).isEqualTo(new CaptureSummary(capture));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldNotReadInvalidDataFile() throws IOException {
+
+        CaptureSummaryReader.read(writeDataFile("[]"), objectMapper);
+    }
+
+    // Private methods
+
+    private File writeDataFile(String json) throws IOException {
+        File dataFile = new File(VfCaptureTesting.VF_VIDEO_FOLDER, "capture.json");
+        Files.write(dataFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        return dataFile;
+    }
+
+}
@@ -27,29 +27,56 @@ import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS
 import static io.videofirst.capture.enums.LogTier.L1;
 import static io.videofirst.capture.enums.LogTier.L2;
 import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.core.data.MapEntry.entry;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.common.collect.ImmutableMap;
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.dao.CaptureListener;
+import io.videofirst.capture.enums.CaptureSortField;
 import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.ShardPlacement;
+import io.videofirst.capture.enums.SortOrder;
+import io.videofirst.capture.enums.StorageCodec;
 import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.enums.UploadState;
+import io.videofirst.capture.exception.InvalidParameterException;
+import io.videofirst.capture.exception.VideoOpenException;
 import io.videofirst.capture.model.TestLog;
 import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CapturePage;
+import io.videofirst.capture.model.capture.CaptureQuery;
 import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.model.capture.Upload;
 import io.videofirst.capture.model.display.DisplayCapture;
 import io.videofirst.capture.test.VfCaptureTesting;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.apache.commons.io.FileUtils;
 import org.assertj.core.api.Assertions;
 import org.json.JSONException;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.skyscreamer.jsonassert.JSONAssert;
 
 /**
@@ -80,11 +107,12 @@ public class FileSystemCaptureDaoTest {
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.disable(WRITE_DATES_AS_TIMESTAMPS);
 
-        target = new FileSystemCaptureDao(objectMapper, VfCaptureTesting.VF_VIDEO_FOLDER);
+        target = createDao(StorageCodec.pretty);
     }
 
     @After
     public void tearDown() throws IOException {
+        target.close();
         VfCaptureTesting.cleanTestFolders(); // delete files again
     }
 
@@ -186,6 +214,71 @@ public class FileSystemCaptureDaoTest {
         assertThat(capture.getTestStatus()).isEqualTo(TestStatus.fail);
     }
 
+    @Test
+    public void shouldFindByIdFromCache() throws IOException {
+
+        String id = "2018-02-15_12-14-02_n3jwzb";
+
+        Capture capture = target.findById(id);
+        capture.setDescription("changed by caller");
+        Capture cachedCapture = target.findById(id);
+
+        assertThat(target.getCacheStats().missCount()).isEqualTo(1);
+        assertThat(target.getCacheStats().hitCount()).isEqualTo(1);
+        assertThat(cachedCapture).isNotSameAs(capture);
+        assertThat(cachedCapture.getDescription()).isNull();
+
+        // Saving a capture invalidates it
+        cachedCapture.setDescription("saved");
+        target.save(cachedCapture);
+
+        assertThat(target.findById(id).getDescription()).isEqualTo("saved");
+        assertThat(target.getCacheStats().missCount()).isEqualTo(2);
+
+        // ... as does deleting it
+        target.delete(id);
+
+        assertThat(target.getCacheSize()).isZero();
+        try {
+            target.findById(id);
+            fail("Capture should have been deleted");
+        } catch (VideoOpenException voEx) {
+            assertThat(voEx.getMessage()).contains(id);
+        }
+    }
+
+    @Test
+    public void shouldSaveUploadToSidecarFile() throws IOException {
+
+        String id = "2018-02-15_12-14-02_n3jwzb";
+        File folder = new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            "moon-rocket/bob-feature/dave-scenario/" + id);
+        File dataFile = new File(folder, id + ".json");
+        File uploadFile = new File(folder, id + ".upload.json");
+        String json = new String(Files.readAllBytes(dataFile.toPath()));
+        Capture capture = target.findById(id); // cache capture
+
+        Upload upload = Upload.schedule("http://localhost/upload").updateProgress(5, 10);
+        target.saveUpload(id, upload);
+
+        assertThat(uploadFile).exists();
+        assertThat(new String(Files.readAllBytes(dataFile.toPath()))).isEqualTo(json);
+        assertThat(target.findById(id).getUpload()).isEqualTo(upload);
+        assertThat(target.list()).hasSize(2); // sidecar file isn't indexed
+
+        // Saving the capture also saves the upload to the sidecar file
+        capture.setUpload(upload.finish());
+        target.save(capture);
+
+        assertThat(new String(Files.readAllBytes(dataFile.toPath()))).doesNotContain("upload");
+        assertThat(target.findById(id).getUpload().getState()).isEqualTo(UploadState.finished);
+
+        target.delete(id);
+
+        assertThat(uploadFile).doesNotExist();
+        assertThat(folder).doesNotExist();
+    }
+
     @Test
     public void shouldList() {
 
@@ -205,6 +298,186 @@ public class FileSystemCaptureDaoTest {
         assertThat(video.getTestStatus()).isEqualTo(TestStatus.fail);
     }
 
+    @Test
+    public void shouldListSavedCaptureFromIndex() {
+
+        Capture capture = Capture.builder()
+            .started(ts4)
+            .project("Google Search")
+            .folder("google-search/2018-04-05_20-21-22_a9kea")
+            .id("2018-04-05_20-21-22_a9kea")
+            .format("avi")
+            .testStatus(TestStatus.pass)
+            .build();
+
+        target.save(capture);
+
+        List<CaptureSummary> videos = target.list();
+        assertThat(videos).extracting(CaptureSummary::getId).containsExactly(
+            "2018-04-05_20-21-22_a9kea", "2018-02-23_10-13-25_9ip93m",
+            "2018-02-15_12-14-02_n3jwzb");
+
+        target.delete("2018-04-05_20-21-22_a9kea");
+
+        assertThat(target.list()).hasSize(2);
+    }
+
+    @Test
+    public void shouldListPageOfFilteredCaptures() {
+
+        for (int i = 1; i <= 5; i++) {
+            target.save(Capture.builder()
+                .started(ts4.plusDays(i))
+                .project("Google Search")
+                .folder("google-search/2018-04-0" + i)
+                .id("2018-04-0" + i)
+                .format("avi")
+                .testStatus(i % 2 == 0 ? TestStatus.pass : TestStatus.fail)
+                .build());
+        }
+
+        // First page of failures (most recent first)
+        CaptureQuery query = CaptureQuery.builder().testStatus(TestStatus.fail).limit(2).build();
+        CapturePage page = target.list(query);
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-05", "2018-04-03");
+        assertThat(page.getNextCursor()).isNotNull();
+
+        // Next page (includes a failure from the test resources)
+        page = target.list(query.toBuilder().cursor(page.getNextCursor()).build());
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-01", "2018-02-15_12-14-02_n3jwzb");
+        assertThat(page.getNextCursor()).isNull(); // last page
+
+        // Started date range (inclusive)
+        page = target.list(CaptureQuery.builder()
+            .startedFrom(ts4.plusDays(2)).startedTo(ts4.plusDays(4)).build());
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-04", "2018-04-03", "2018-04-02");
+
+        // Different sort field / order
+        page = target.list(CaptureQuery.builder()
+            .project("Google Search").sort(CaptureSortField.id).order(SortOrder.asc).limit(3)
+            .build());
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-02-23_10-13-25_9ip93m", "2018-04-01", "2018-04-02");
+        page = target.list(CaptureQuery.builder()
+            .project("Google Search").sort(CaptureSortField.id).order(SortOrder.asc).limit(3)
+            .cursor(page.getNextCursor()).build());
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-03", "2018-04-04", "2018-04-05");
+    }
+
+    @Test(expected = InvalidParameterException.class)
+    public void shouldNotListWithCursorFromDifferentSort() {
+
+        CapturePage page = target.list(CaptureQuery.builder().limit(1).build());
+
+        target.list(CaptureQuery.builder().sort(CaptureSortField.project)
+            .cursor(page.getNextCursor()).build());
+    }
+
+    @Test
+    public void shouldSaveAndReadMixedStorageCodecs() {
+
+        String id = "2018-02-15_12-14-02_n3jwzb";
+        File folder = new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            "moon-rocket/bob-feature/dave-scenario/" + id);
+        target.close();
+        target = createDao(StorageCodec.smile);
+
+        // Existing JSON capture is re-saved as Smile
+        Capture capture = target.findById(id);
+        capture.setDescription("smile");
+        target.save(capture);
+
+        assertThat(new File(folder, id + ".json")).doesNotExist();
+        assertThat(new File(folder, id + ".smile")).exists();
+        assertThat(target.findById(id).getDescription()).isEqualTo("smile");
+        assertThat(target.list()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-02-23_10-13-25_9ip93m", id);
+
+        // ... which can be read by a DAO using a different codec
+        target.close();
+        target = createDao(StorageCodec.pretty);
+
+        assertThat(target.list()).hasSize(2);
+        assertThat(target.findById(id).getTestStatus()).isEqualTo(TestStatus.fail);
+        assertThat(target.findById(id).getDataFile().getName()).isEqualTo(id + ".smile");
+    }
+
+    @Test
+    public void shouldIndexChangesMadeOutsideApplication() throws IOException {
+
+        target.startWatching();
+
+        File folder = new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            "moon-rocket/bob-feature/dave-scenario/2018-02-15_12-14-02_n3jwzb");
+        FileUtils.deleteDirectory(folder);
+
+        await().atMost(10, SECONDS).untilAsserted(() -> assertThat(target.list())
+            .extracting(CaptureSummary::getId).containsExactly("2018-02-23_10-13-25_9ip93m"));
+
+        FileUtils.copyDirectory(new File(VfCaptureTesting.TEST_VIDEOS,
+            "moon-rocket/bob-feature/dave-scenario/2018-02-15_12-14-02_n3jwzb"), folder);
+
+        await().atMost(10, SECONDS).untilAsserted(() -> assertThat(target.list()).hasSize(2));
+    }
+
+    @Test
+    public void shouldReloadIndexSnapshotAndOnlyReadChangedFolders() throws IOException {
+
+        target.close(); // writes index snapshot
+
+        // Delete a capture, add a capture and edit a data file in place (folder isn't changed)
+        FileUtils.deleteDirectory(new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            "google-search/home-page-search/property-search-in-belfast"));
+        File newFile = new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            "moon-rocket/new-feature/2018-04-01/2018-04-01.json");
+        newFile.getParentFile().mkdirs();
+        objectMapper.writeValue(newFile, Capture.builder().id("2018-04-01").started(ts4)
+            .project("Moon Rocket").folder("moon-rocket/new-feature/2018-04-01").format("avi")
+            .build());
+        File unchangedFolder = new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            "moon-rocket/bob-feature/dave-scenario/2018-02-15_12-14-02_n3jwzb");
+        File unchangedFile = new File(unchangedFolder, "2018-02-15_12-14-02_n3jwzb.json");
+        String json = FileUtils.readFileToString(unchangedFile, StandardCharsets.UTF_8);
+        FileUtils.writeStringToFile(unchangedFile, json.replace("Moon Rocket", "Edited"),
+            StandardCharsets.UTF_8);
+        unchangedFolder.setLastModified(ts1.atZone(ZoneId.systemDefault()).toInstant()
+            .toEpochMilli());
+
+        target = createDao(StorageCodec.pretty);
+
+        List<CaptureSummary> captures = target.list();
+        assertThat(captures).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-01", "2018-02-15_12-14-02_n3jwzb");
+        assertThat(captures.get(1).getProject()).isEqualTo("Moon Rocket"); // from the snapshot
+    }
+
+    @Test
+    public void shouldNotifyListenerOfExistingSavedAndDeletedCaptures() {
+
+        CaptureListener listener = mock(CaptureListener.class);
+        target.addListener(listener);
+
+        // Existing captures (size includes the video file)
+        ArgumentCaptor<CaptureSummary> summaries = ArgumentCaptor.forClass(CaptureSummary.class);
+        ArgumentCaptor<Long> sizes = ArgumentCaptor.forClass(Long.class);
+        verify(listener, times(2)).captureSaved(summaries.capture(), sizes.capture());
+        assertThat(summaries.getAllValues()).extracting(CaptureSummary::getId)
+            .containsOnly("2018-02-15_12-14-02_n3jwzb", "2018-02-23_10-13-25_9ip93m");
+        File moonRocketFolder = new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            "moon-rocket/bob-feature/dave-scenario/2018-02-15_12-14-02_n3jwzb");
+        assertThat(sizes.getAllValues()).contains(
+            new File(moonRocketFolder, "2018-02-15_12-14-02_n3jwzb.json").length()
+                + new File(moonRocketFolder, "2018-02-15_12-14-02_n3jwzb.avi").length());
+
+        target.delete("2018-02-15_12-14-02_n3jwzb");
+
+        verify(listener).captureDeleted("2018-02-15_12-14-02_n3jwzb");
+    }
+
     @Test
     public void shouldDelete() {
 
@@ -223,8 +496,99 @@ public class FileSystemCaptureDaoTest {
         assertThat(videoFile).doesNotExist();
     }
 
+    @Test
+    public void shouldDeleteAllInParallelAndUpdateIndexes() {
+
+        String id1 = "2018-02-15_12-14-02_n3jwzb";
+        String id2 = "2018-02-23_10-13-25_9ip93m";
+        List<String> deleted = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertThat(target.deleteAll(asList(id1, "unknown", id2), executor, deleted::add))
+                .containsExactly(id1, id2);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(deleted).containsOnly(id1, id2);
+        assertThat(target.list()).isEmpty();
+        assertThat(new File(VfCaptureTesting.VF_VIDEO_FOLDER, "moon-rocket")).doesNotExist();
+        assertThat(new File(VfCaptureTesting.VF_VIDEO_FOLDER, "google-search")).doesNotExist();
+        assertThat(VfCaptureTesting.VF_VIDEO_FOLDER).exists();
+    }
+
+    @Test
+    public void shouldSpreadCapturesAcrossShardFolders() throws IOException {
+
+        target.close();
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setVideoFolder(VfCaptureTesting.VF_VIDEO_FOLDER);
+        storageConfig.setShardFolders(asList(VfCaptureTesting.VF_SHARD_FOLDER));
+        storageConfig.setShardPlacement(ShardPlacement.roundRobin);
+        CaptureConfig captureConfig = CaptureConfig.builder().storage(storageConfig).build();
+        target = new FileSystemCaptureDao(objectMapper, captureConfig);
+
+        // The video of the first capture was recorded to the shard folder, so it's saved there
+        File videoFile = new File(VfCaptureTesting.VF_SHARD_FOLDER,
+            "google-search/2018-04-01/2018-04-01.avi");
+        FileUtils.writeStringToFile(videoFile, "video", StandardCharsets.UTF_8);
+        for (int i = 1; i <= 4; i++) {
+            target.save(Capture.builder()
+                .started(ts4.plusDays(i))
+                .project("Google Search")
+                .folder("google-search/2018-04-0" + i)
+                .id("2018-04-0" + i)
+                .format("avi")
+                .build());
+        }
+        assertThat(new File(VfCaptureTesting.VF_SHARD_FOLDER,
+            "google-search/2018-04-01/2018-04-01.json")).exists();
+        assertThat(new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            "google-search/2018-04-02/2018-04-02.json")).exists();
+        assertThat(new File(VfCaptureTesting.VF_SHARD_FOLDER,
+            "google-search/2018-04-03/2018-04-03.json")).exists();
+        assertThat(new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            "google-search/2018-04-04/2018-04-04.json")).exists();
+        assertThat(target.findById("2018-04-01").getVideoFile()).isEqualTo(videoFile);
+
+        // Results of both shards are merged in sort order
+        String[] allIds = {"2018-04-04", "2018-04-03", "2018-04-02", "2018-04-01",
+            "2018-02-23_10-13-25_9ip93m", "2018-02-15_12-14-02_n3jwzb"};
+        assertThat(target.list()).extracting(CaptureSummary::getId).containsExactly(allIds);
+        assertThat(target.stream(new CaptureQuery()).map(CaptureSummary::getId)
+            .collect(Collectors.toList())).containsExactly(allIds);
+
+        CaptureQuery query = CaptureQuery.builder().limit(3).build();
+        CapturePage page = target.list(query);
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-04", "2018-04-03", "2018-04-02");
+        page = target.list(query.toBuilder().cursor(page.getNextCursor()).build());
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-01", "2018-02-23_10-13-25_9ip93m",
+                "2018-02-15_12-14-02_n3jwzb");
+        assertThat(page.getNextCursor()).isNull();
+
+        // Each shard is reloaded on restart
+        target.close();
+        target = new FileSystemCaptureDao(objectMapper, captureConfig);
+        assertThat(target.list()).extracting(CaptureSummary::getId).containsExactly(allIds);
+
+        target.delete("2018-04-03");
+        assertThat(new File(VfCaptureTesting.VF_SHARD_FOLDER, "google-search/2018-04-03"))
+            .doesNotExist();
+        assertThat(VfCaptureTesting.VF_SHARD_FOLDER).exists();
+    }
+
     // Private methods
 
+    private FileSystemCaptureDao createDao(StorageCodec codec) {
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setVideoFolder(VfCaptureTesting.VF_VIDEO_FOLDER);
+        storageConfig.setCodec(codec);
+        return new FileSystemCaptureDao(objectMapper,
+            CaptureConfig.builder().storage(storageConfig).build());
+    }
+
     private void assertFolderExists(File baseDir, String... subFolders) {
         File curFile = baseDir;
         for (String subFolder : subFolders) {
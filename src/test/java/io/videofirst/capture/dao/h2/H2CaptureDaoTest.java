@@ -0,0 +1,348 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.dao.h2;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.dao.CaptureCursor;
+import io.videofirst.capture.dao.CaptureListener;
+import io.videofirst.capture.dao.filesystem.FileSystemCaptureDao;
+import io.videofirst.capture.enums.CaptureSortField;
+import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.SortOrder;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.enums.UploadState;
+import io.videofirst.capture.exception.InvalidParameterException;
+import io.videofirst.capture.exception.VideoOpenException;
+import io.videofirst.capture.exception.VideoSaveException;
+import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CapturePage;
+import io.videofirst.capture.model.capture.CaptureQuery;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.model.capture.Upload;
+import io.videofirst.capture.test.VfCaptureTesting;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Unit test to test the methods of H2CaptureDao.
+ *
+ * @author Bob Marks
+ */
+public class H2CaptureDaoTest {
+
+    // Constants
+
+    private static final String ID_MOON_ROCKET = "2018-02-15_12-14-02_n3jwzb";
+    private static final String ID_GOOGLE_SEARCH = "2018-02-23_10-13-25_9ip93m";
+
+    private final LocalDateTime ts = LocalDateTime.of(2018, 4, 5, 20, 21, 22);
+
+    // Fields
+
+    private H2CaptureDao target;
+
+    private ObjectMapper objectMapper;
+    private CaptureConfig captureConfig;
+
+    @Before
+    public void setUp() throws IOException {
+        VfCaptureTesting.initTestFolders(); // clean out any videos generated
+
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(WRITE_DATES_AS_TIMESTAMPS);
+
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setVideoFolder(VfCaptureTesting.VF_VIDEO_FOLDER);
+        storageConfig.setDao(StorageConfig.DAO_H2);
+        captureConfig = CaptureConfig.builder().storage(storageConfig).build();
+
+        target = new H2CaptureDao(objectMapper, captureConfig);
+        FileSystemCaptureDao fileSystemCaptureDao = new FileSystemCaptureDao(objectMapper,
+            captureConfig);
+        try {
+            assertThat(target.importCaptures(fileSystemCaptureDao)).isEqualTo(2);
+        } finally {
+            fileSystemCaptureDao.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        target.close();
+        VfCaptureTesting.cleanTestFolders(); // delete files again
+    }
+
+    @Test
+    public void shouldFindImportedCapture() {
+
+        Capture capture = target.findById(ID_MOON_ROCKET);
+
+        assertThat(capture.getId()).isEqualTo(ID_MOON_ROCKET);
+        assertThat(capture.getProject()).isEqualTo("Moon Rocket");
+        assertThat(capture.getFeature()).isEqualTo("Bob Feature");
+        assertThat(capture.getScenario()).isEqualTo("Dave Scenario");
+        assertThat(capture.getStarted()).isEqualTo(LocalDateTime.of(2018, 2, 15, 12, 14, 02));
+        assertThat(capture.getType()).isEqualTo(CaptureType.automated);
+        assertThat(capture.getSid()).isEqualTo(1234L);
+        assertThat(capture.getTestStatus()).isEqualTo(TestStatus.fail);
+        assertThat(capture.getVideoFile()).isEqualTo(new File(VfCaptureTesting.VF_VIDEO_FOLDER,
+            "moon-rocket/bob-feature/dave-scenario/" + ID_MOON_ROCKET + "/" + ID_MOON_ROCKET
+                + ".avi"));
+        assertThat(capture.getVideoFile()).exists();
+        assertThat(capture.getDataFile()).isNull(); // stored in the database
+    }
+
+    @Test(expected = VideoOpenException.class)
+    public void shouldNotFindUnknownCapture() {
+
+        target.findById("unknown");
+    }
+
+    @Test
+    public void shouldList() {
+
+        assertThat(target.list()).extracting(CaptureSummary::getId)
+            .containsExactly(ID_GOOGLE_SEARCH, ID_MOON_ROCKET); // most recent first
+    }
+
+    @Test
+    public void shouldListPageOfFilteredCaptures() {
+
+        for (int i = 1; i <= 5; i++) {
+            target.save(Capture.builder()
+                .started(ts.plusDays(i))
+                .project("Google Search")
+                .folder("google-search/2018-04-0" + i)
+                .id("2018-04-0" + i)
+                .format("avi")
+                .testStatus(i % 2 == 0 ? TestStatus.pass : TestStatus.fail)
+                .build());
+        }
+
+        // First page of failures (most recent first)
+        CaptureQuery query = CaptureQuery.builder().testStatus(TestStatus.fail).limit(2).build();
+        CapturePage page = target.list(query);
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-05", "2018-04-03");
+        assertThat(page.getNextCursor()).isNotNull();
+
+        // Next page (includes a failure which was imported)
+        page = target.list(query.toBuilder().cursor(page.getNextCursor()).build());
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-01", ID_MOON_ROCKET);
+        assertThat(page.getNextCursor()).isNull(); // last page
+
+        // Started date range (inclusive)
+        page = target.list(CaptureQuery.builder()
+            .startedFrom(ts.plusDays(2)).startedTo(ts.plusDays(4)).build());
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-04", "2018-04-03", "2018-04-02");
+
+        // Different sort field / order
+        query = CaptureQuery.builder().project("Google Search").sort(CaptureSortField.id)
+            .order(SortOrder.asc).limit(3).build();
+        page = target.list(query);
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly(ID_GOOGLE_SEARCH, "2018-04-01", "2018-04-02");
+        page = target.list(query.toBuilder().cursor(page.getNextCursor()).build());
+        assertThat(page.getCaptures()).extracting(CaptureSummary::getId)
+            .containsExactly("2018-04-03", "2018-04-04", "2018-04-05");
+    }
+
+    @Test
+    public void shouldPageByEnumInSameOrderAsCursorComparator() {
+
+        TestStatus[] testStatuses = TestStatus.values();
+        for (int i = 0; i < testStatuses.length; i++) {
+            target.save(Capture.builder()
+                .started(ts.plusDays(i))
+                .project("Status")
+                .folder("status/" + i)
+                .id("status-" + i)
+                .format("avi")
+                .testStatus(testStatuses[i])
+                .build());
+        }
+
+        CaptureQuery query = CaptureQuery.builder().project("Status")
+            .sort(CaptureSortField.testStatus).order(SortOrder.asc).limit(2).build();
+        List<CaptureSummary> paged = new ArrayList<>();
+        CapturePage page = target.list(query);
+        paged.addAll(page.getCaptures());
+        while (page.getNextCursor() != null) {
+            page = target.list(query.toBuilder().cursor(page.getNextCursor()).build());
+            paged.addAll(page.getCaptures());
+        }
+
+        List<CaptureSummary> sorted = new ArrayList<>(paged);
+        sorted.sort(CaptureCursor.comparator(CaptureSortField.testStatus, SortOrder.asc));
+        assertThat(paged).hasSize(testStatuses.length);
+        assertThat(paged).extracting(CaptureSummary::getId)
+            .containsExactlyElementsOf(sorted.stream().map(CaptureSummary::getId)
+                .collect(Collectors.toList()));
+    }
+
+    @Test(expected = InvalidParameterException.class)
+    public void shouldNotListWithCursorFromDifferentSort() {
+
+        CapturePage page = target.list(CaptureQuery.builder().limit(1).build());
+
+        target.list(CaptureQuery.builder().sort(CaptureSortField.project)
+            .cursor(page.getNextCursor()).build());
+    }
+
+    @Test
+    public void shouldStreamCapturesInBatches() {
+
+        for (int i = 0; i < 1200; i++) { // more than 2 batches
+            target.save(Capture.builder()
+                .started(ts.plusMinutes(i))
+                .project("Bulk")
+                .folder("bulk/" + i)
+                .id(String.format("bulk-%04d", i))
+                .format("avi")
+                .build());
+        }
+
+        try (Stream<CaptureSummary> stream = target.stream(CaptureQuery.builder()
+            .project("Bulk").sort(CaptureSortField.id).order(SortOrder.asc).build())) {
+            assertThat(stream.map(CaptureSummary::getId).collect(Collectors.toList()))
+                .hasSize(1200)
+                .startsWith("bulk-0000", "bulk-0001")
+                .endsWith("bulk-1198", "bulk-1199");
+        }
+    }
+
+    @Test
+    public void shouldSaveUploadWithoutRemovingItOnSave() {
+
+        Upload upload = Upload.builder().state(UploadState.uploading).total(100L).transferred(10L)
+            .build();
+        target.saveUpload(ID_GOOGLE_SEARCH, upload);
+
+        Capture capture = target.findById(ID_GOOGLE_SEARCH);
+        assertThat(capture.getUpload()).isEqualTo(upload);
+
+        target.save(capture.toBuilder().upload(null).description("Changed").build());
+
+        capture = target.findById(ID_GOOGLE_SEARCH);
+        assertThat(capture.getDescription()).isEqualTo("Changed");
+        assertThat(capture.getUpload()).isEqualTo(upload);
+    }
+
+    @Test
+    public void shouldNotSaveUploadOfUnknownCapture() {
+
+        try {
+            target.saveUpload("unknown", Upload.builder().build());
+            fail("Expected VideoSaveException");
+        } catch (VideoSaveException vsEx) {
+            assertThat(vsEx.getMessage()).contains("unknown");
+        }
+    }
+
+    @Test
+    public void shouldKeepCapturesWhenReopened() {
+
+        target.close();
+        target = new H2CaptureDao(objectMapper, captureConfig); // schema isn't created again
+
+        assertThat(target.list()).extracting(CaptureSummary::getId)
+            .containsExactly(ID_GOOGLE_SEARCH, ID_MOON_ROCKET);
+    }
+
+    @Test
+    public void shouldDelete() {
+
+        File videoFile = target.findById(ID_MOON_ROCKET).getVideoFile();
+        assertThat(videoFile).exists();
+
+        target.delete(ID_MOON_ROCKET);
+
+        assertThat(videoFile).doesNotExist();
+        assertThat(target.list()).extracting(CaptureSummary::getId)
+            .containsExactly(ID_GOOGLE_SEARCH);
+    }
+
+    @Test
+    public void shouldNotifyListenerOfExistingSavedAndDeletedCaptures() {
+
+        CaptureListener listener = mock(CaptureListener.class);
+        target.addListener(listener);
+
+        // Existing captures
+        ArgumentCaptor<CaptureSummary> summaries = ArgumentCaptor.forClass(CaptureSummary.class);
+        verify(listener, times(2)).captureSaved(summaries.capture(), anyLong());
+        assertThat(summaries.getAllValues()).extracting(CaptureSummary::getId)
+            .containsOnly(ID_MOON_ROCKET, ID_GOOGLE_SEARCH);
+
+        // Saved capture (size includes the data as well as the video file) ...
+        Capture capture = target.findById(ID_MOON_ROCKET);
+        target.save(capture);
+
+        ArgumentCaptor<Long> sizes = ArgumentCaptor.forClass(Long.class);
+        verify(listener, times(3)).captureSaved(any(), sizes.capture());
+        long savedSize = sizes.getValue();
+        assertThat(savedSize).isGreaterThan(capture.getVideoFile().length());
+
+        // ... is the same size when replayed to a new listener
+        CaptureListener newListener = mock(CaptureListener.class);
+        target.addListener(newListener);
+
+        ArgumentCaptor<CaptureSummary> replayed = ArgumentCaptor.forClass(CaptureSummary.class);
+        ArgumentCaptor<Long> replayedSizes = ArgumentCaptor.forClass(Long.class);
+        verify(newListener, times(2)).captureSaved(replayed.capture(), replayedSizes.capture());
+        int index = replayed.getAllValues().stream().map(CaptureSummary::getId)
+            .collect(Collectors.toList()).indexOf(ID_MOON_ROCKET);
+        assertThat(replayedSizes.getAllValues().get(index)).isEqualTo(savedSize);
+
+        target.delete(ID_MOON_ROCKET);
+
+        verify(listener).captureDeleted(ID_MOON_ROCKET);
+        verify(newListener).captureDeleted(ID_MOON_ROCKET);
+    }
+
+}
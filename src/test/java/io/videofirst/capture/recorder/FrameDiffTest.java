@@ -0,0 +1,117 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.awt.image.BufferedImage;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of FrameDiff.
+ *
+ * @author Bob Marks
+ */
+public class FrameDiffTest {
+
+    private final FrameDiff frameDiff = new FrameDiff(16);
+
+    @Test
+    public void shouldChangeEveryTileOfFirstFrame() {
+
+        // 100 x 40 = 7 x 3 tiles (partial tiles at the edges)
+        assertThat(frameDiff.diff(image(100, 40, BufferedImage.TYPE_INT_RGB))).isEqualTo(21);
+        assertThat(frameDiff.getSkippedTileRatio()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldDetectRepeatedFrame() {
+
+        frameDiff.diff(image(100, 40, BufferedImage.TYPE_INT_RGB));
+
+        assertThat(frameDiff.diff(image(100, 40, BufferedImage.TYPE_INT_RGB))).isEqualTo(0);
+        assertThat(frameDiff.getSkippedTileRatio()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void shouldDetectChangedTiles() {
+
+        frameDiff.diff(image(100, 40, BufferedImage.TYPE_INT_RGB));
+
+        BufferedImage image = image(100, 40, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xff0000); // tile 0, 0
+        image.setRGB(99, 39, 0xff0000); // tile 6, 2 (partial tile)
+        image.setRGB(20, 17, 0xff0000); // tile 1, 1
+        image.setRGB(21, 18, 0xff0000); // tile 1, 1
+        assertThat(frameDiff.diff(image)).isEqualTo(3);
+        assertThat(frameDiff.getSkippedTileRatio()).isCloseTo(18.0 / 21.0, within(0.0001));
+
+        // compared with the changed frame, not the first frame
+        assertThat(frameDiff.diff(image)).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCompareImagesWhichArentIntBacked() {
+
+        frameDiff.diff(image(40, 40, BufferedImage.TYPE_3BYTE_BGR));
+
+        BufferedImage image = image(40, 40, BufferedImage.TYPE_3BYTE_BGR);
+        image.setRGB(39, 0, 0x00ff00);
+        assertThat(frameDiff.diff(image)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCompareSubImages() {
+
+        BufferedImage screen = image(100, 100, BufferedImage.TYPE_INT_RGB);
+        frameDiff.diff(screen.getSubimage(50, 50, 32, 32));
+
+        screen.setRGB(10, 10, 0xff0000); // outside of the sub image
+        assertThat(frameDiff.diff(screen.getSubimage(50, 50, 32, 32))).isEqualTo(0);
+        screen.setRGB(60, 70, 0xff0000); // tile 0, 1 of the sub image
+        assertThat(frameDiff.diff(screen.getSubimage(50, 50, 32, 32))).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldChangeEveryTileIfSizeChanges() {
+
+        frameDiff.diff(image(32, 32, BufferedImage.TYPE_INT_RGB));
+
+        assertThat(frameDiff.diff(image(48, 32, BufferedImage.TYPE_INT_RGB))).isEqualTo(6);
+    }
+
+    // Private methods
+
+    private static BufferedImage image(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 31 + y * 17) & 0xffffff);
+            }
+        }
+        return image;
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of FramePool.
+ *
+ * @author Bob Marks
+ */
+public class FramePoolTest {
+
+    private final FramePool framePool = new FramePool(8, 6, 2);
+
+    @Test
+    public void shouldFillPoolLazily() {
+
+        assertThat(framePool.available()).isEqualTo(0);
+        BufferedImage image = framePool.acquire();
+        assertThat(image.getWidth()).isEqualTo(8);
+        assertThat(image.getHeight()).isEqualTo(6);
+        assertThat(image.getRaster().getDataBuffer()).isInstanceOf(DataBufferInt.class);
+        assertThat(framePool.getAllocated()).isEqualTo(0);
+
+        // only 1 image is ever in flight, so only 1 image is created
+        for (int i = 0; i < 10; i++) {
+            framePool.release(image);
+            assertThat(framePool.acquire()).isSameAs(image);
+        }
+        assertThat(framePool.getAllocated()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReuseReleasedImages() {
+
+        BufferedImage image1 = framePool.acquire();
+        BufferedImage image2 = framePool.acquire();
+        assertThat(image1).isNotSameAs(image2);
+        assertThat(framePool.available()).isEqualTo(0);
+
+        framePool.release(image1);
+        assertThat(framePool.acquire()).isSameAs(image1);
+        assertThat(framePool.getAllocated()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldAllocateImageIfEveryImageIsInUse() {
+
+        framePool.acquire();
+        framePool.acquire();
+        assertThat(framePool.acquire()).isNotNull();
+        assertThat(framePool.getAllocated()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotPoolOtherImages() {
+
+        framePool.release(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB));
+        framePool.release(new BufferedImage(8, 6, BufferedImage.TYPE_3BYTE_BGR));
+        framePool.release(null);
+        assertThat(framePool.available()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotGrowPool() {
+
+        framePool.release(framePool.acquire());
+        framePool.release(new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB));
+        framePool.release(new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB));
+        assertThat(framePool.available()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldMatchFrameAndPoolSize() {
+
+        assertThat(framePool.isFor(8, 6, 2)).isTrue();
+        assertThat(framePool.isFor(8, 6, 3)).isFalse();
+        assertThat(framePool.isFor(6, 8, 2)).isFalse();
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.videofirst.capture.enums.Backpressure;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of FrameRingBuffer.
+ *
+ * @author Bob Marks
+ */
+public class FrameRingBufferTest {
+
+    private final BufferedImage image1 = image();
+    private final BufferedImage image2 = image();
+    private final BufferedImage image3 = image();
+
+    @Test
+    public void shouldTakeFramesInOrder() throws InterruptedException {
+
+        FrameRingBuffer buffer = new FrameRingBuffer(3, Backpressure.dropOldest);
+        buffer.put(image1, 1);
+        buffer.put(image2, 2);
+
+        Frame frame = new Frame();
+        assertThat(buffer.take(frame)).isTrue();
+        assertThat(frame.getImage()).isSameAs(image1);
+        assertThat(frame.getTimestamp()).isEqualTo(1);
+        assertThat(buffer.take(frame)).isTrue();
+        assertThat(frame.getImage()).isSameAs(image2);
+        assertThat(buffer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldDropOldestFrameWhenFull() throws InterruptedException {
+
+        FrameRingBuffer buffer = new FrameRingBuffer(2, Backpressure.dropOldest);
+        assertThat(buffer.put(image1, 1)).isTrue();
+        assertThat(buffer.put(image2, 2)).isTrue();
+        assertThat(buffer.put(image3, 3)).isTrue();
+
+        Frame frame = new Frame();
+        buffer.take(frame);
+        assertThat(frame.getImage()).isSameAs(image2);
+        buffer.take(frame);
+        assertThat(frame.getImage()).isSameAs(image3);
+        assertThat(buffer.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldDropNewFrameWhenFullIfDegrading() throws InterruptedException {
+
+        FrameRingBuffer buffer = new FrameRingBuffer(2, Backpressure.degrade);
+        buffer.put(image1, 1);
+        assertThat(buffer.isBackedUp()).isTrue();
+        buffer.put(image2, 2);
+        assertThat(buffer.put(image3, 3)).isFalse();
+
+        Frame frame = new Frame();
+        buffer.take(frame);
+        assertThat(frame.getImage()).isSameAs(image1);
+        assertThat(buffer.getDropped()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldBlockWhenFull() throws Exception {
+
+        FrameRingBuffer buffer = new FrameRingBuffer(1, Backpressure.block);
+        buffer.put(image1, 1);
+        CompletableFuture<Boolean> put = CompletableFuture.supplyAsync(() -> {
+            try {
+                return buffer.put(image2, 2);
+            } catch (InterruptedException e) {
+                return false;
+            }
+        });
+        Thread.sleep(100);
+        assertThat(put.isDone()).isFalse();
+
+        Frame frame = new Frame();
+        buffer.take(frame);
+        assertThat(put.get(5, TimeUnit.SECONDS)).isTrue();
+        buffer.take(frame);
+        assertThat(frame.getImage()).isSameAs(image2);
+        assertThat(buffer.getDropped()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldRecycleDroppedAndClearedFrames() throws InterruptedException {
+
+        List<BufferedImage> recycled = new ArrayList<>();
+        FrameRingBuffer buffer = new FrameRingBuffer(2, Backpressure.dropOldest, recycled::add);
+        buffer.put(image1, 1);
+        buffer.put(image2, 2);
+        buffer.put(image3, 3);
+        assertThat(recycled).containsExactly(image1);
+
+        buffer.clear();
+        assertThat(recycled).containsExactly(image1, image2, image3);
+        assertThat(buffer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldDrainFramesAfterClose() throws InterruptedException {
+
+        FrameRingBuffer buffer = new FrameRingBuffer(2, Backpressure.dropOldest);
+        buffer.put(image1, 1);
+        buffer.close();
+        assertThat(buffer.put(image2, 2)).isFalse();
+
+        Frame frame = new Frame();
+        assertThat(buffer.take(frame)).isTrue();
+        assertThat(frame.getImage()).isSameAs(image1);
+        assertThat(buffer.take(frame)).isFalse();
+    }
+
+    // Private methods
+
+    private static BufferedImage image() {
+        return new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB);
+    }
+
+}
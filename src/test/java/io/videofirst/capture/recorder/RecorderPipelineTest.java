@@ -0,0 +1,329 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import io.videofirst.capture.enums.Backpressure;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of RecorderPipeline.  Pipelines use a manual clock, so each test
+ * steps through the ticks of a recording (every tick is 1 grab unless adaptive) and the frames
+ * which are grabbed, dropped and written don't depend on how fast the test runs.
+ *
+ * @author Bob Marks
+ */
+public class RecorderPipelineTest {
+
+    // Constants
+
+    private static final int FRAME_RATE = 20;
+
+    // Fields
+
+    private final ManualClock clock = new ManualClock();
+    private final TestMovieWriter writer = new TestMovieWriter();
+    private RecorderPipeline pipeline;
+
+    @After
+    public void tearDown() {
+        writer.unblock(); // so the encoder thread always finishes
+        if (pipeline != null) {
+            pipeline.cancel();
+        }
+    }
+
+    @Test
+    public void shouldWriteFramesForEveryTick() throws Exception {
+
+        pipeline = pipeline().bufferFrames(10).backpressure(Backpressure.block).build();
+
+        pipeline.start();
+        tick(9); // i.e. frames grabbed at ticks 0 to 9
+        pipeline.stop();
+
+        assertThat(writer.closed).isTrue();
+        assertThat(writer.durations).containsExactly(1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        assertThat(pipeline.getFramesGrabbed()).isEqualTo(10);
+        assertThat(pipeline.getFramesWritten()).isEqualTo(10);
+        assertThat(pipeline.getFramesDropped()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldKeepTimeWhenEncoderIsSlow() throws Exception {
+
+        writer.block(); // encoder blocks writing the first frame
+        pipeline = pipeline().bufferFrames(2).backpressure(Backpressure.dropOldest).build();
+
+        pipeline.start();
+        tick(1);
+        await().atMost(10, SECONDS).until(() -> writer.writes.get() == 1); // frame 0 (1 tick)
+        tick(8); // frames 2 to 9 - only the last 2 fit in the buffer
+        writer.unblock();
+        pipeline.stop();
+
+        assertThat(pipeline.getFramesGrabbed()).isEqualTo(10);
+        assertThat(pipeline.getFramesDropped()).isEqualTo(6);
+        // frame 1 is shown until frame 8, so the video still lasts 10 ticks
+        assertThat(writer.durations).containsExactly(1, 7, 1, 1);
+    }
+
+    @Test
+    public void shouldLowerFrameRateWhenAdaptiveAndEncoderIsSlow() throws Exception {
+
+        writer.block(); // so the buffer backs up
+        pipeline = pipeline().minFrameRate(5).bufferFrames(10)
+            .backpressure(Backpressure.dropOldest).build();
+
+        pipeline.start();
+        tick(19);
+        assertThat(pipeline.getFrameRate()).isEqualTo(FRAME_RATE);
+
+        tick(1); // adapts every second i.e. every 20 ticks
+        assertThat(pipeline.getFrameRate()).isEqualTo(FRAME_RATE / 2);
+    }
+
+    @Test
+    public void shouldKeepFrameRateWhenAdaptiveAndThereIsHeadroom() throws Exception {
+
+        pipeline = pipeline().minFrameRate(5).bufferFrames(10)
+            .backpressure(Backpressure.block).build();
+
+        pipeline.start();
+        for (int i = 0; i < 40; i++) {
+            tick(1);
+            long written = i + 1; // the last frame grabbed is held until the next one arrives
+            await().atMost(10, SECONDS).until(() -> pipeline.getFramesWritten() == written);
+        }
+        assertThat(pipeline.getFrameRate()).isEqualTo(FRAME_RATE);
+        pipeline.stop();
+    }
+
+    @Test
+    public void shouldNotWriteRepeatedFrames() throws Exception {
+
+        pipeline = pipeline().bufferFrames(20).backpressure(Backpressure.block)
+            .grabber(image -> {
+                // screen is blank
+            })
+            .frameDiff(new FrameDiff(FrameDiff.DEFAULT_TILE_SIZE)).build();
+
+        pipeline.start();
+        tick(9);
+        pipeline.stop();
+
+        // the screen never changes, so the first frame is shown for the whole recording
+        assertThat(writer.durations).containsExactly(10);
+        assertThat(pipeline.getFramesGrabbed()).isEqualTo(10);
+        assertThat(pipeline.getFramesRepeated()).isEqualTo(9);
+        assertThat(pipeline.getSkippedTileRatio()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void shouldRecycleFrameImages() throws Exception {
+
+        writer.block(); // frames are dropped
+        TestFrameGrabber grabber = new TestFrameGrabber();
+        pipeline = pipeline().grabber(grabber).bufferFrames(4)
+            .backpressure(Backpressure.dropOldest).frameDiff(new FrameDiff(2)).build();
+
+        pipeline.start();
+        tick(1);
+        await().atMost(10, SECONDS).until(() -> writer.writes.get() == 1);
+        tick(18);
+        writer.unblock();
+        pipeline.stop();
+
+        assertThat(pipeline.getFramesGrabbed()).isEqualTo(20);
+        assertThat(pipeline.getFramesDropped()).isEqualTo(14);
+        assertThat(pipeline.getFramesAllocated()).isEqualTo(0);
+        assertThat(grabber.images.size()).isLessThanOrEqualTo(4 + 3); // buffer + in use
+    }
+
+    @Test
+    public void shouldReuseFramePoolOfPreviousPipeline() {
+
+        FramePool framePool = pipeline().bufferFrames(4).build().getFramePool();
+
+        assertThat(pipeline().bufferFrames(4).framePool(framePool).build().getFramePool())
+            .isSameAs(framePool);
+        assertThat(pipeline().bufferFrames(4).framePool(framePool).width(8).build()
+            .getFramePool()).isNotSameAs(framePool);
+    }
+
+    @Test
+    public void shouldNotWriteFramesWhenCancelled() throws Exception {
+
+        pipeline = pipeline().bufferFrames(10).backpressure(Backpressure.block).build();
+
+        pipeline.start();
+        tick(5);
+        await().atMost(10, SECONDS).until(() -> writer.writes.get() == 5);
+        pipeline.cancel();
+
+        assertThat(writer.closed).isTrue();
+        assertThat(writer.durations).hasSize(5); // the frame of tick 5 isn't written
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowEncoderErrorWhenStopped() throws Exception {
+
+        writer.error = true;
+        pipeline = pipeline().bufferFrames(10).backpressure(Backpressure.dropOldest).build();
+
+        pipeline.start();
+        tick(1);
+        await().atMost(10, SECONDS).until(() -> writer.writes.get() == 1);
+        pipeline.stop();
+    }
+
+    // Private methods
+
+    private RecorderPipeline.RecorderPipelineBuilder pipeline() {
+        return RecorderPipeline.builder().grabber(new TestFrameGrabber()).writer(writer)
+            .width(4).height(4).frameRate(FRAME_RATE).clock(clock);
+    }
+
+    /**
+     * Move the clock on by a number of ticks - each time waiting for the grab thread to finish the
+     * current tick (and sleep until the next one).  Returns once the last tick is finished.
+     */
+    private void tick(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            await().atMost(10, SECONDS).until(clock::isSleeping);
+            clock.wake();
+        }
+        await().atMost(10, SECONDS).until(clock::isSleeping);
+    }
+
+    // Private classes
+
+    /**
+     * Clock which only moves on when the test wakes the (sleeping) grab thread.
+     */
+    private static class ManualClock implements RecorderClock {
+
+        private long now;
+        private long wakeAt = -1; // -1 if nothing is sleeping
+
+        @Override
+        public synchronized long nanoTime() {
+            return now;
+        }
+
+        @Override
+        public synchronized void sleep(long nanos) throws InterruptedException {
+            wakeAt = now + nanos;
+            try {
+                while (now < wakeAt) {
+                    wait();
+                }
+            } finally {
+                wakeAt = -1;
+            }
+        }
+
+        synchronized boolean isSleeping() {
+            return wakeAt != -1 && now < wakeAt;
+        }
+
+        synchronized void wake() {
+            now = wakeAt;
+            notifyAll();
+        }
+
+    }
+
+    /**
+     * Frame grabber where every frame is different.
+     */
+    private static class TestFrameGrabber implements FrameGrabber {
+
+        private final Set<BufferedImage> images = Collections
+            .newSetFromMap(new IdentityHashMap<>());
+        private int count;
+
+        @Override
+        public void grab(BufferedImage image) {
+            images.add(image);
+            image.setRGB(0, 0, count++);
+        }
+
+    }
+
+    /**
+     * Movie writer which can be blocked (i.e. writes wait until it's unblocked) to simulate a slow
+     * encoder.
+     */
+    private static class TestMovieWriter implements MovieWriter {
+
+        private final List<Integer> durations = Collections.synchronizedList(new ArrayList<>());
+        private final AtomicInteger writes = new AtomicInteger(); // started
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile boolean error;
+        private volatile boolean closed;
+
+        @Override
+        public void write(BufferedImage image, int duration) throws IOException {
+            writes.incrementAndGet();
+            if (error) {
+                throw new IOException("Test error");
+            }
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            durations.add(duration);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        private void unblock() {
+            gate.countDown();
+        }
+
+    }
+
+}
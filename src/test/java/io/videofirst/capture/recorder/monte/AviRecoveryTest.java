@@ -0,0 +1,148 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.recorder.monte;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.videofirst.capture.test.VfCaptureTesting;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of AviRecovery.
+ *
+ * @author Bob Marks
+ */
+public class AviRecoveryTest {
+
+    // Constants
+
+    private static final int HEADER_SIZE = 224; // RIFF + hdrl + movi headers of 1 video stream
+    private static final AviRecovery.VideoFormat VIDEO_FORMAT = new AviRecovery.VideoFormat(
+        "tscc", 24, 640, 480, 10, 2);
+
+    // Fields
+
+    private final File partialFile = new File(VfCaptureTesting.VF_TEMP_FOLDER, "capture.avi");
+    private final File videoFile = new File(VfCaptureTesting.VF_VIDEO_FOLDER, "capture.avi");
+
+    @Before
+    public void setUp() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+    }
+
+    @Test
+    public void shouldRecoverFramesAndRebuildHeadersAndIndex() throws IOException {
+
+        // Headers are zero filled (never written) and the last frame is truncated
+        writePartialFile(new byte[HEADER_SIZE], 100, 51, 300);
+        partialFile.setLastModified(1500000000000L);
+
+        assertThat(AviRecovery.recover(partialFile, videoFile, VIDEO_FORMAT)).isEqualTo(3);
+
+        ByteBuffer avi = read(videoFile);
+        assertThat(fourCC(avi, 0)).isEqualTo("RIFF");
+        assertThat(avi.getInt(4)).isEqualTo(avi.limit() - 8);
+        assertThat(fourCC(avi, 8)).isEqualTo("AVI ");
+        assertThat(fourCC(avi, 24)).isEqualTo("avih");
+        assertThat(avi.getInt(32 + 16)).isEqualTo(3); // total frames
+        assertThat(avi.getInt(32 + 32)).isEqualTo(640);
+        assertThat(fourCC(avi, 220)).isEqualTo("movi");
+        assertThat(videoFile.lastModified()).isEqualTo(partialFile.lastModified());
+
+        // Index entries point at each frame (offsets are relative to the `movi` ID)
+        int idx1 = avi.limit() - 8 - 3 * 16;
+        assertThat(fourCC(avi, idx1)).isEqualTo("idx1");
+        int[] lengths = {100, 51, 300};
+        for (int i = 0; i < 3; i++) {
+            int entry = idx1 + 8 + i * 16;
+            assertThat(fourCC(avi, entry)).isEqualTo("00dc");
+            assertThat(avi.getInt(entry + 4)).isEqualTo(i % 2 == 0 ? 0x10 : 0); // key frames
+            assertThat(fourCC(avi, 220 + avi.getInt(entry + 8))).isEqualTo("00dc");
+            assertThat(avi.getInt(entry + 12)).isEqualTo(lengths[i]);
+        }
+    }
+
+    @Test
+    public void shouldKeepHeadersWhichWereWritten() throws IOException {
+
+        writePartialFile(new byte[HEADER_SIZE], 100, 51, 300);
+        AviRecovery.recover(partialFile, videoFile, VIDEO_FORMAT);
+        byte[] recovered = Files.readAllBytes(videoFile.toPath());
+
+        // Remove the index, then recover using a different format (headers aren't rebuilt)
+        Files.write(partialFile.toPath(), Arrays.copyOf(recovered, recovered.length - 56));
+        assertThat(AviRecovery.recover(partialFile, videoFile,
+            new AviRecovery.VideoFormat("tscc", 24, 320, 200, 5, 2))).isEqualTo(3);
+
+        assertThat(Files.readAllBytes(videoFile.toPath())).isEqualTo(recovered);
+    }
+
+    @Test
+    public void shouldNotRecoverFileWithoutFrames() throws IOException {
+
+        writePartialFile(new byte[HEADER_SIZE]);
+
+        assertThat(AviRecovery.recover(partialFile, videoFile, VIDEO_FORMAT)).isEqualTo(0);
+        assertThat(videoFile).doesNotExist();
+    }
+
+    // Private methods
+
+    /**
+     * Write a partial file with frames of the specified lengths, followed by a truncated frame.
+     */
+    private void writePartialFile(byte[] header, int... frameLengths) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(header);
+        for (int frameLength : frameLengths) {
+            buffer.put("00dc".getBytes(StandardCharsets.US_ASCII)).putInt(frameLength);
+            buffer.put(new byte[frameLength + (frameLength & 1)]);
+        }
+        buffer.put("00dc".getBytes(StandardCharsets.US_ASCII)).putInt(1000).put(new byte[10]);
+        Files.write(partialFile.toPath(), Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+
+    private ByteBuffer read(File file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private String fourCC(ByteBuffer buffer, int position) {
+        return new String(buffer.array(), position, 4, StandardCharsets.US_ASCII);
+    }
+
+}
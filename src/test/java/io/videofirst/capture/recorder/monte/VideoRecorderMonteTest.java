@@ -23,6 +23,9 @@
  */
 package io.videofirst.capture.recorder.monte;
 
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.dao.VideoFolders;
 import io.videofirst.capture.model.display.DisplayCapture;
 import io.videofirst.capture.recorder.VideoRecord;
 import io.videofirst.capture.test.VfCaptureTesting;
@@ -39,7 +42,7 @@ import org.junit.Test;
 public class VideoRecorderMonteTest {
 
     private final VideoRecorderMonte monte = new VideoRecorderMonte(VfCaptureTesting.VF_TEMP_FOLDER,
-        VfCaptureTesting.VF_VIDEO_FOLDER);
+        videoFolders());
 
     @Before
     public void setUp() throws IOException {
@@ -68,4 +71,12 @@ public class VideoRecorderMonteTest {
         monte.stop();
     }
 
+    // Private methods
+
+    private static VideoFolders videoFolders() {
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setVideoFolder(VfCaptureTesting.VF_VIDEO_FOLDER);
+        return new VideoFolders(CaptureConfig.builder().storage(storageConfig).build());
+    }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import static io.videofirst.capture.enums.LogTier.L1;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableMap;
+import io.videofirst.capture.model.TestLog;
+import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.service.impl.CaptureSearchIndex.Hit;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of CaptureSearchIndex.
+ *
+ * @author Bob Marks
+ */
+public class CaptureSearchIndexTest {
+
+    // Fields
+
+    private CaptureSearchIndex target;
+
+    @Before
+    public void setUp() {
+        target = new CaptureSearchIndex();
+
+        target.put(Capture.builder().id("login-timeout").project("Moon Rocket")
+            .testError("Login timeout")
+            .testStackTrace("java.util.concurrent.TimeoutException: login timeout timeout")
+            .build());
+        target.put(Capture.builder().id("login-ok").project("Moon Rocket")
+            .description("Login with valid password")
+            .build());
+        target.put(Capture.builder().id("logs").project("Google Search")
+            .meta(ImmutableMap.of("browser", "Chrome"))
+            .testLogs(asList(TestLog.builder().cat("server").tier(L1).log("Timeout on login")
+                .build()))
+            .build());
+    }
+
+    @Test
+    public void shouldSplitTextIntoLowerCaseWords() {
+
+        assertThat(CaptureSearchIndex.words("Login-TIMEOUT (30s), login!"))
+            .containsExactly("login", "timeout", "30s");
+        assertThat(CaptureSearchIndex.words("...")).isEmpty();
+        assertThat(CaptureSearchIndex.words(null)).isEmpty();
+    }
+
+    @Test
+    public void shouldFindCapturesContainingEveryWordBestFirst() {
+
+        assertThat(ids(target.search("timeout LOGIN", summary -> true, null)))
+            .containsExactly("login-timeout", "logs"); // more occurrences ranks higher
+        assertThat(ids(target.search("login", summary -> true, null)))
+            .containsOnly("login-timeout", "login-ok", "logs");
+        assertThat(ids(target.search("chrome server l1", summary -> true, null)))
+            .containsExactly("logs");
+        assertThat(ids(target.search("login unknown", summary -> true, null))).isEmpty();
+    }
+
+    @Test
+    public void shouldFilterAndLimitHits() {
+
+        List<Hit> hits = target.search("login",
+            summary -> "Moon Rocket".equals(summary.getProject()), null);
+        assertThat(hits).hasSize(2);
+
+        List<Hit> best = target.search("login",
+            summary -> "Moon Rocket".equals(summary.getProject()), 1);
+        assertThat(best).containsExactly(hits.get(0));
+    }
+
+    @Test
+    public void shouldReplaceAndRemoveCaptures() {
+
+        target.put(Capture.builder().id("login-ok").description("Changed").build());
+        assertThat(ids(target.search("password", summary -> true, null))).isEmpty();
+        assertThat(ids(target.search("changed", summary -> true, null)))
+            .containsExactly("login-ok");
+
+        target.remove("logs");
+        assertThat(ids(target.search("chrome", summary -> true, null))).isEmpty();
+        assertThat(target.size()).isEqualTo(2);
+    }
+
+    // Private methods
+
+    private List<String> ids(List<Hit> hits) {
+        return hits.stream().map(hit -> hit.getSummary().getId())
+            .collect(Collectors.toList());
+    }
+
+}
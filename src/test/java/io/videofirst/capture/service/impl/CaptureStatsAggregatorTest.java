@@ -0,0 +1,136 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.videofirst.capture.enums.CaptureType;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.model.capture.CaptureStats;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.model.capture.DurationStats;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of CaptureStatsAggregator.
+ *
+ * @author Bob Marks
+ */
+public class CaptureStatsAggregatorTest {
+
+    // Constants
+
+    private static final LocalDateTime DAY_1 = LocalDateTime.of(2018, 2, 15, 12, 0, 0);
+    private static final LocalDateTime DAY_2 = LocalDateTime.of(2018, 2, 16, 12, 0, 0);
+
+    // Fields
+
+    private CaptureStatsAggregator target;
+
+    @Before
+    public void setUp() {
+        target = new CaptureStatsAggregator();
+    }
+
+    @Test
+    public void shouldCountCapturesByProjectFeatureAndDay() {
+
+        target.put(summary("a", "Moon Rocket", "Launch", DAY_1, 1500, TestStatus.pass));
+        target.put(summary("b", "Moon Rocket", "Launch", DAY_1, 3000, TestStatus.fail));
+        target.put(summary("c", "Moon Rocket", "Landing", DAY_2, 45000, TestStatus.pass));
+        target.put(summary("d", "Google Search", "Home Page", DAY_2, 500, TestStatus.pass));
+
+        CaptureStats stats = target.stats(LocalDate.MIN);
+
+        assertThat(stats.getCount()).isEqualTo(4);
+        assertThat(stats.getTestStatus()).containsEntry(TestStatus.pass, 3L)
+            .containsEntry(TestStatus.fail, 1L).hasSize(2);
+        assertThat(stats.getType()).containsEntry(CaptureType.automated, 4L).hasSize(1);
+        assertThat(stats.getProjects()).containsOnlyKeys("Moon Rocket", "Google Search");
+
+        CaptureStats moonRocket = stats.getProjects().get("Moon Rocket");
+        assertThat(moonRocket.getCount()).isEqualTo(3);
+        assertThat(moonRocket.getFeatures().get("Launch").getCount()).isEqualTo(2);
+        assertThat(moonRocket.getFeatures().get("Launch").getTestStatus())
+            .containsEntry(TestStatus.fail, 1L);
+        assertThat(moonRocket.getFeatures().get("Landing").getCount()).isEqualTo(1);
+
+        assertThat(stats.getDays()).containsOnlyKeys("2018-02-15", "2018-02-16");
+        assertThat(stats.getDays().get("2018-02-16").getCount()).isEqualTo(2);
+        assertThat(target.stats(DAY_2.toLocalDate()).getDays()).containsOnlyKeys("2018-02-16");
+    }
+
+    @Test
+    public void shouldEstimateDurationPercentilesFromHistogram() {
+
+        for (int i = 0; i < 100; i++) {
+            target.put(summary("id" + i, "Moon Rocket", "Launch", DAY_1, (i + 1) * 100,
+                TestStatus.pass)); // 0.1 to 10 seconds
+        }
+
+        DurationStats duration = target.stats(LocalDate.MIN).getDuration();
+
+        assertThat(duration.getCount()).isEqualTo(100);
+        assertThat(duration.getMeanMillis()).isEqualTo(5050);
+        assertThat(duration.getHistogramInSecs()).containsEntry("1", 10L).containsEntry("2", 10L)
+            .containsEntry("5", 30L).containsEntry("10", 50L).containsEntry("+Inf", 0L);
+        assertThat(duration.getP50Millis()).isEqualTo(5000);
+        assertThat(duration.getP90Millis()).isEqualTo(9000);
+        assertThat(duration.getP99Millis()).isEqualTo(9900);
+    }
+
+    @Test
+    public void shouldUncountChangedAndDeletedCaptures() {
+
+        target.put(summary("a", "Moon Rocket", "Launch", DAY_1, 1000, TestStatus.pending));
+        target.put(summary("a", "Moon Rocket", "Launch", DAY_1, 2000, TestStatus.pass));
+        target.put(summary("b", "Google Search", "Home Page", DAY_2, 1000, TestStatus.fail));
+
+        CaptureStats stats = target.stats(LocalDate.MIN);
+        assertThat(stats.getCount()).isEqualTo(2);
+        assertThat(stats.getTestStatus()).doesNotContainKey(TestStatus.pending);
+        assertThat(stats.getDuration().getMeanMillis()).isEqualTo(1500);
+
+        target.remove("b");
+        target.remove("unknown");
+
+        stats = target.stats(LocalDate.MIN);
+        assertThat(stats.getCount()).isEqualTo(1);
+        assertThat(stats.getProjects()).containsOnlyKeys("Moon Rocket");
+        assertThat(stats.getDays()).containsOnlyKeys("2018-02-15");
+        assertThat(target.size()).isEqualTo(1);
+    }
+
+    // Private methods
+
+    private CaptureSummary summary(String id, String project, String feature,
+        LocalDateTime started, long durationMillis, TestStatus testStatus) {
+        return new CaptureSummary(id, CaptureType.automated, null, project, feature, "Scenario",
+            started, started.plusNanos(durationMillis * 1_000_000), "avi", testStatus);
+    }
+
+}
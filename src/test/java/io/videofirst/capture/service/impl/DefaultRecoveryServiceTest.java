@@ -0,0 +1,178 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import static com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.exception.VideoRecordException;
+import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.recorder.VideoRecord;
+import io.videofirst.capture.recorder.VideoRecorder;
+import io.videofirst.capture.test.VfCaptureTesting;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Unit test to test the methods of DefaultRecoveryService.
+ *
+ * @author Bob Marks
+ */
+public class DefaultRecoveryServiceTest {
+
+    // Constants
+
+    private static final LocalDateTime STARTED = LocalDateTime.of(2018, 4, 5, 20, 21, 22);
+
+    // Fields
+
+    private VideoRecorder videoRecorder;
+    private CaptureDao captureDao;
+
+    private DefaultRecoveryService target;
+
+    @Before
+    public void setUp() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+        videoRecorder = mock(VideoRecorder.class);
+        captureDao = mock(CaptureDao.class);
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(WRITE_DATES_AS_TIMESTAMPS);
+        StorageConfig storageConfig = new StorageConfig();
+        storageConfig.setTempFolder(VfCaptureTesting.VF_TEMP_FOLDER);
+        target = new DefaultRecoveryService(videoRecorder, captureDao, objectMapper,
+            CaptureConfig.builder().storage(storageConfig).build());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+    }
+
+    @Test
+    public void shouldRecoverRecordingsWhichWereNeverStopped() {
+
+        File videoFile = new File(VfCaptureTesting.VF_VIDEO_FOLDER, "capture-1.avi");
+        when(videoRecorder.recover(any(VideoRecord.class))).thenReturn(videoFile);
+        target.recording(capture("capture-1"));
+
+        assertThat(target.recover()).containsExactly("capture-1");
+
+        ArgumentCaptor<Capture> saved = ArgumentCaptor.forClass(Capture.class);
+        verify(captureDao).save(saved.capture());
+        assertThat(saved.getValue().getId()).isEqualTo("capture-1");
+        assertThat(saved.getValue().getProject()).isEqualTo("Moon Rocket");
+        assertThat(saved.getValue().getStarted()).isEqualTo(STARTED);
+        assertThat(saved.getValue().getFinished()).isNotNull();
+        assertThat(saved.getValue().getTestStatus()).isEqualTo(TestStatus.aborted);
+        assertThat(target.recover()).isEmpty(); // only recovered once
+    }
+
+    @Test
+    public void shouldNotRecoverStoppedRecordings() {
+
+        target.recording(capture("capture-1"));
+        target.stopped("capture-1");
+
+        assertThat(target.recover()).isEmpty();
+        verify(videoRecorder, never()).recover(any(VideoRecord.class));
+    }
+
+    @Test
+    public void shouldNotRegisterRecordingsWithoutVideo() {
+
+        target.recording(capture("capture-1"));
+        target.recording(capture("capture-2"));
+
+        assertThat(target.recover()).isEmpty();
+        verify(videoRecorder, times(2)).recover(any(VideoRecord.class));
+        verify(captureDao, never()).save(any(Capture.class));
+        assertThat(VfCaptureTesting.VF_TEMP_FOLDER.list()).isEmpty();
+    }
+
+    @Test
+    public void shouldQuarantineRecordingsWhichCantBeRecovered() throws IOException {
+
+        when(videoRecorder.recover(any(VideoRecord.class)))
+            .thenThrow(new VideoRecordException("Error recovering video", new IOException()));
+        target.recording(capture("capture-1"));
+        File tempFile = new File(VfCaptureTesting.VF_TEMP_FOLDER, "capture-1-2.avi");
+        FileUtils.writeStringToFile(tempFile, "video", StandardCharsets.UTF_8);
+
+        assertThat(target.recover()).isEmpty();
+        assertThat(VfCaptureTesting.VF_TEMP_FOLDER.list()).containsOnly(
+            "capture-1.recording.json.failed", "capture-1-2.avi.failed");
+
+        assertThat(target.recover()).isEmpty(); // never retried
+        verify(videoRecorder, times(1)).recover(any(VideoRecord.class));
+    }
+
+    @Test
+    public void shouldQuarantineRecordingsWhichCantBeRead() throws IOException {
+
+        File recordingFile = new File(VfCaptureTesting.VF_TEMP_FOLDER,
+            "capture-1.recording.json");
+        FileUtils.writeStringToFile(recordingFile, "{ \"id\": \"capt", StandardCharsets.UTF_8);
+
+        assertThat(target.recover()).isEmpty();
+        assertThat(VfCaptureTesting.VF_TEMP_FOLDER.list())
+            .containsOnly("capture-1.recording.json.failed");
+        verify(videoRecorder, never()).recover(any(VideoRecord.class));
+    }
+
+    // Private methods
+
+    private Capture capture(String id) {
+        return Capture.builder()
+            .id(id)
+            .started(STARTED)
+            .project("Moon Rocket")
+            .folder("moon-rocket/" + id)
+            .format("avi")
+            .testStatus(TestStatus.pending)
+            .build();
+    }
+
+}
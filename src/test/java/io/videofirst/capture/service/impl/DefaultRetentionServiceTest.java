@@ -0,0 +1,197 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2017-present, Video First Software
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.videofirst.capture.service.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.videofirst.capture.configuration.properties.CaptureConfig;
+import io.videofirst.capture.configuration.properties.StorageConfig;
+import io.videofirst.capture.configuration.properties.StorageRetentionConfig;
+import io.videofirst.capture.dao.CaptureDao;
+import io.videofirst.capture.enums.TestStatus;
+import io.videofirst.capture.enums.UploadState;
+import io.videofirst.capture.exception.VideoConfigurationException;
+import io.videofirst.capture.model.capture.Capture;
+import io.videofirst.capture.model.capture.CaptureSummary;
+import io.videofirst.capture.model.capture.Upload;
+import io.videofirst.capture.model.capture.UploadStatus;
+import io.videofirst.capture.service.UploadService;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test to test the methods of DefaultRetentionService.
+ *
+ * @author Bob Marks
+ */
+public class DefaultRetentionServiceTest {
+
+    // Constants
+
+    private static final long MB = 1024L * 1024L;
+
+    // Fields
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private CaptureDao captureDao;
+    private UploadService uploadService;
+    private StorageRetentionConfig retentionConfig;
+
+    private DefaultRetentionService target;
+
+    @Before
+    public void setUp() {
+        captureDao = mock(CaptureDao.class);
+        uploadService = mock(UploadService.class);
+
+        StorageConfig storageConfig = new StorageConfig();
+        retentionConfig = storageConfig.getRetention();
+        retentionConfig.setEnable(true);
+        target = new DefaultRetentionService(captureDao, uploadService,
+            CaptureConfig.builder().storage(storageConfig).build());
+    }
+
+    @After
+    public void tearDown() {
+        target.stop();
+    }
+
+    @Test
+    public void shouldTrackTotalBytesIncrementally() {
+
+        target.captureSaved(summary("a", "Moon Rocket", 1, TestStatus.pass), 100);
+        target.captureSaved(summary("b", "Moon Rocket", 2, TestStatus.pass), 200);
+        target.captureSaved(summary("a", "Moon Rocket", 1, TestStatus.pass), 150); // changed
+        assertThat(target.getTotalBytes()).isEqualTo(350);
+
+        target.captureDeleted("b");
+        target.captureDeleted("unknown");
+        assertThat(target.getTotalBytes()).isEqualTo(150);
+    }
+
+    @Test
+    public void shouldDeleteCapturesOlderThanMaxAge() {
+
+        retentionConfig.setMaxAgeInDays(30);
+        target.captureSaved(summary("new", "Moon Rocket", 29, TestStatus.pass), MB);
+        target.captureSaved(summary("old", "Moon Rocket", 31, TestStatus.fail), MB);
+        target.captureSaved(summary("no-date", "Moon Rocket", null, TestStatus.pass), MB);
+
+        assertThat(target.applyRetention()).containsExactly("old");
+        verify(captureDao).deleteAll(eq(Collections.singletonList("old")), any(), any());
+    }
+
+    @Test
+    public void shouldOnlyKeepFailedCapturesAfterDays() {
+
+        retentionConfig.setKeepFailedOnlyAfterDays(7);
+        target.captureSaved(summary("new-pass", "Moon Rocket", 1, TestStatus.pass), MB);
+        target.captureSaved(summary("old-pass", "Moon Rocket", 8, TestStatus.pass), MB);
+        target.captureSaved(summary("old-fail", "Moon Rocket", 9, TestStatus.fail), MB);
+        target.captureSaved(summary("old-error", "Moon Rocket", 10, TestStatus.error), MB);
+
+        assertThat(target.applyRetention()).containsExactly("old-pass");
+    }
+
+    @Test
+    public void shouldKeepMostRecentCapturesPerProject() {
+
+        retentionConfig.setMaxCapturesPerProject(2);
+        for (int i = 1; i <= 4; i++) {
+            target.captureSaved(summary("moon-" + i, "Moon Rocket", i, TestStatus.pass), MB);
+        }
+        target.captureSaved(summary("google-1", "Google Search", 5, TestStatus.pass), MB);
+
+        assertThat(target.applyRetention()).containsExactly("moon-3", "moon-4");
+    }
+
+    @Test
+    public void shouldDeleteOldestCapturesOverMaxSize() {
+
+        retentionConfig.setMaxSizeInMb(5);
+        for (int i = 1; i <= 4; i++) {
+            target.captureSaved(summary("capture-" + i, "Moon Rocket", i, TestStatus.pass),
+                2 * MB);
+        }
+
+        // 8 MB in total, so the 2 oldest captures are deleted
+        assertThat(target.applyRetention()).containsExactly("capture-4", "capture-3");
+    }
+
+    @Test
+    public void shouldNotDeleteCapturesBeingUploaded() {
+
+        retentionConfig.setMaxAgeInDays(1);
+        target.captureSaved(summary("uploading", "Moon Rocket", 2, TestStatus.pass), MB);
+        when(uploadService.status()).thenReturn(Collections.singletonList(new UploadStatus(
+            Capture.builder().id("uploading")
+                .upload(Upload.builder().state(UploadState.uploading).build()).build())));
+
+        assertThat(target.applyRetention()).isEmpty();
+        verify(captureDao, never()).deleteAll(anyCollectionOf(String.class), any(), any());
+    }
+
+    @Test
+    public void shouldNotDeleteIfDisabled() {
+
+        retentionConfig.setEnable(false);
+        retentionConfig.setMaxAgeInDays(1);
+        target.captureSaved(summary("old", "Moon Rocket", 2, TestStatus.pass), MB);
+
+        assertThat(target.applyRetention()).isEmpty();
+    }
+
+    @Test(expected = VideoConfigurationException.class)
+    public void shouldRejectInvalidInterval() {
+
+        retentionConfig.setIntervalInMins(0);
+
+        target.start();
+    }
+
+    // Private methods
+
+    private CaptureSummary summary(String id, String project, Integer daysAgo,
+        TestStatus testStatus) {
+        CaptureSummary summary = new CaptureSummary();
+        summary.setId(id);
+        summary.setProject(project);
+        summary.setStarted(daysAgo != null ? now.minusDays(daysAgo) : null);
+        summary.setFormat("avi");
+        summary.setTestStatus(testStatus);
+        return summary;
+    }
+
+}
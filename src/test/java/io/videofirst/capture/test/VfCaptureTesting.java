@@ -38,6 +38,7 @@ public class VfCaptureTesting {
     public static final File VF_CAPTURE_TEST_FOLDER = new File(TEMP_DIR, "vf-capture-test");
     public static final File VF_TEMP_FOLDER = new File(VF_CAPTURE_TEST_FOLDER, "temp");
     public static final File VF_VIDEO_FOLDER = new File(VF_CAPTURE_TEST_FOLDER, "videos");
+    public static final File VF_SHARD_FOLDER = new File(VF_CAPTURE_TEST_FOLDER, "shard");
     public static final File TEST_VIDEOS = new File("src/test/resources/videos");
 
     public static void initTestFolders() throws IOException {
@@ -53,6 +54,9 @@ public class VfCaptureTesting {
 
         VF_VIDEO_FOLDER.mkdirs();
         FileUtils.cleanDirectory(VF_VIDEO_FOLDER);
+
+        VF_SHARD_FOLDER.mkdirs();
+        FileUtils.cleanDirectory(VF_SHARD_FOLDER);
     }
 
 }
@@ -27,6 +27,9 @@ import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.google.common.collect.ImmutableMap;
+import io.videofirst.capture.test.VfCaptureTesting;
+import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -159,4 +162,28 @@ public class VfCaptureUtilsTest {
         assertThat(VfCaptureUtils.convertToList(null)).isNull();
     }
 
+    // ---------------------------------------------------------------------------------------------
+    // VfCaptureUtils.deleteEmptyFolders
+    // ---------------------------------------------------------------------------------------------
+
+    @Test
+    public void shouldDeleteEmptyFoldersAndEmptyParents() throws IOException {
+        VfCaptureTesting.cleanTestFolders();
+        File root = VfCaptureTesting.VF_TEMP_FOLDER;
+        File emptyA = new File(root, "project/feature-a/scenario-a");
+        File emptyB = new File(root, "project/feature-a/scenario-b");
+        File notEmpty = new File(root, "project/feature-b/scenario-c");
+        emptyA.mkdirs();
+        emptyB.mkdirs();
+        notEmpty.mkdirs();
+        new File(notEmpty, "capture.json").createNewFile();
+
+        VfCaptureUtils.deleteEmptyFolders(asList(emptyA, emptyB, notEmpty, root), root);
+
+        assertThat(new File(root, "project/feature-a")).doesNotExist();
+        assertThat(notEmpty).exists();
+        assertThat(root).exists();
+        VfCaptureTesting.cleanTestFolders();
+    }
+
 }